@@ -0,0 +1,22 @@
+package minimal.sequence;
+
+/**
+ * 要素を 1 つずつ受け取って集計する状態を持った集計器を表します。
+ * 集計器は状態を持つため、集計ごとに新しいインスタンスを作成します。
+ * @see Sequence#collect(Accumulator)
+ * @see Sequence#aggregate(Accumulator, Accumulator)
+ * @see Accumulators
+ */
+public interface Accumulator<T, R> {
+    /**
+     * 要素を集計します。
+     * @param t 要素
+     */
+    void accept(T t);
+
+    /**
+     * これまでに集計した結果を取得します。
+     * @return 集計結果
+     */
+    R result();
+}
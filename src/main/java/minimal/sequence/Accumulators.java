@@ -0,0 +1,195 @@
+package minimal.sequence;
+
+import minimal.sequence.function.BiFunction;
+import minimal.sequence.function.Function;
+import minimal.sequence.function.ToDoubleFunction;
+import minimal.sequence.function.ToIntFunction;
+import minimal.sequence.function.ToLongFunction;
+
+import java.util.ArrayList;
+
+/**
+ * よく使う集計器 {@link Accumulator} を作成するユーティリティを表します。
+ */
+public final class Accumulators {
+    private Accumulators() {
+    }
+
+    /**
+     * 要素数を集計する集計器を作成します。
+     * @param <T> 要素の型
+     * @return    集計器
+     */
+    public static <T> Accumulator<T, Long> counting() {
+        return new Accumulator<T, Long>() {
+            private long count;
+
+            @Override
+            public void accept(T t) {
+                count++;
+            }
+
+            @Override
+            public Long result() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * 要素をリストへ集める集計器を作成します。
+     * @param <T> 要素の型
+     * @return    集計器
+     */
+    public static <T> Accumulator<T, ArrayList<T>> toArrayList() {
+        return new Accumulator<T, ArrayList<T>>() {
+            private final ArrayList<T> list = new ArrayList<T>();
+
+            @Override
+            public void accept(T t) {
+                list.add(t);
+            }
+
+            @Override
+            public ArrayList<T> result() {
+                return list;
+            }
+        };
+    }
+
+    /**
+     * 初期値と各要素を先頭から順に累積関数へ適用する集計器を作成します。
+     * @param seed        初期値
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @param <T>         要素の型
+     * @param <R>         累積値の型
+     * @return            集計器
+     */
+    public static <T, R> Accumulator<T, R> fold(final R seed, final BiFunction<? super R, ? super T, ? extends R> accumulator) {
+        return new Accumulator<T, R>() {
+            private R accumulated = seed;
+
+            @Override
+            public void accept(T t) {
+                accumulated = accumulator.apply(accumulated, t);
+            }
+
+            @Override
+            public R result() {
+                return accumulated;
+            }
+        };
+    }
+
+    /**
+     * 比較値への射影関数を適用して、比較値が最小の (同値の場合は先に現れた) 要素を求める集計器を作成します。
+     * @param comparableSelector 比較値への射影関数
+     * @param <T>                要素の型
+     * @param <C>                比較値の型
+     * @return                   集計器
+     */
+    public static <T, C extends Comparable<C>> Accumulator<T, Maybe<T>> minBy(Function<? super T, ? extends C> comparableSelector) {
+        return minOrMaxBy(comparableSelector, true);
+    }
+
+    /**
+     * 比較値への射影関数を適用して、比較値が最大の (同値の場合は先に現れた) 要素を求める集計器を作成します。
+     * @param comparableSelector 比較値への射影関数
+     * @param <T>                要素の型
+     * @param <C>                比較値の型
+     * @return                   集計器
+     */
+    public static <T, C extends Comparable<C>> Accumulator<T, Maybe<T>> maxBy(Function<? super T, ? extends C> comparableSelector) {
+        return minOrMaxBy(comparableSelector, false);
+    }
+
+    private static <T, C extends Comparable<C>> Accumulator<T, Maybe<T>> minOrMaxBy(final Function<? super T, ? extends C> comparableSelector, final boolean min) {
+        return new Accumulator<T, Maybe<T>>() {
+            private boolean any;
+            private T currentObject;
+            private C currentValue;
+
+            @Override
+            public void accept(T t) {
+                C value = comparableSelector.apply(t);
+                int compared = any ? value.compareTo(currentValue) : 0;
+                if (!any || (min ? compared < 0 : compared > 0)) {
+                    any = true;
+                    currentObject = t;
+                    currentValue = value;
+                }
+            }
+
+            @Override
+            public Maybe<T> result() {
+                return Maybe.of(currentObject);
+            }
+        };
+    }
+
+    /**
+     * 各要素を int 値へ射影して、要素数, 合計, 最小値, 最大値を集計する集計器を作成します。射影した値はボックス化しません。
+     * @param selector int 値への射影関数
+     * @param <T>      要素の型
+     * @return         集計器
+     */
+    public static <T> Accumulator<T, IntStatistics> intStatistics(final ToIntFunction<? super T> selector) {
+        return new Accumulator<T, IntStatistics>() {
+            private final IntStatistics statistics = new IntStatistics();
+
+            @Override
+            public void accept(T t) {
+                statistics.accept(selector.apply(t));
+            }
+
+            @Override
+            public IntStatistics result() {
+                return statistics;
+            }
+        };
+    }
+
+    /**
+     * 各要素を long 値へ射影して、要素数, 合計, 最小値, 最大値を集計する集計器を作成します。射影した値はボックス化しません。
+     * @param selector long 値への射影関数
+     * @param <T>      要素の型
+     * @return         集計器
+     */
+    public static <T> Accumulator<T, LongStatistics> longStatistics(final ToLongFunction<? super T> selector) {
+        return new Accumulator<T, LongStatistics>() {
+            private final LongStatistics statistics = new LongStatistics();
+
+            @Override
+            public void accept(T t) {
+                statistics.accept(selector.apply(t));
+            }
+
+            @Override
+            public LongStatistics result() {
+                return statistics;
+            }
+        };
+    }
+
+    /**
+     * 各要素を double 値へ射影して、要素数, 合計, 最小値, 最大値を集計する集計器を作成します。射影した値はボックス化しません。
+     * @param selector double 値への射影関数
+     * @param <T>      要素の型
+     * @return         集計器
+     */
+    public static <T> Accumulator<T, DoubleStatistics> doubleStatistics(final ToDoubleFunction<? super T> selector) {
+        return new Accumulator<T, DoubleStatistics>() {
+            private final DoubleStatistics statistics = new DoubleStatistics();
+
+            @Override
+            public void accept(T t) {
+                statistics.accept(selector.apply(t));
+            }
+
+            @Override
+            public DoubleStatistics result() {
+                return statistics;
+            }
+        };
+    }
+}
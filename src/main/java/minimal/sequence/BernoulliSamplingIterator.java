@@ -0,0 +1,62 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * 各要素を一定の確率で独立に抽出するイテレーターを表します (ベルヌーイ抽出)。
+ * 要素ごとに乱数を生成する代わりに、次に抽出する要素までの間隔を幾何分布から生成して読み飛ばすため、
+ * 乱数の生成回数は抽出する要素数に比例します。
+ */
+final class BernoulliSamplingIterator<T> implements Iterator<T> {
+    private final Iterator<T> source;
+    private final double logComplement;     // log(1 - 確率)
+    private final Random random;
+    private long skipping = -1;             // 次に抽出する要素までに読み飛ばす要素数 (未生成の場合は -1)
+
+    /**
+     * インスタンスを初期化します。
+     * @param source      イテレーター
+     * @param probability 抽出する確率 (0 より大きく 1 より小さい値)
+     * @param random      乱数生成器
+     */
+    BernoulliSamplingIterator(Iterator<T> source, double probability, Random random) {
+        this.source = source;
+        this.logComplement = Math.log(1 - probability);
+        this.random = random;
+    }
+
+    @Override
+    public boolean hasNext() {
+        skip();
+        return source.hasNext();
+    }
+
+    @Override
+    public T next() {
+        skip();
+        if (!source.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        skipping = -1;
+        return source.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void skip() {
+        if (skipping < 0) {
+            // 1 - nextDouble() は (0, 1] の一様乱数であり、間隔 floor(log(u) / log(1 - p)) は幾何分布に従う
+            double gap = Math.floor(Math.log(1 - random.nextDouble()) / logComplement);
+            skipping = gap >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) gap;
+        }
+        while (skipping > 0 && source.hasNext()) {
+            source.next();
+            --skipping;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package minimal.sequence;
+
+/**
+ * 元の文字列の一部の範囲を、文字をコピーせずに参照するビューを表します ({@link Sequence#split}, {@link Sequence#tokens})。
+ * 元の文字列が変更可能な場合 ({@link java.nio.CharBuffer} や {@link StringBuilder} など)、変更はビューにも反映されます。
+ * 元の文字列から独立した文字列が必要な場合は {@link #toString()} で文字列へ変換します。
+ * 等価性とハッシュ値は範囲の文字の並びで判定し、ハッシュ値は同じ文字の並びの {@link String} と同じです。
+ */
+public final class CharSlice implements CharSequence {
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+
+    CharSlice(CharSequence text, int start, int end) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + (end - start));
+        }
+        return text.charAt(start + index);
+    }
+
+    /**
+     * 範囲の一部を参照するビューを返します。文字はコピーしません。
+     * @param start 開始インデックス (この位置を含む)
+     * @param end   終了インデックス (この位置を含まない)
+     * @return      ビュー
+     */
+    @Override
+    public CharSlice subSequence(int start, int end) {
+        if (start < 0 || end > this.end - this.start || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + (this.end - this.start));
+        }
+        return new CharSlice(text, this.start + start, this.start + end);
+    }
+
+    /**
+     * 範囲の文字をコピーした文字列を返します。
+     * @return 文字列
+     */
+    @Override
+    public String toString() {
+        return text.subSequence(start, end).toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CharSlice)) {
+            return false;
+        }
+        CharSlice other = (CharSlice) o;
+        if (other.length() != length()) {
+            return false;
+        }
+        for (int i = start, j = other.start; i < end; i++, j++) {
+            if (text.charAt(i) != other.text.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+}
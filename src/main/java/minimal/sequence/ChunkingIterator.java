@@ -0,0 +1,78 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 隣接する要素のうちキーが等しい連続した要素 (連) をまとめた、キーと要素のリストのペアを要素とするイテレーターを表します。
+ * 上流の要素を 1 つだけ先読みして連の終わりを判定するため、保持するのは現在の連の要素のみです。
+ * バッファーを再利用する場合は、すべての連で同じリストへ要素を詰め直します (リストは次の連を取り出すまでのみ有効です)。
+ */
+final class ChunkingIterator<T, K> implements Iterator<Pair<K, List<T>>> {
+    private final Iterator<T> source;
+    private final Function<? super T, ? extends K> keySelector;
+    private final ArrayList<T> buffer;
+    private final List<T> view;
+    private boolean hasPending;
+    private T pending;
+    private K pendingKey;
+    private boolean started;
+
+    ChunkingIterator(Iterator<T> source, Function<? super T, ? extends K> keySelector, boolean reuseBuffer) {
+        this.source = source;
+        this.keySelector = keySelector;
+        this.buffer = reuseBuffer ? new ArrayList<T>() : null;
+        this.view = reuseBuffer ? Collections.unmodifiableList(buffer) : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            advance();
+        }
+        return hasPending;
+    }
+
+    @Override
+    public Pair<K, List<T>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        K key = pendingKey;
+        List<T> chunk;
+        if (buffer == null) {
+            chunk = new ArrayList<T>();
+        } else {
+            buffer.clear();
+            chunk = buffer;
+        }
+        chunk.add(pending);
+        for (advance(); hasPending && Objects.equals(pendingKey, key); advance()) {
+            chunk.add(pending);
+        }
+        return Pair.of(key, buffer == null ? chunk : view);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void advance() {
+        hasPending = source.hasNext();
+        if (hasPending) {
+            pending = source.next();
+            pendingKey = keySelector.apply(pending);
+        } else {
+            pending = null;
+            pendingKey = null;
+        }
+    }
+}
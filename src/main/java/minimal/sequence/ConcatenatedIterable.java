@@ -0,0 +1,55 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+
+/**
+ * 2 つのシーケンスを連結したシーケンスを表します。連結を繰り返すと、連結シーケンスを節、連結元のシーケンスを葉とする二分木になります。
+ * 連結は区間をコピーせずに O(1) で行い、派生元のインスタンスは変更しません。
+ * 列挙は木を明示的なスタックでたどるため、連結を繰り返してもイテレーターが入れ子にならず、要素あたり償却 O(1) です。
+ */
+final class ConcatenatedIterable<T> implements Iterable<T> {
+    private final Iterable<?> before;
+    private final Iterable<?> after;
+    private final Integer fixedSize;
+
+    /**
+     * 連結シーケンスを作成します。
+     * @param before    前半の区間
+     * @param after     後半の区間
+     * @param fixedSize 要素数 (区間の要素数が変わりうる場合は null)
+     */
+    ConcatenatedIterable(Iterable<?> before, Iterable<?> after, Integer fixedSize) {
+        this.before = before;
+        this.after = after;
+        this.fixedSize = fixedSize;
+    }
+
+    /**
+     * 前半の区間を取得します。
+     * @return 前半の区間
+     */
+    Iterable<?> before() {
+        return before;
+    }
+
+    /**
+     * 後半の区間を取得します。
+     * @return 後半の区間
+     */
+    Iterable<?> after() {
+        return after;
+    }
+
+    /**
+     * 要素数を取得します。
+     * @return 要素数 (区間の要素数が変わりうる場合は null)
+     */
+    Integer fixedSize() {
+        return fixedSize;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ConcatenatedIterator<T>(this);
+    }
+}
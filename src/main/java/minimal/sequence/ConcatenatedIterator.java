@@ -1,25 +1,41 @@
 package minimal.sequence;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * 2 つのイテレーターを連結するイテレーターを表します。
+ * 連結シーケンスの木を前順にたどって、葉の区間を順に連結するイテレーターを表します。
  */
 final class ConcatenatedIterator<T> implements Iterator<T> {
-    private final Iterator<? extends T> source1;
-    private final Iterator<? extends T> source2;
+    private final Deque<Iterable<?>> pending = new ArrayDeque<Iterable<?>>();
+    private Iterator<? extends T> current = Collections.emptyIterator();
 
-    public ConcatenatedIterator(Iterator<? extends T> source1, Iterator<? extends T> source2) {
-        this.source1 = source1;
-        this.source2 = source2;
+    public ConcatenatedIterator(ConcatenatedIterable<T> root) {
+        pending.push(root);
     }
 
+    @SuppressWarnings("unchecked")
     public boolean hasNext() {
-        return source1.hasNext() || source2.hasNext();
+        while (!current.hasNext() && !pending.isEmpty()) {
+            Iterable<?> segment = pending.pop();
+            if (segment instanceof ConcatenatedIterable) {
+                pending.push(((ConcatenatedIterable<?>) segment).after());
+                pending.push(((ConcatenatedIterable<?>) segment).before());
+            } else {
+                current = (Iterator<? extends T>) (segment instanceof Sequence ? ((Sequence<?>) segment).traverse(false) : segment.iterator());
+            }
+        }
+        return current.hasNext();
     }
 
     public T next() {
-        return source1.hasNext() ? source1.next() : source2.next();
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
     }
 
     public void remove() {
@@ -5,35 +5,33 @@ import minimal.sequence.function.Predicate;
 import java.util.Iterator;
 
 /**
- * 先頭から条件を満たす間の要素を除外して、残りの要素を抽出するイテレーターを表します。
+ * 先頭から条件を満たす間の要素を除外して、残りの要素を抽出するイテレーターを表します。要素は {@link #hasNext()} または {@link #next()} が呼ばれるまで取り出しません。
  */
 final class ConditionedSkippingIterator<T> implements Iterator<T> {
     private final Iterator<T> source;
+    private Predicate<? super T> predicate;    // 除外が済んだら null
     private boolean isFirst = false;
     private T first = null;
 
     public ConditionedSkippingIterator(Iterator<T> source, Predicate<? super T> predicate) {
         this.source = source;
-        while (source.hasNext()) {
-            T first = source.next();
-            if (!predicate.test(first)) {
-                this.first = first;
-                this.isFirst = true;
-                break;
-            }
-        }
+        this.predicate = predicate;
     }
 
     @Override
     public boolean hasNext() {
+        skip();
         return isFirst || source.hasNext();
     }
 
     @Override
     public T next() {
+        skip();
         if (isFirst) {
             isFirst = false;
-            return first;
+            T current = first;
+            first = null;
+            return current;
         } else {
             return source.next();
         }
@@ -43,4 +41,19 @@ final class ConditionedSkippingIterator<T> implements Iterator<T> {
     public void remove() {
         throw new UnsupportedOperationException();
     }
+
+    private void skip() {
+        if (predicate == null) {
+            return;
+        }
+        while (source.hasNext()) {
+            T first = source.next();
+            if (!predicate.test(first)) {
+                this.first = first;
+                this.isFirst = true;
+                break;
+            }
+        }
+        predicate = null;
+    }
 }
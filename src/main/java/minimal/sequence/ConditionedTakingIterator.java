@@ -3,31 +3,39 @@ package minimal.sequence;
 import minimal.sequence.function.Predicate;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * 先頭から条件を満たす間のみ要素を抽出するイテレーターを表します。
+ * 先頭から条件を満たす間のみ要素を抽出するイテレーターを表します。要素は {@link #hasNext()} または {@link #next()} が呼ばれるまで取り出しません。
  */
 final class ConditionedTakingIterator<T> implements Iterator<T> {
     private final Iterator<T> source;
     private final Predicate<? super T> predicate;
+    private boolean sought = false;
     private boolean hasNext = true;
     private T next;
 
     public ConditionedTakingIterator(Iterator<T> source, Predicate<? super T> predicate) {
         this.source = source;
         this.predicate = predicate;
-        seek();
     }
 
     @Override
     public boolean hasNext() {
+        if (!sought && hasNext) {
+            seek();
+        }
         return hasNext;
     }
 
     @Override
     public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
         T current = next;
-        seek();
+        next = null;
+        sought = false;
         return current;
     }
 
@@ -37,6 +45,7 @@ final class ConditionedTakingIterator<T> implements Iterator<T> {
     }
 
     private void seek() {
+        sought = true;
         if (source.hasNext()) {
             next = source.next();
             if (predicate.test(next)) {
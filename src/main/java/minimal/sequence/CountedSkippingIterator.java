@@ -0,0 +1,41 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+
+/**
+ * 先頭から指定数の要素を除外して、残りの要素を抽出するイテレーターを表します。
+ */
+final class CountedSkippingIterator<T> implements Iterator<T> {
+    private final Iterator<T> source;
+    private int remaining;
+
+    public CountedSkippingIterator(Iterator<T> source, int count) {
+        this.source = source;
+        this.remaining = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        skip();
+        return source.hasNext();
+    }
+
+    @Override
+    public T next() {
+        skip();
+        return source.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void skip() {
+        while (remaining > 0 && source.hasNext()) {
+            source.next();
+            --remaining;
+        }
+        remaining = 0;
+    }
+}
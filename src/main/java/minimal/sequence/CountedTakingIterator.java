@@ -0,0 +1,36 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 先頭から指定数の要素のみ抽出するイテレーターを表します。指定数を超えて元のイテレーターから要素を取り出すことはありません。
+ */
+final class CountedTakingIterator<T> implements Iterator<T> {
+    private final Iterator<T> source;
+    private int remaining;
+
+    public CountedTakingIterator(Iterator<T> source, int count) {
+        this.source = source;
+        this.remaining = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && source.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (remaining <= 0) {
+            throw new NoSuchElementException();
+        }
+        --remaining;
+        return source.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
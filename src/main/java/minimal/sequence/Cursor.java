@@ -0,0 +1,21 @@
+package minimal.sequence;
+
+/**
+ * {@link java.sql.ResultSet} のように、前進しながら現在位置の値を読み取るカーソルを表します。
+ * {@link Sequence#of(Cursor)} で一度だけ列挙できるシーケンスに変換できます。
+ */
+public interface Cursor<T> {
+    /**
+     * 次の位置へ進みます。
+     * @return 次の位置に値がある場合は true, 終端に達した場合は false
+     * @throws Exception 読み取りに失敗した場合
+     */
+    boolean next() throws Exception;
+
+    /**
+     * 現在位置の値を取得します。
+     * @return 現在位置の値
+     * @throws Exception 読み取りに失敗した場合
+     */
+    T get() throws Exception;
+}
@@ -0,0 +1,52 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Cursor} を前進させながら値を読み取るイテレーターを表します。カーソルは要求されるまで前進させません。
+ */
+final class CursorIterator<T> implements Iterator<T> {
+    private final Cursor<? extends T> cursor;
+    private boolean sought = false;
+    private boolean hasNext = true;
+
+    public CursorIterator(Cursor<? extends T> cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!sought && hasNext) {
+            try {
+                hasNext = cursor.next();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SequenceException(e);
+            }
+            sought = true;
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        sought = false;
+        try {
+            return cursor.get();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SequenceException(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,34 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+
+/**
+ * シーケンスの要素を際限なく繰り返すイテレーターを表します。シーケンスが空の場合は要素を持ちません。
+ */
+final class CycledIterator<T> implements Iterator<T> {
+    private final Iterable<T> source;
+    private Iterator<T> current;
+
+    public CycledIterator(Iterable<T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (current == null || !current.hasNext()) {
+            current = source.iterator();
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public T next() {
+        hasNext();
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,57 @@
+package minimal.sequence;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link SequenceCodec} で符号化した要素を読み込みながら返すイテレーターを表します。
+ * 符号化した要素は「要素数, 要素数個の要素」のチャンクの並びであり、要素数 0 のチャンクで終わります。
+ */
+final class DecodingIterator<T> implements Iterator<T> {
+    private final DataInput in;
+    private final ElementCodec<T> codec;
+    private int remaining;
+    private boolean ended;
+
+    DecodingIterator(DataInput in, ElementCodec<T> codec) {
+        this.in = in;
+        this.codec = codec;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remaining == 0 && !ended) {
+            try {
+                remaining = in.readInt();
+            } catch (IOException e) {
+                throw new SequenceException("failed to decode sequence", e);
+            }
+            if (remaining < 0) {
+                throw new SequenceException("failed to decode sequence", new IOException("negative chunk length: " + remaining));
+            }
+            ended = remaining == 0;
+        }
+        return !ended;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T item = codec.read(in);
+            remaining--;
+            return item;
+        } catch (IOException e) {
+            throw new SequenceException("failed to decode sequence", e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,91 @@
+package minimal.sequence;
+
+/**
+ * double 値の要素数, 合計, 最小値, 最大値を集計した統計を表します。値をボックス化せずに集計します。
+ * 合計は丸め誤差を補正しながら (Kahan の加算アルゴリズムで) 集計します。
+ * @see Accumulators#doubleStatistics(minimal.sequence.function.ToDoubleFunction)
+ */
+public final class DoubleStatistics {
+    private long count;
+    private double sum;
+    private double compensation;    // 合計の丸め誤差の補正値
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * 値を集計します。
+     * @param value 値
+     */
+    public void accept(double value) {
+        count++;
+        add(value);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 他の統計を併合します。
+     * @param other 他の統計
+     * @return      このインスタンス
+     */
+    public DoubleStatistics combine(DoubleStatistics other) {
+        count += other.count;
+        add(other.sum);
+        add(-other.compensation);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    private void add(double value) {
+        double y = value - compensation;
+        double t = sum + y;
+        compensation = (t - sum) - y;
+        sum = t;
+    }
+
+    /**
+     * 要素数を取得します。
+     * @return 要素数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 合計を取得します。
+     * @return 合計 (要素がない場合は 0)
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * 最小値を取得します。
+     * @return 最小値 (要素がない場合は {@link Double#POSITIVE_INFINITY})
+     */
+    public double min() {
+        return min;
+    }
+
+    /**
+     * 最大値を取得します。
+     * @return 最大値 (要素がない場合は {@link Double#NEGATIVE_INFINITY})
+     */
+    public double max() {
+        return max;
+    }
+
+    /**
+     * 平均を取得します。
+     * @return 平均 (要素がない場合は 0)
+     */
+    public double average() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleStatistics{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + ", average=" + average() + "}";
+    }
+}
@@ -0,0 +1,61 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * キューから要素を取り出しながら列挙するイテレーターを表します。キューが空になった時点 (待ち時間を指定した場合はその時間だけ待っても空の時点) で終了します。
+ * 待っている間に割り込まれた場合は、スレッドの割り込み状態を戻して {@link SequenceException} を送出します。
+ */
+final class DrainingIterator<T> implements Iterator<T> {
+    private final Queue<T> queue;
+    private final long timeoutNanos;    // 負の場合は待たない
+    private T next;
+    private boolean finished = false;
+
+    public DrainingIterator(Queue<T> queue, long timeoutNanos) {
+        this.queue = queue;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = poll();
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private T poll() {
+        if (timeoutNanos < 0 || !(queue instanceof BlockingQueue)) {
+            return queue.poll();
+        }
+        try {
+            return ((BlockingQueue<T>) queue).poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // 割り込みをキューの終端と区別できるよう、要素を打ち切らずに例外として伝える
+            finished = true;
+            Thread.currentThread().interrupt();
+            throw new SequenceException("interrupted while waiting for queued elements", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package minimal.sequence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 要素を一時ファイルなどへ書き出して読み戻すための符号化方式を表します。
+ * @see ElementCodecs
+ * @see SpillOptions
+ */
+public interface ElementCodec<T> {
+    /**
+     * 要素を書き出します。
+     * @param item 要素
+     * @param out  出力先
+     * @throws IOException 書き出しに失敗した場合
+     */
+    void write(T item, DataOutput out) throws IOException;
+
+    /**
+     * {@link #write} で書き出した要素を読み戻します。
+     * @param in 入力元
+     * @return   要素
+     * @throws IOException 読み込みに失敗した場合
+     */
+    T read(DataInput in) throws IOException;
+}
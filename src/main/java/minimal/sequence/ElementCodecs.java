@@ -0,0 +1,138 @@
+package minimal.sequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+
+/**
+ * よく使う符号化方式 {@link ElementCodec} を提供します。
+ */
+public final class ElementCodecs {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ElementCodecs() {
+    }
+
+    /**
+     * 文字列を長さと UTF-8 のバイト列で符号化します (null は扱えません)。
+     * @return 符号化方式
+     */
+    public static ElementCodec<String> strings() {
+        return new ElementCodec<String>() {
+            @Override
+            public void write(String item, DataOutput out) throws IOException {
+                writeBytes(item.getBytes(UTF_8), out);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return new String(readBytes(in), UTF_8);
+            }
+        };
+    }
+
+    /**
+     * 整数を 4 バイトで符号化します (null は扱えません)。
+     * @return 符号化方式
+     */
+    public static ElementCodec<Integer> integers() {
+        return new ElementCodec<Integer>() {
+            @Override
+            public void write(Integer item, DataOutput out) throws IOException {
+                out.writeInt(item);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+    }
+
+    /**
+     * 整数を 8 バイトで符号化します (null は扱えません)。
+     * @return 符号化方式
+     */
+    public static ElementCodec<Long> longs() {
+        return new ElementCodec<Long>() {
+            @Override
+            public void write(Long item, DataOutput out) throws IOException {
+                out.writeLong(item);
+            }
+
+            @Override
+            public Long read(DataInput in) throws IOException {
+                return in.readLong();
+            }
+        };
+    }
+
+    /**
+     * 浮動小数点数を 8 バイトで符号化します (null は扱えません)。
+     * @return 符号化方式
+     */
+    public static ElementCodec<Double> doubles() {
+        return new ElementCodec<Double>() {
+            @Override
+            public void write(Double item, DataOutput out) throws IOException {
+                out.writeDouble(item);
+            }
+
+            @Override
+            public Double read(DataInput in) throws IOException {
+                return in.readDouble();
+            }
+        };
+    }
+
+    /**
+     * 直列化可能な要素を Java の直列化で符号化します。要素ごとに直列化するため、専用の符号化方式よりも低速で大きくなります。
+     * @param <T> 要素の型
+     * @return    符号化方式
+     */
+    public static <T extends Serializable> ElementCodec<T> serializable() {
+        return new ElementCodec<T>() {
+            @Override
+            public void write(T item, DataOutput out) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objects = new ObjectOutputStream(bytes);
+                try {
+                    objects.writeObject(item);
+                } finally {
+                    objects.close();
+                }
+                writeBytes(bytes.toByteArray(), out);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T read(DataInput in) throws IOException {
+                ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)));
+                try {
+                    return (T) objects.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                } finally {
+                    objects.close();
+                }
+            }
+        };
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,30 @@
+package minimal.sequence;
+
+import java.util.Enumeration;
+import java.util.Iterator;
+
+/**
+ * {@link Enumeration} を列挙するイテレーターを表します。
+ */
+final class EnumerationIterator<T> implements Iterator<T> {
+    private final Enumeration<T> source;
+
+    public EnumerationIterator(Enumeration<T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return source.hasMoreElements();
+    }
+
+    @Override
+    public T next() {
+        return source.nextElement();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,150 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * メモリー予算を超える要素を並べ替えるイテレーターを表します (外部マージソート)。
+ * 最初に要素を取り出す際に、メモリー予算に収まる要素ずつ並べ替えて一時ファイルへ退避し、
+ * 以降は各一時ファイルの先頭要素のヒープから比較値の最小の要素を順に取り出します (k-way マージ)。
+ * 比較値が等しい要素は元の順序を保ちます (安定ソート)。
+ * 一時ファイルは列挙が終わった時点, {@link #close()} した時点, またはイテレーターが回収された後に削除します。
+ */
+final class ExternalSortingIterator<T, C extends Comparable<C>> implements Iterator<T>, Closeable {
+    private final Iterator<T> source;
+    private final Function<? super T, ? extends C> comparableSelector;
+    private final SpillOptions<T> options;
+    private boolean started;
+    private SpillFiles files;
+    private final List<Iterator<T>> runs = new ArrayList<Iterator<T>>();
+    private final PriorityQueue<Keyed<T, C>> heads = new PriorityQueue<Keyed<T, C>>();
+
+    ExternalSortingIterator(Iterator<T> source, Function<? super T, ? extends C> comparableSelector, SpillOptions<T> options) {
+        this.source = source;
+        this.comparableSelector = comparableSelector;
+        this.options = options;
+    }
+
+    @Override
+    public boolean hasNext() {
+        start();
+        if (heads.isEmpty()) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // 比較値が等しい場合は先の run (元の位置が前の要素) を優先するため、run の番号を位置として添える
+        Keyed<T, C> head = heads.poll();
+        int run = (int) head.index;
+        Iterator<T> iterator = runs.get(run);
+        if (iterator.hasNext()) {
+            T item = iterator.next();
+            heads.add(new Keyed<T, C>(item, comparableSelector.apply(item), run));
+        } else if (heads.isEmpty()) {
+            close();
+        }
+        return head.item;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 一時ファイルを削除します。以降は要素を取り出せません。
+     */
+    @Override
+    public void close() {
+        started = true;
+        heads.clear();
+        runs.clear();
+        if (files != null) {
+            files.close();
+        }
+    }
+
+    /**
+     * 退避した一時ファイルのうち削除していないものの数を取得します。
+     * @return 一時ファイル数
+     */
+    int spilledFiles() {
+        return files == null ? 0 : files.size();
+    }
+
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        try {
+            List<Keyed<T, C>> run = new ArrayList<Keyed<T, C>>();
+            long bytes = 0;
+            for (long index = 0; source.hasNext(); index++) {
+                T item = source.next();
+                run.add(new Keyed<T, C>(item, comparableSelector.apply(item), index));
+                bytes += options.estimateSize(item);
+                if (bytes >= options.memoryBudget()) {
+                    spill(run);
+                    run = new ArrayList<Keyed<T, C>>();
+                    bytes = 0;
+                }
+            }
+            // 最後の run は退避せずにメモリー上でマージする
+            Collections.sort(run);
+            List<T> items = new ArrayList<T>(run.size());
+            for (Keyed<T, C> keyed : run) {
+                items.add(keyed.item);
+            }
+            runs.add(items.iterator());
+            for (int i = 0; i < runs.size(); i++) {
+                Iterator<T> iterator = runs.get(i);
+                if (iterator.hasNext()) {
+                    T item = iterator.next();
+                    heads.add(new Keyed<T, C>(item, comparableSelector.apply(item), i));
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw new SequenceException("failed to spill elements", e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        } catch (Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void spill(List<Keyed<T, C>> run) throws IOException {
+        Collections.sort(run);
+        if (files == null) {
+            files = new SpillFiles(this, options.directory());
+        }
+        Pair<File, DataOutputStream> created = files.create();
+        DataOutputStream out = created.second();
+        ElementCodec<T> codec = options.codec();
+        for (Keyed<T, C> keyed : run) {
+            codec.write(keyed.item, out);
+        }
+        files.finish(out);
+        runs.add(new SpilledRunIterator<T>(files, created.first(), codec, run.size()));
+    }
+}
@@ -3,29 +3,37 @@ package minimal.sequence;
 import minimal.sequence.function.Predicate;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * 条件を満たす要素のみ通すイテレーターを表します。
+ * 条件を満たす要素のみ通すイテレーターを表します。要素は {@link #hasNext()} または {@link #next()} が呼ばれるまで取り出しません。
  */
 final class FilteredIterator<T> implements Iterator<T> {
     private final Iterator<T> source;
     private final Predicate<? super T> predicate;
-    private boolean hasNext = true;
+    private boolean sought = false;
+    private boolean hasNext;
     private T next;
 
     public FilteredIterator(Iterator<T> source, Predicate<? super T> predicate) {
         this.source = source;
         this.predicate = predicate;
-        seek();
     }
 
     public boolean hasNext() {
+        if (!sought) {
+            seek();
+        }
         return hasNext;
     }
 
     public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
         T current = next;
-        seek();
+        next = null;
+        sought = false;
         return current;
     }
 
@@ -34,9 +42,11 @@ final class FilteredIterator<T> implements Iterator<T> {
     }
 
     private void seek() {
+        sought = true;
         while (source.hasNext()) {
             next = source.next();
             if (predicate.test(next)) {
+                hasNext = true;
                 return;
             }
         }
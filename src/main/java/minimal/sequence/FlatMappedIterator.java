@@ -4,9 +4,10 @@ import minimal.sequence.function.Function;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * 各要素を射影関数でシーケンスに変換して連結するイテレーターを表します。
+ * 各要素を射影関数でシーケンスに変換して連結するイテレーターを表します。要素は {@link #hasNext()} または {@link #next()} が呼ばれるまで取り出しません。
  */
 final class FlatMappedIterator<T, R> implements Iterator<R> {
     private final Iterator<? extends T> source;
@@ -16,29 +17,26 @@ final class FlatMappedIterator<T, R> implements Iterator<R> {
     public FlatMappedIterator(Iterator<? extends T> source, Function<? super T, ? extends Iterable<R>> mapper) {
         this.source = source;
         this.mapper = mapper;
-        seek();
     }
 
     @Override
     public boolean hasNext() {
+        while (!currentIterator.hasNext() && source.hasNext()) {
+            currentIterator = mapper.apply(source.next()).iterator();
+        }
         return currentIterator.hasNext();
     }
 
     @Override
     public R next() {
-        R current = currentIterator.next();
-        seek();
-        return current;
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentIterator.next();
     }
 
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
     }
-
-    private void seek() {
-        while (!currentIterator.hasNext() && source.hasNext()) {
-            currentIterator = mapper.apply(source.next()).iterator();
-        }
-    }
 }
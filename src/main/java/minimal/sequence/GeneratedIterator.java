@@ -0,0 +1,31 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Supplier;
+
+import java.util.Iterator;
+
+/**
+ * サプライヤーから要素を際限なく生成するイテレーターを表します。
+ */
+final class GeneratedIterator<T> implements Iterator<T> {
+    private final Supplier<? extends T> supplier;
+
+    public GeneratedIterator(Supplier<? extends T> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    @Override
+    public T next() {
+        return supplier.get();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,151 @@
+package minimal.sequence;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * キーのハッシュ値で要素を振り分けて一時ファイルへ退避する区画の集まりを表します。
+ * 各要素には 1 ビットの印を添えて書き出します。
+ * 区画の深さごとにハッシュ値の異なるビットを用いるため、大きすぎる区画をさらに振り分け直すことができます。
+ */
+final class HashPartitions<T> {
+    /**
+     * 1 回の振り分けで作成する区画数を表します。
+     */
+    static final int COUNT = 32;
+
+    /**
+     * 振り分け直す深さの上限を表します。これより深い区画は (同じキーの要素が大半を占めているため) 振り分け直しません。
+     */
+    static final int MAX_DEPTH = 4;
+
+    private final SpillFiles files;
+    private final ElementCodec<T> codec;
+    private final int depth;
+    private final File[] partitionFiles = new File[COUNT];
+    private final DataOutputStream[] outs = new DataOutputStream[COUNT];
+    private final long[] counts = new long[COUNT];
+
+    HashPartitions(SpillFiles files, ElementCodec<T> codec, int depth) {
+        this.files = files;
+        this.codec = codec;
+        this.depth = depth;
+    }
+
+    /**
+     * 要素を区画へ書き出します。
+     * @param key  振り分けに用いるキー
+     * @param item 要素
+     * @param mark 要素に添える印
+     * @throws IOException 書き出しに失敗した場合
+     */
+    void add(Object key, T item, boolean mark) throws IOException {
+        int partition = partitionOf(key);
+        DataOutputStream out = outs[partition];
+        if (out == null) {
+            Pair<File, DataOutputStream> created = files.create();
+            partitionFiles[partition] = created.first();
+            out = outs[partition] = created.second();
+        }
+        out.writeBoolean(mark);
+        codec.write(item, out);
+        counts[partition]++;
+    }
+
+    /**
+     * 書き出しを終えて、要素を書き出した区画を返します。
+     * @return 区画
+     * @throws IOException 書き出しに失敗した場合
+     */
+    List<Reader<T>> finish() throws IOException {
+        List<Reader<T>> readers = new ArrayList<Reader<T>>();
+        for (int i = 0; i < COUNT; i++) {
+            if (outs[i] != null) {
+                files.finish(outs[i]);
+                readers.add(new Reader<T>(files, partitionFiles[i], codec, counts[i], depth));
+            }
+        }
+        return readers;
+    }
+
+    private int partitionOf(Object key) {
+        // 深さごとに異なるビットを用いるため、ハッシュ値を攪拌してから深さに応じて回転させる
+        int h = key == null ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (Integer.rotateRight(h, depth * 5) & 0x7fffffff) % COUNT;
+    }
+
+    /**
+     * 区画へ書き出した要素を先頭から読み戻すリーダーを表します。読み終えた区画はその時点で削除します。
+     */
+    static final class Reader<T> {
+        private final SpillFiles files;
+        private final File file;
+        private final ElementCodec<T> codec;
+        private final int depth;
+        private long remaining;
+        private DataInputStream in;
+        private T item;
+        private boolean mark;
+
+        Reader(SpillFiles files, File file, ElementCodec<T> codec, long count, int depth) {
+            this.files = files;
+            this.file = file;
+            this.codec = codec;
+            this.remaining = count;
+            this.depth = depth;
+        }
+
+        /**
+         * 区画の深さを取得します。
+         * @return 深さ (最初の振り分けによる区画は 0)
+         */
+        int depth() {
+            return depth;
+        }
+
+        /**
+         * 次の要素へ進みます。
+         * @return 次の要素がある場合は true, そうでない場合は false
+         * @throws IOException 読み込みに失敗した場合
+         */
+        boolean next() throws IOException {
+            if (remaining <= 0) {
+                return false;
+            }
+            if (in == null) {
+                in = files.open(file);
+            }
+            mark = in.readBoolean();
+            item = codec.read(in);
+            if (--remaining == 0) {
+                files.release(file, in);
+            }
+            return true;
+        }
+
+        /**
+         * 現在の要素を取得します。
+         * @return 要素
+         */
+        T item() {
+            return item;
+        }
+
+        /**
+         * 現在の要素に添えた印を取得します。
+         * @return 印
+         */
+        boolean mark() {
+            return mark;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package minimal.sequence;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * 配列をそのまま保持する変更不可能なリストを表します ({@link Sequence#toImmutableList()})。
+ * 要素数ちょうどの配列のみを保持し、ハッシュ値は初めて求めた時点で記憶します。
+ * {@link Sequence#of(java.util.Collection)} は添字アクセス可能なリストとして、要素をコピーせずに添字アクセスで処理します。
+ */
+final class ImmutableArrayList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] elements;
+    private transient int hash;         // 0 の場合は未計算
+
+    /**
+     * インスタンスを初期化します。配列はコピーせずに保持するため、呼び出し元は以降配列を変更しないものとします。
+     * @param elements 要素の配列
+     */
+    ImmutableArrayList(Object[] elements) {
+        this.elements = elements;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= elements.length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + elements.length);
+        }
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        for (int i = 0; i < elements.length; i++) {
+            if (Objects.equals(elements[i], o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, elements.length, Object[].class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] array) {
+        if (array.length < elements.length) {
+            return (T[]) Arrays.copyOf(elements, elements.length, array.getClass());
+        }
+        System.arraycopy(elements, 0, array, 0, elements.length);
+        if (array.length > elements.length) {
+            array[elements.length] = null;
+        }
+        return array;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            // 単一のフィールドのため、複数のスレッドから呼び出されても同じ値を計算し直すだけで済む (ハッシュ値が 0 の場合は毎回計算する)
+            h = Arrays.hashCode(elements);
+            hash = h;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,148 @@
+package minimal.sequence;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * 配列をそのまま保持する変更不可能なセットを表します ({@link Sequence#toImmutableSet()})。
+ * 要素は最初に現れた順に要素数ちょうどの配列へ格納し、ハッシュ表 (オープンアドレス法, 線形探索) には配列のインデックスのみを格納します。
+ * 列挙の順序は要素が最初に現れた順であり、ハッシュ値は初めて求めた時点で記憶します。
+ * {@link Sequence#of(java.util.Collection)} は要素の配列を添字アクセス可能なリストとして、要素をコピーせずに処理します。
+ */
+final class ImmutableArraySet<E> extends AbstractSet<E> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] elements;
+    private transient int[] table;      // 格納した位置 + 1 (空の場合は 0)
+    private transient int hash;         // 0 の場合は未計算
+    private transient ImmutableArrayList<E> list;
+
+    private ImmutableArraySet(Object[] elements, int[] table) {
+        this.elements = elements;
+        this.table = table;
+    }
+
+    /**
+     * 重複を除いた要素のセットを作成します。配列は要素の詰め直しに使用するため、呼び出し元は以降配列を使用しないものとします。
+     * @param items 要素の配列
+     * @param <E>   要素の型
+     * @return      セット
+     */
+    static <E> ImmutableArraySet<E> of(Object[] items) {
+        int[] table = new int[capacityFor(items.length)];
+        int count = 0;
+        for (Object item : items) {
+            if (insert(table, items, count, item)) {
+                items[count++] = item;
+            }
+        }
+        if (count == items.length) {
+            return new ImmutableArraySet<E>(items, table);
+        }
+        Object[] elements = Arrays.copyOf(items, count);
+        return new ImmutableArraySet<E>(elements, buildTable(elements));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int mask = table.length - 1;
+        for (int slot = hash(o) & mask, stored; (stored = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (Objects.equals(elements[stored - 1], o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return asList().iterator();
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return asList().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] array) {
+        return asList().toArray(array);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (Object element : elements) {
+                h += Objects.hashCode(element);
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * 要素の配列を共有する、要素が最初に現れた順のリストのビューを返します。
+     * @return リスト
+     */
+    ImmutableArrayList<E> asList() {
+        ImmutableArrayList<E> list = this.list;
+        if (list == null) {
+            this.list = list = new ImmutableArrayList<E>(elements);
+        }
+        return list;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        table = buildTable(elements);
+    }
+
+    private static int[] buildTable(Object[] elements) {
+        int[] table = new int[capacityFor(elements.length)];
+        for (int i = 0; i < elements.length; i++) {
+            insert(table, elements, i, elements[i]);
+        }
+        return table;
+    }
+
+    /**
+     * 要素が含まれていない場合は、ハッシュ表へ指定された位置を格納します。
+     * @param table    ハッシュ表
+     * @param elements 要素の配列
+     * @param index    要素を格納する位置
+     * @param element  要素
+     * @return         格納した場合は true, 既に含まれている場合は false
+     */
+    private static boolean insert(int[] table, Object[] elements, int index, Object element) {
+        int mask = table.length - 1;
+        int slot = hash(element) & mask;
+        for (int stored; (stored = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (Objects.equals(elements[stored - 1], element)) {
+                return false;
+            }
+        }
+        table[slot] = index + 1;
+        return true;
+    }
+
+    private static int capacityFor(int size) {
+        // 使用率が 1/2 以下となる 2 の累乗
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    private static int hash(Object o) {
+        int h = Objects.hashCode(o) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,115 @@
+package minimal.sequence;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * 等差数列となる整数の範囲を表します。要素数・添字アクセス・包含判定・部分範囲の取得はいずれも O(1) で行います。
+ */
+final class IntRange extends AbstractList<Integer> implements RandomAccess {
+    private final int start;
+    private final int step;
+    private final int size;
+
+    /**
+     * インスタンスを初期化します。
+     * @param start 最初の値
+     * @param step  増分
+     * @param size  要素数
+     */
+    IntRange(int start, int step, int size) {
+        this.start = start;
+        this.step = step;
+        this.size = size;
+    }
+
+    /**
+     * 開始値・終了値 (終了値自体は含まない)・増分から範囲を作成します。
+     * @param start 開始値
+     * @param end   終了値 (この値自体は含まない)
+     * @param step  増分
+     * @return      範囲
+     */
+    static IntRange of(int start, int end, int step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("step must not be 0");
+        }
+        long distance = (long) end - start;
+        long size = distance == 0 || (distance > 0) != (step > 0) ? 0 : (distance + step + (step > 0 ? -1 : 1)) / step;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("range is too large");
+        }
+        return new IntRange(start, step, (int) size);
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return start + step * index;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Integer)) {
+            return -1;
+        }
+        long offset = (long) (Integer) o - start;
+        if (offset % step != 0) {
+            return -1;
+        }
+        long index = offset / step;
+        return 0 <= index && index < size ? (int) index : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public IntRange subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size);
+        }
+        return new IntRange(start + step * fromIndex, step, toIndex - fromIndex);
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Integer next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return start + step * index++;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package minimal.sequence;
+
+/**
+ * int 値の要素数, 合計, 最小値, 最大値を集計した統計を表します。値をボックス化せずに集計します。
+ * @see Accumulators#intStatistics(minimal.sequence.function.ToIntFunction)
+ */
+public final class IntStatistics {
+    private long count;
+    private long sum;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    /**
+     * 値を集計します。
+     * @param value 値
+     */
+    public void accept(int value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 他の統計を併合します。
+     * @param other 他の統計
+     * @return      このインスタンス
+     */
+    public IntStatistics combine(IntStatistics other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * 要素数を取得します。
+     * @return 要素数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 合計を取得します。
+     * @return 合計 (要素がない場合は 0)
+     */
+    public long sum() {
+        return sum;
+    }
+
+    /**
+     * 最小値を取得します。
+     * @return 最小値 (要素がない場合は {@link Integer#MAX_VALUE})
+     */
+    public int min() {
+        return min;
+    }
+
+    /**
+     * 最大値を取得します。
+     * @return 最大値 (要素がない場合は {@link Integer#MIN_VALUE})
+     */
+    public int max() {
+        return max;
+    }
+
+    /**
+     * 平均を取得します。
+     * @return 平均 (要素がない場合は 0)
+     */
+    public double average() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "IntStatistics{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + ", average=" + average() + "}";
+    }
+}
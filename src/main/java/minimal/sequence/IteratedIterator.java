@@ -0,0 +1,40 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.Iterator;
+
+/**
+ * 初期値に関数を繰り返し適用した値を際限なく生成するイテレーターを表します。
+ */
+final class IteratedIterator<T> implements Iterator<T> {
+    private final Function<? super T, ? extends T> function;
+    private T next;
+    private boolean isFirst = true;
+
+    public IteratedIterator(T seed, Function<? super T, ? extends T> function) {
+        this.next = seed;
+        this.function = function;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    @Override
+    public T next() {
+        // 次の要素は要求されるまで計算しない
+        if (isFirst) {
+            isFirst = false;
+        } else {
+            next = function.apply(next);
+        }
+        return next;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
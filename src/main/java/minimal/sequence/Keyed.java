@@ -0,0 +1,22 @@
+package minimal.sequence;
+
+/**
+ * 比較値と元の位置を添えた要素を表します。比較値, 元の位置の順に比較するため、この順序で並べ替えると安定ソートになります。
+ */
+final class Keyed<T, C extends Comparable<C>> implements Comparable<Keyed<T, C>> {
+    final T item;
+    final C key;
+    final long index;
+
+    Keyed(T item, C key, long index) {
+        this.item = item;
+        this.key = key;
+        this.index = index;
+    }
+
+    @Override
+    public int compareTo(Keyed<T, C> other) {
+        int compared = key.compareTo(other.key);
+        return compared != 0 ? compared : index < other.index ? -1 : index == other.index ? 0 : 1;
+    }
+}
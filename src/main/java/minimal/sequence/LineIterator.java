@@ -0,0 +1,47 @@
+package minimal.sequence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link BufferedReader} から 1 行ずつ読み取るイテレーターを表します。行は要求されるまで読み取りません。
+ */
+final class LineIterator implements Iterator<String> {
+    private final BufferedReader reader;
+    private String next;
+    private boolean finished = false;
+
+    public LineIterator(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = reader.readLine();
+            } catch (IOException e) {
+                throw new SequenceException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,52 @@
+package minimal.sequence;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 添字アクセス可能なリストの一部分を、開始位置と最大要素数で参照するビューを表します。
+ * {@link List#subList} と異なり要素数を固定しないため、参照のたびに元のリストの要素数を読み直し、元のリストへの変更も反映されます。
+ */
+final class ListSlice<T> extends AbstractList<T> implements RandomAccess {
+    private final List<T> list;
+    private final int from;
+    private final int limit;
+
+    private ListSlice(List<T> list, int from, int limit) {
+        this.list = list;
+        this.from = from;
+        this.limit = limit;
+    }
+
+    /**
+     * リストの一部分のビューを作成します。ビューのビューは入れ子にせず、元のリストを直接参照します。
+     * @param list  添字アクセス可能なリスト
+     * @param from  開始位置
+     * @param limit 最大要素数
+     * @param <T>   要素の型
+     * @return      ビュー
+     */
+    static <T> ListSlice<T> of(List<T> list, int from, int limit) {
+        if (list instanceof ListSlice) {
+            ListSlice<T> slice = (ListSlice<T>) list;
+            int offset = (int) Math.min((long) slice.from + from, Integer.MAX_VALUE);
+            return new ListSlice<T>(slice.list, offset, Math.min(Math.max(slice.limit - from, 0), limit));
+        }
+        return new ListSlice<T>(list, from, limit);
+    }
+
+    @Override
+    public T get(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return list.get(from + index);
+    }
+
+    @Override
+    public int size() {
+        return Math.min(Math.max(list.size() - from, 0), limit);
+    }
+}
@@ -0,0 +1,217 @@
+package minimal.sequence;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * long 値をキーとする読み取り専用のマップを表します ({@link Sequence#toLongMap}, {@link Sequence#groupByLong})。
+ * キーをボックス化せず、エントリーごとのオブジェクトも作成しません。
+ * キーと値は追加した順に配列へ格納し、ハッシュ表 (オープンアドレス法, 線形探索) には配列のインデックスのみを格納します。
+ * そのため、列挙の順序はキーを最初に追加した順です。
+ * @param <V> 値の型
+ */
+public final class LongMap<V> {
+    private long[] keys = new long[8];
+    private Object[] values = new Object[8];
+    private int size;
+    private int[] table = new int[16];  // 格納した位置 + 1 (空の場合は 0)
+
+    LongMap() {
+    }
+
+    /**
+     * キーに値を関連付けます。キーが既に含まれている場合は値を置き換えます (列挙の順序は変わりません)。
+     * @param key   キー
+     * @param value 値
+     */
+    void put(long key, V value) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        for (int stored; (stored = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (keys[stored - 1] == key) {
+                values[stored - 1] = value;
+                return;
+            }
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * 指定された位置の値を置き換えます。
+     * @param index 位置
+     * @param value 値
+     */
+    void setValueAt(int index, Object value) {
+        values[index] = value;
+    }
+
+    /**
+     * 要素数を取得します。
+     * @return 要素数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 空かどうかを調べます。
+     * @return 空の場合は true, そうでない場合は false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 指定されたキーが含まれているかどうかを調べます。
+     * @param key キー
+     * @return    キーが含まれている場合は true, そうでない場合は false
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * 指定されたキーに関連付けられた値を取得します。
+     * @param key キー
+     * @return    値 (キーが含まれていない場合は null)
+     */
+    public V get(long key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * 指定されたキーに関連付けられた値を取得します。
+     * @param key          キー
+     * @param defaultValue キーが含まれていない場合の値
+     * @return             値
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : (V) values[index];
+    }
+
+    /**
+     * 指定された位置 (追加した順の 0 から始まる位置) のキーを、ボックス化せずに取得します。
+     * @param index 位置
+     * @return      キー
+     */
+    public long keyAt(int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * 指定された位置 (追加した順の 0 から始まる位置) の値を取得します。
+     * @param index 位置
+     * @return      値
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        checkIndex(index);
+        return (V) values[index];
+    }
+
+    /**
+     * キーのシーケンスを返します。シーケンスはこのマップのビューです。
+     * @return キーのシーケンス
+     */
+    public Sequence<Long> keys() {
+        return Sequence.of(new View<Long>() {
+            @Override
+            public Long get(int index) {
+                return keyAt(index);
+            }
+        });
+    }
+
+    /**
+     * 値のシーケンスを返します。シーケンスはこのマップのビューです。
+     * @return 値のシーケンス
+     */
+    public Sequence<V> values() {
+        return Sequence.of(new View<V>() {
+            @Override
+            public V get(int index) {
+                return valueAt(index);
+            }
+        });
+    }
+
+    /**
+     * キーと値のペアのシーケンスを返します。シーケンスはこのマップのビューです。
+     * @return キーと値のペアのシーケンス
+     */
+    public Sequence<Pair<Long, V>> entries() {
+        return Sequence.of(new View<Pair<Long, V>>() {
+            @Override
+            public Pair<Long, V> get(int index) {
+                return Pair.of(keyAt(index), valueAt(index));
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? "" : ", ").append(keys[i]).append('=').append(values[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+    private int indexOf(long key) {
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask, stored; (stored = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (keys[stored - 1] == key) {
+                return stored - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    private static int hash(long key) {
+        // 連続したキーが隣接するスロットへ集中しないよう、上位ビットを下位ビットへ混ぜる
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * マップの内容を変更できないリストとして参照するビューを表します。
+     */
+    private abstract class View<E> extends AbstractList<E> implements RandomAccess {
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package minimal.sequence;
+
+/**
+ * long 値の要素数, 合計, 最小値, 最大値を集計した統計を表します。値をボックス化せずに集計します。
+ * @see Accumulators#longStatistics(minimal.sequence.function.ToLongFunction)
+ */
+public final class LongStatistics {
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * 値を集計します。
+     * @param value 値
+     */
+    public void accept(long value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 他の統計を併合します。
+     * @param other 他の統計
+     * @return      このインスタンス
+     */
+    public LongStatistics combine(LongStatistics other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * 要素数を取得します。
+     * @return 要素数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 合計を取得します。
+     * @return 合計 (要素がない場合は 0)
+     */
+    public long sum() {
+        return sum;
+    }
+
+    /**
+     * 最小値を取得します。
+     * @return 最小値 (要素がない場合は {@link Long#MAX_VALUE})
+     */
+    public long min() {
+        return min;
+    }
+
+    /**
+     * 最大値を取得します。
+     * @return 最大値 (要素がない場合は {@link Long#MIN_VALUE})
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * 平均を取得します。
+     * @return 平均 (要素がない場合は 0)
+     */
+    public double average() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "LongStatistics{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + ", average=" + average() + "}";
+    }
+}
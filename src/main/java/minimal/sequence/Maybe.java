@@ -241,6 +241,22 @@ public final class Maybe<T> implements Serializable, Iterable<T> {
         return this == o || (o instanceof Maybe && Objects.equals(((Maybe) o).object, object));
     }
 
+    /**
+     * 直列化の際にコンパクトな直列化形式 ({@link SerializedForm}) に置き換えます。
+     * @return 直列化形式
+     */
+    private Object writeReplace() {
+        return this == nothing ? new SerializedForm(SerializedForm.NOTHING, null, null) : new SerializedForm(SerializedForm.JUST, object, null);
+    }
+
+    /**
+     * 既定の直列化形式から復元した場合に、値が存在しない Maybe コンテナを唯一の {@link #nothing} に置き換えます。
+     * @return 復元したインスタンス
+     */
+    private Object readResolve() {
+        return Maybe.of(object);
+    }
+
     /**
      * ハッシュコードを取得します。
      * @return ハッシュコード
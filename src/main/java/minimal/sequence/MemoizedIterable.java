@@ -0,0 +1,68 @@
+package minimal.sequence;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 元のシーケンスを高々 1 回だけ列挙して、取り出した要素を記憶するシーケンスを表します。
+ * 要素は列挙されるまで取り出さず、2 回目以降の列挙では記憶した要素を返します。
+ */
+final class MemoizedIterable<T> implements Iterable<T> {
+    private final List<T> buffer = new ArrayList<T>();
+    private Iterable<T> source;         // 列挙を開始したら null
+    private Iterator<T> sourceIterator; // 列挙し終えたら null
+
+    MemoizedIterable(Iterable<T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return fill(index);
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                synchronized (MemoizedIterable.this) {
+                    return buffer.get(index++);
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 指定された位置の要素を記憶していなければ元のシーケンスから取り出します。
+     * @param index 位置
+     * @return      指定された位置に要素がある場合は true, そうでない場合は false
+     */
+    private synchronized boolean fill(int index) {
+        if (index < buffer.size()) {
+            return true;
+        }
+        if (source != null) {
+            sourceIterator = source.iterator();
+            source = null;
+        }
+        if (sourceIterator != null && sourceIterator.hasNext()) {
+            buffer.add(sourceIterator.next());
+            return true;
+        }
+        sourceIterator = null;
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * 比較値の昇順に並んだ複数のイテレーターを、比較値の昇順の 1 つのイテレーターへマージするイテレーターを表します。
+ * 各イテレーターの先頭要素のヒープから最小の要素を取り出すため、要素数 n, イテレーター数 k に対して O(n log k) の時間と O(k) のメモリーを使用します。
+ * 比較値が等しい要素は前のイテレーターの要素を先に返します (安定)。
+ */
+final class MergingIterator<T, C extends Comparable<C>> implements Iterator<T> {
+    private final List<Iterator<? extends T>> sources;
+    private final Function<? super T, ? extends C> comparableSelector;
+    private final boolean distinct;
+    private PriorityQueue<Keyed<T, C>> heads;
+    private C lastKey;
+    private boolean any;
+
+    /**
+     * インスタンスを初期化します。
+     * @param sources            比較値の昇順に並んだイテレーター
+     * @param comparableSelector 比較値への射影関数
+     * @param distinct           比較値が等しい要素を最初の 1 つにまとめる場合は true
+     */
+    MergingIterator(List<Iterator<? extends T>> sources, Function<? super T, ? extends C> comparableSelector, boolean distinct) {
+        this.sources = sources;
+        this.comparableSelector = comparableSelector;
+        this.distinct = distinct;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (heads == null) {
+            heads = new PriorityQueue<Keyed<T, C>>(Math.max(sources.size(), 1));
+            for (int i = 0; i < sources.size(); i++) {
+                advance(i, null);
+            }
+        }
+        if (distinct && any) {
+            while (!heads.isEmpty() && heads.peek().key.compareTo(lastKey) == 0) {
+                pollAndAdvance();
+            }
+        }
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Keyed<T, C> head = pollAndAdvance();
+        lastKey = head.key;
+        any = true;
+        return head.item;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private Keyed<T, C> pollAndAdvance() {
+        Keyed<T, C> head = heads.poll();
+        advance((int) head.index, head.key);
+        return head;
+    }
+
+    /**
+     * イテレーターの次の要素をヒープへ追加します。
+     * @param source  イテレーターの番号
+     * @param lastKey イテレーターから直前に取り出した要素の比較値 (最初の要素の場合は null)
+     */
+    private void advance(int source, C lastKey) {
+        Iterator<? extends T> iterator = sources.get(source);
+        if (iterator.hasNext()) {
+            T item = iterator.next();
+            C key = comparableSelector.apply(item);
+            if (lastKey != null && key.compareTo(lastKey) < 0) {
+                throw new IllegalStateException("sequence " + source + " is not sorted: " + key + " after " + lastKey);
+            }
+            heads.add(new Keyed<T, C>(item, key, source));
+        }
+    }
+}
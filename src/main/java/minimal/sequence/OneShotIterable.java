@@ -0,0 +1,24 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+
+/**
+ * 一度だけ列挙できるシーケンスを表します。2 回目以降の列挙は空のシーケンスとして扱わずに例外を送出します。
+ */
+final class OneShotIterable<T> implements Iterable<T> {
+    private Iterator<T> iterator;
+
+    OneShotIterable(Iterator<T> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public synchronized Iterator<T> iterator() {
+        if (iterator == null) {
+            throw new IllegalStateException("single-pass sequence has already been iterated");
+        }
+        Iterator<T> result = iterator;
+        iterator = null;
+        return result;
+    }
+}
@@ -50,6 +50,14 @@ public final class Pair<F, S> implements Serializable {
         return second;
     }
 
+    /**
+     * 直列化の際にコンパクトな直列化形式 ({@link SerializedForm}) に置き換えます。
+     * @return 直列化形式
+     */
+    private Object writeReplace() {
+        return new SerializedForm(SerializedForm.PAIR, first, second);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
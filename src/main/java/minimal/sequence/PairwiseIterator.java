@@ -0,0 +1,45 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 隣接する 2 つの要素のペアを要素とするイテレーターを表します。直前の要素のみを保持します。
+ */
+final class PairwiseIterator<T> implements Iterator<Pair<T, T>> {
+    private final Iterator<T> source;
+    private T previous;
+    private boolean started;
+
+    PairwiseIterator(Iterator<T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            if (!source.hasNext()) {
+                return false;
+            }
+            started = true;
+            previous = source.next();
+        }
+        return source.hasNext();
+    }
+
+    @Override
+    public Pair<T, T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T current = source.next();
+        Pair<T, T> pair = Pair.of(previous, current);
+        previous = current;
+        return pair;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
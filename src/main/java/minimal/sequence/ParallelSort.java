@@ -0,0 +1,146 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 比較値への射影と並べ替えを {@link ForkJoinPool} で並列に行うユーティリティを表します。
+ * 要素を区間に分割して各区間の比較値を並列に求め、各区間を並べ替えた後に隣接する区間をマージします (並列マージソート)。
+ * 比較値と元の位置の順に比較するため ({@link Keyed})、結果は安定であり逐次の並べ替えと一致します。
+ */
+final class ParallelSort {
+    /** 並列に並べ替える要素数の既定の下限 (4 並列の場合に各タスクが {@link #MIN_GRANULARITY} の 2 倍以上の要素を受け持つ要素数) */
+    static final int DEFAULT_THRESHOLD = 1 << 16;
+    /** 1 つのタスクで逐次に処理する要素数の下限 */
+    private static final int MIN_GRANULARITY = 1 << 13;
+
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    private ParallelSort() {
+    }
+
+    static void setThreshold(int threshold) {
+        ParallelSort.threshold = threshold;
+    }
+
+    /**
+     * 指定された要素数を並列に並べ替えるかどうかを判定します。並列度が 1 の環境では並列に並べ替えません。
+     * @param size 要素数
+     * @return     並列に並べ替える場合は true
+     */
+    static boolean isWorthwhile(int size) {
+        return size >= threshold && Pool.INSTANCE.getParallelism() > 1;
+    }
+
+    /**
+     * 各要素に比較値と元の位置を添えて、比較値の昇順 (同値の場合は元の順) に並べ替えます。
+     * 射影関数は各要素に 1 回だけ、複数のスレッドから並列に適用されます。
+     * @param items              要素
+     * @param comparableSelector 比較値への射影関数
+     * @param <T>                要素の型
+     * @param <C>                比較値の型
+     * @return                   並べ替えた要素
+     */
+    static <T, C extends Comparable<C>> Keyed<T, C>[] sort(List<T> items, Function<? super T, ? extends C> comparableSelector) {
+        ForkJoinPool pool = Pool.INSTANCE;
+        int size = items.size();
+        int granularity = Math.max(size / (pool.getParallelism() * 4), MIN_GRANULARITY);
+        Keyed<T, C>[] keyed = newKeyedArray(size);
+        pool.invoke(new KeyingTask<T, C>(items, comparableSelector, keyed, 0, size, granularity));
+        pool.invoke(new SortingTask<T, C>(keyed, ParallelSort.<T, C>newKeyedArray(size), 0, size, granularity));
+        return keyed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, C extends Comparable<C>> Keyed<T, C>[] newKeyedArray(int size) {
+        return (Keyed<T, C>[]) new Keyed<?, ?>[size];
+    }
+
+    /**
+     * 並べ替えに用いる共有のプールを表します (初めて利用する時点で作成します)。ワーカースレッドはデーモンスレッドです。
+     */
+    private static final class Pool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+    /**
+     * 区間の各要素に比較値と元の位置を添えるタスクを表します。
+     */
+    private static final class KeyingTask<T, C extends Comparable<C>> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<T> items;
+        private final Function<? super T, ? extends C> comparableSelector;
+        private final Keyed<T, C>[] keyed;
+        private final int from;
+        private final int to;
+        private final int granularity;
+
+        KeyingTask(List<T> items, Function<? super T, ? extends C> comparableSelector, Keyed<T, C>[] keyed, int from, int to, int granularity) {
+            this.items = items;
+            this.comparableSelector = comparableSelector;
+            this.keyed = keyed;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= granularity) {
+                for (int i = from; i < to; i++) {
+                    T item = items.get(i);
+                    keyed[i] = new Keyed<T, C>(item, comparableSelector.apply(item), i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new KeyingTask<T, C>(items, comparableSelector, keyed, from, middle, granularity), new KeyingTask<T, C>(items, comparableSelector, keyed, middle, to, granularity));
+        }
+    }
+
+    /**
+     * 区間を並べ替えるタスクを表します。区間を 2 つに分けて並列に並べ替えた後、作業領域を用いてマージします。
+     */
+    private static final class SortingTask<T, C extends Comparable<C>> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Keyed<T, C>[] keyed;
+        private final Keyed<T, C>[] work;
+        private final int from;
+        private final int to;
+        private final int granularity;
+
+        SortingTask(Keyed<T, C>[] keyed, Keyed<T, C>[] work, int from, int to, int granularity) {
+            this.keyed = keyed;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= granularity) {
+                Arrays.sort(keyed, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortingTask<T, C>(keyed, work, from, middle, granularity), new SortingTask<T, C>(keyed, work, middle, to, granularity));
+            if (keyed[middle - 1].compareTo(keyed[middle]) <= 0) {
+                // 既に並んでいる
+                return;
+            }
+            System.arraycopy(keyed, from, work, from, middle - from);
+            int left = from;
+            int right = middle;
+            int i = from;
+            while (left < middle && right < to) {
+                keyed[i++] = work[left].compareTo(keyed[right]) <= 0 ? work[left++] : keyed[right++];
+            }
+            System.arraycopy(work, left, keyed, i, middle - left);
+        }
+    }
+}
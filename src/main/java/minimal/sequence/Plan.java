@@ -0,0 +1,34 @@
+package minimal.sequence;
+
+/**
+ * シーケンスを派生させた操作 (論理的な実行計画の 1 段) を表します。
+ * 後続の操作を追加する際に直前の操作と組み合わせて、より効率の良い操作の連鎖へ書き換えるために利用します。
+ * 書き換えは要素を列挙する前 (シーケンスの構築時) に行われるため、列挙時の負荷はかかりません。
+ */
+final class Plan {
+    /**
+     * 操作の種類を表します。
+     */
+    enum Operator {
+        /** 射影 (引数は射影関数) */
+        MAP,
+        /** 抽出 (引数は条件) */
+        FILTER,
+        /** 先頭から指定数の抽出 (引数は要素数) */
+        TAKE,
+        /** 先頭から指定数の除外 (引数は要素数) */
+        SKIP,
+        /** 並べ替え (引数は並べ替え {@link SortedIterable}) */
+        SORT
+    }
+
+    final Operator operator;
+    final Sequence<?> upstream;
+    final Object argument;
+
+    Plan(Operator operator, Sequence<?> upstream, Object argument) {
+        this.operator = operator;
+        this.upstream = upstream;
+        this.argument = argument;
+    }
+}
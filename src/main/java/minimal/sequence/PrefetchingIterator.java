@@ -0,0 +1,297 @@
+package minimal.sequence;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 上流のイテレーターを別スレッド (生産者) で先読みして、リングバッファーを介して要素を受け取るイテレーターを表します。
+ * 先読みは最初に要素を取り出す際に開始します。
+ * 生産者で発生した例外は、それまでに先読みした要素を取り出した後に消費者のスレッドで再スローします。
+ * 生産者はバッファーが満杯になると実行器のスレッドを手放して中断し、消費者がバッファーを半分まで取り出した時点 (または空になった時点) で
+ * 新たなタスクとして再開します。そのため、close しないまま列挙を打ち切っても、生産者が実行器のスレッドを占有し続けることはありません。
+ * {@link #close()} した場合は生産者を直ちに停止します。
+ * 実行器がタスクを受け付けなかった場合は、その例外を上流の例外と同様に消費者のスレッドで再スローします。
+ */
+final class PrefetchingIterator<T> implements Iterator<T>, Closeable {
+    /**
+     * 待機 1 回あたりの最大時間を表します。起床の通知を取りこぼした場合も、この時間が経過すると状態を確認し直します。
+     */
+    static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /**
+     * 専用の実行器のスレッドが、次のタスクを待つ最大時間 (秒) を表します。
+     */
+    static final long KEEP_ALIVE_SECONDS = 10;
+
+    private final Iterator<T> source;
+    private final int capacity;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private Channel<T> channel;
+    private Producer<T> producer;
+    private boolean closed;
+
+    /**
+     * インスタンスを初期化します。
+     * @param source       上流のイテレーター
+     * @param capacity     バッファーの容量
+     * @param executor     生産者を実行する実行器
+     * @param ownsExecutor 列挙を終えるか close した時点で実行器を停止する (このイテレーター専用の実行器である) 場合は true
+     */
+    PrefetchingIterator(Iterator<T> source, int capacity, Executor executor, boolean ownsExecutor) {
+        this.source = source;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * 1 つの列挙専用の実行器を作成します。生産者を再開するたびに同じデーモンスレッドを使い回します。
+     * スレッドは {@link #KEEP_ALIVE_SECONDS} 秒の間タスクがなければ終了するため、close しないまま列挙を打ち切ってもスレッドは残りません。
+     * @return 実行器
+     */
+    static ExecutorService newDedicatedExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sequence-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (channel == null) {
+            channel = new Channel<T>(capacity);
+            producer = new Producer<T>(channel, source);
+            submitProducer();
+        }
+        while (channel.buffer.isEmpty()) {
+            if (channel.done) {
+                // 完了を確認した後に残りの要素を確認する (完了の前に追加された要素を取りこぼさない)
+                if (!channel.buffer.isEmpty()) {
+                    break;
+                }
+                Throwable failure = channel.failure;
+                close();
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure != null) {
+                    throw new SequenceException(failure);
+                }
+                return false;
+            }
+            // 中断の通知を取りこぼした場合も、バッファーが空の間は生産者を再開する
+            resumeProducer();
+            channel.consumer = Thread.currentThread();
+            if (channel.buffer.isEmpty() && !channel.done) {
+                LockSupport.parkNanos(channel, WAIT_NANOS);
+            }
+            channel.consumer = null;
+            if (Thread.interrupted()) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new SequenceException("interrupted while waiting for prefetched elements", new InterruptedException());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = channel.buffer.take();
+        if (channel.buffer.size() <= channel.buffer.capacity() / 2) {
+            resumeProducer();
+        }
+        return item;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 先読みを中止して生産者を停止します。以降は要素を取り出せません。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (channel != null) {
+            channel.cancel();
+            while (!channel.buffer.isEmpty()) {
+                channel.buffer.take();
+            }
+        }
+        if (ownsExecutor) {
+            // 実行中の生産者は中止を確認して終了する
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * 中断している生産者を新たなタスクとして再開します。
+     */
+    private void resumeProducer() {
+        if (channel.suspended.get() && channel.suspended.compareAndSet(true, false)) {
+            submitProducer();
+        }
+    }
+
+    /**
+     * 生産者のタスクを実行器へ投入します。実行器がタスクを受け付けなかった場合は、その例外で生産を終えたものとします。
+     */
+    private void submitProducer() {
+        try {
+            executor.execute(producer);
+        } catch (RuntimeException e) {
+            channel.failure = e;
+            channel.done = true;
+        }
+    }
+
+    /**
+     * 生産者と消費者が共有する状態を表します。生産者がイテレーターを参照しないよう、イテレーターとは別のオブジェクトとします。
+     */
+    private static final class Channel<T> {
+        final SpscRingBuffer<T> buffer;
+        final AtomicBoolean suspended = new AtomicBoolean();    // バッファーが満杯のため生産者が中断している
+        volatile boolean done;
+        volatile Throwable failure;
+        volatile boolean cancelled;
+        volatile Thread consumer;   // 待機中の消費者スレッド
+        private Thread running;     // 実行中の生産者スレッド
+
+        Channel(int capacity) {
+            this.buffer = new SpscRingBuffer<T>(capacity);
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (running != null) {
+                // 上流の I/O などで待機している生産者を起こす
+                running.interrupt();
+            }
+        }
+
+        synchronized boolean begin() {
+            if (cancelled) {
+                return false;
+            }
+            running = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void end() {
+            if (running != Thread.currentThread()) {
+                // 中断の直後に再開したタスクが既に実行している
+                return;
+            }
+            running = null;
+            if (cancelled) {
+                // 中止のための割り込みを実行器のスレッドへ持ち越さない
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * バッファーが満杯のため生産者を中断します。中断を記録した後にバッファーが空いていれば中断を取り消します。
+         * @return 中断した (または消費者が既に再開のタスクを投入した) 場合は true, 中断を取り消して生産を続ける場合は false
+         */
+        boolean suspend() {
+            suspended.set(true);
+            return buffer.isFull() || !suspended.compareAndSet(true, false);
+        }
+
+        void wakeConsumer() {
+            Thread thread = consumer;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * 上流のイテレーターから要素を取り出してリングバッファーへ追加する生産者を表します。
+     * バッファーが満杯の場合は、追加できなかった要素を保持したままタスクを終えて、再開されたタスクで追加します。
+     */
+    private static final class Producer<T> implements Runnable {
+        private final Channel<T> channel;
+        private final Iterator<T> source;
+        private T held;             // バッファーへ追加できずに保持している要素
+        private boolean holding;
+
+        Producer(Channel<T> channel, Iterator<T> source) {
+            this.channel = channel;
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            if (!channel.begin()) {
+                channel.done = true;
+                return;
+            }
+            boolean suspended = false;
+            try {
+                suspended = produce();
+            } catch (Throwable t) {
+                if (!channel.cancelled) {
+                    channel.failure = t;
+                }
+            } finally {
+                if (!suspended) {
+                    channel.done = true;
+                    channel.wakeConsumer();
+                }
+                channel.end();
+            }
+        }
+
+        /**
+         * バッファーが満杯になるか、上流の要素がなくなるまで要素を追加します。
+         * @return バッファーが満杯のため中断した場合は true, 上流の要素がなくなったか中止された場合は false
+         */
+        private boolean produce() {
+            while (!channel.cancelled) {
+                if (!holding) {
+                    if (!source.hasNext()) {
+                        return false;
+                    }
+                    held = source.next();
+                    holding = true;
+                }
+                if (channel.buffer.offer(held)) {
+                    held = null;
+                    holding = false;
+                    channel.wakeConsumer();
+                } else if (channel.suspend()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package minimal.sequence;
+
+import minimal.sequence.function.BiFunction;
+import minimal.sequence.function.Function;
+import minimal.sequence.function.Predicate;
+import minimal.sequence.metrics.StageListener;
+
+import java.util.Iterator;
+
+/**
+ * 計測対象のシーケンスの段に仕掛ける計測器を表します。
+ * 利用者の関数とイテレーターの生成を包んで、処理した要素数と所要時間をリスナーへ通知します。
+ * 計測しない場合 (計測器が null の場合) はシーケンスの構築時に元の関数をそのまま返すため、列挙時の負荷はかかりません。
+ */
+final class Probe {
+    private final String name;
+    private final StageListener listener;
+    private final int depth;
+
+    Probe(String name, StageListener listener, int depth) {
+        this.name = name;
+        this.listener = listener;
+        this.depth = depth;
+    }
+
+    /**
+     * 後続の段に仕掛ける計測器を取得します。
+     * @return 計測器
+     */
+    Probe next() {
+        return new Probe(name, listener, depth + 1);
+    }
+
+    /**
+     * 後続の段の名前を取得します。名前は "シーケンスの名前/段の番号:操作" の形式です。
+     * @param probe    計測器 (計測しない場合は null)
+     * @param operator 操作の名前
+     * @return         段の名前 (計測しない場合は null)
+     */
+    static String stage(Probe probe, String operator) {
+        return probe == null ? null : probe.name + "/" + (probe.depth + 1) + ":" + operator;
+    }
+
+    /**
+     * イテレーターの生成回数と、イテレーターから取り出した要素数および所要時間を通知するシーケンスを返します。
+     * @param stage 段の名前
+     * @param items シーケンス
+     * @param <T>   要素の型
+     * @return      計測するシーケンス
+     */
+    <T> Iterable<T> source(final String stage, final Iterable<T> items) {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                listener.iteratorCreated(stage);
+                final Iterator<T> iterator = items.iterator();
+                return new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        long start = System.nanoTime();
+                        T next = iterator.next();
+                        listener.processed(stage, 1, 1, System.nanoTime() - start);
+                        return next;
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * イテレーターの生成回数を通知するシーケンスを返します。
+     * @param stage 段の名前
+     * @param items シーケンス
+     * @param <T>   要素の型
+     * @return      計測するシーケンス
+     */
+    <T> Iterable<T> iterable(final String stage, final Iterable<T> items) {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                listener.iteratorCreated(stage);
+                return items.iterator();
+            }
+        };
+    }
+
+    /**
+     * 射影関数の呼び出しを 1 要素の入出力として通知する射影関数を返します。
+     * @param probe  計測器 (計測しない場合は null)
+     * @param stage  段の名前
+     * @param mapper 射影関数
+     * @param <T>    引数の型
+     * @param <R>    射影結果の型
+     * @return       計測する射影関数 (計測しない場合は元の射影関数)
+     */
+    static <T, R> Function<? super T, ? extends R> function(Probe probe, final String stage, final Function<? super T, ? extends R> mapper) {
+        if (probe == null) {
+            return mapper;
+        }
+        final StageListener listener = probe.listener;
+        return new Function<T, R>() {
+            @Override
+            public R apply(T t) {
+                long start = System.nanoTime();
+                R result = mapper.apply(t);
+                listener.processed(stage, 1, 1, System.nanoTime() - start);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 関数の呼び出しを 1 要素の入出力として通知する関数を返します。
+     * @param probe    計測器 (計測しない場合は null)
+     * @param stage    段の名前
+     * @param function 関数
+     * @param <T>      1 番目の引数の型
+     * @param <U>      2 番目の引数の型
+     * @param <R>      結果の型
+     * @return         計測する関数 (計測しない場合は元の関数)
+     */
+    static <T, U, R> BiFunction<? super T, ? super U, ? extends R> biFunction(Probe probe, final String stage, final BiFunction<? super T, ? super U, ? extends R> function) {
+        if (probe == null) {
+            return function;
+        }
+        final StageListener listener = probe.listener;
+        return new BiFunction<T, U, R>() {
+            @Override
+            public R apply(T t, U u) {
+                long start = System.nanoTime();
+                R result = function.apply(t, u);
+                listener.processed(stage, 1, 1, System.nanoTime() - start);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 条件の判定を 1 要素の入力と、条件を満たした場合は 1 要素の出力として通知する条件を返します。
+     * @param probe     計測器 (計測しない場合は null)
+     * @param stage     段の名前
+     * @param predicate 条件
+     * @param <T>       引数の型
+     * @return          計測する条件 (計測しない場合は元の条件)
+     */
+    static <T> Predicate<? super T> predicate(Probe probe, final String stage, final Predicate<? super T> predicate) {
+        if (probe == null) {
+            return predicate;
+        }
+        final StageListener listener = probe.listener;
+        return new Predicate<T>() {
+            @Override
+            public boolean test(T t) {
+                long start = System.nanoTime();
+                boolean result = predicate.test(t);
+                listener.processed(stage, 1, result ? 1 : 0, System.nanoTime() - start);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 射影関数の呼び出しを 1 要素の入力として、射影結果のシーケンスから取り出した要素を出力として通知する射影関数を返します。
+     * @param probe  計測器 (計測しない場合は null)
+     * @param stage  段の名前
+     * @param mapper 要素からシーケンスへの射影関数
+     * @param <T>    引数の型
+     * @param <R>    射影結果となるシーケンスの要素の型
+     * @return       計測する射影関数 (計測しない場合は元の射影関数)
+     */
+    static <T, R> Function<? super T, ? extends Iterable<R>> flatFunction(Probe probe, final String stage, final Function<? super T, ? extends Iterable<R>> mapper) {
+        if (probe == null) {
+            return mapper;
+        }
+        final StageListener listener = probe.listener;
+        return new Function<T, Iterable<R>>() {
+            @Override
+            public Iterable<R> apply(T t) {
+                long start = System.nanoTime();
+                final Iterable<R> result = mapper.apply(t);
+                listener.processed(stage, 1, 0, System.nanoTime() - start);
+                return new Iterable<R>() {
+                    @Override
+                    public Iterator<R> iterator() {
+                        final Iterator<R> iterator = result.iterator();
+                        return new Iterator<R>() {
+                            @Override
+                            public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public R next() {
+                                R next = iterator.next();
+                                listener.processed(stage, 0, 1, 0);
+                                return next;
+                            }
+
+                            @Override
+                            public void remove() {
+                                iterator.remove();
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+}
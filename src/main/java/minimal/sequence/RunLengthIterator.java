@@ -0,0 +1,52 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 隣接する等しい要素の連を、要素と連の長さのペアへ置き換えたイテレーターを表します。
+ * 上流の要素を 1 つだけ先読みして連の終わりを判定するため、連の長さによらず O(1) のメモリーで動作します。
+ */
+final class RunLengthIterator<T> implements Iterator<Pair<T, Integer>> {
+    private final Iterator<T> source;
+    private boolean hasPending;
+    private T pending;
+    private boolean started;
+
+    RunLengthIterator(Iterator<T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            advance();
+        }
+        return hasPending;
+    }
+
+    @Override
+    public Pair<T, Integer> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = pending;
+        int length = 1;
+        for (advance(); hasPending && Objects.equals(pending, item); advance()) {
+            length++;
+        }
+        return Pair.of(item, length);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void advance() {
+        hasPending = source.hasNext();
+        pending = hasPending ? source.next() : null;
+    }
+}
@@ -0,0 +1,41 @@
+package minimal.sequence;
+
+import minimal.sequence.function.BiFunction;
+
+import java.util.Iterator;
+
+/**
+ * 初期値と各要素を順に累積関数へ適用して、途中経過の累積値を要素とするイテレーターを表します。最初の要素は初期値です。
+ */
+final class ScannedIterator<T, R> implements Iterator<R> {
+    private final Iterator<T> source;
+    private final BiFunction<? super R, ? super T, ? extends R> accumulator;
+    private R accumulated;
+    private boolean isFirst = true;
+
+    public ScannedIterator(Iterator<T> source, R seed, BiFunction<? super R, ? super T, ? extends R> accumulator) {
+        this.source = source;
+        this.accumulated = seed;
+        this.accumulator = accumulator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return isFirst || source.hasNext();
+    }
+
+    @Override
+    public R next() {
+        if (isFirst) {
+            isFirst = false;
+        } else {
+            accumulated = accumulator.apply(accumulated, source.next());
+        }
+        return accumulated;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -2,23 +2,69 @@ package minimal.sequence;
 
 import minimal.sequence.function.BiFunction;
 import minimal.sequence.function.Consumer;
+import minimal.sequence.function.DoubleConsumer;
+import minimal.sequence.function.DoubleFoldFunction;
 import minimal.sequence.function.Function;
+import minimal.sequence.function.IntFoldFunction;
+import minimal.sequence.function.LongConsumer;
+import minimal.sequence.function.LongFoldFunction;
 import minimal.sequence.function.Predicate;
 import minimal.sequence.function.Supplier;
+import minimal.sequence.function.ToDoubleFunction;
+import minimal.sequence.function.ToIntFunction;
+import minimal.sequence.function.ToLongFunction;
+import minimal.sequence.metrics.MetricsRegistry;
+import minimal.sequence.metrics.StageListener;
+import minimal.sequence.sketch.HeavyHitters;
+import minimal.sequence.sketch.HyperLogLog;
+import minimal.sequence.sketch.QuantileSketch;
 
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * シーケンスをラップして操作するためのユーティリティを表します。
  */
-public final class Sequence<T> implements Iterable<T> {
+public class Sequence<T> implements Iterable<T> {
     public static final Sequence empty = new Sequence<Object>(Collections.emptyList(), 0);
+    /**
+     * {@link #tee(int)} の共有バッファーの既定の容量を表します。
+     */
+    public static final int DEFAULT_TEE_CAPACITY = 1 << 16;
     private final Iterable<T> items;
     private Integer size;   // 要素数のキャッシュ
+    private final boolean infinite;
+    private final Probe probe;      // 計測しない場合は null
+    private final Plan plan;        // このシーケンスを派生させた操作 (書き換えの対象でない場合は null)
+    private int traversals;         // 列挙回数 (診断が有効な場合のみ数える)
+    private volatile Iterable<T> memoized;  // 診断機能が挟み込んだ記憶 (挟み込んでいない場合は null)
+    private static volatile MetricsRegistry metricsRegistry;
+    private static final List<Class<?>> FIXED_SIZE_LISTS = Arrays.<Class<?>>asList(Arrays.asList().getClass(), Collections.emptyList().getClass(), Collections.nCopies(1, null).getClass());   // 要素数が変わりえないリストのクラス
 
     private Sequence(Iterable<T> items, Integer size) {
+        this(items, size, false);
+    }
+
+    private Sequence(Iterable<T> items, Integer size, boolean infinite) {
+        this(items, size, infinite, null);
+    }
+
+    private Sequence(Iterable<T> items, Integer size, boolean infinite, Probe probe) {
+        this(items, size, infinite, probe, null);
+    }
+
+    Sequence(Iterable<T> items, Integer size, boolean infinite, Probe probe, Plan plan) {
         this.items = items;
         this.size = size;
+        this.infinite = infinite;
+        this.probe = probe;
+        this.plan = plan;
     }
 
     /**
@@ -125,13 +171,380 @@ public final class Sequence<T> implements Iterable<T> {
     }
 
     /**
-     * シーケンスを作成します。現状の実装では {@link Collections#list} を利用しているため先行評価となります。
+     * 一度だけ列挙できるシーケンスを作成します。要素は列挙されるまで取り出されません。
+     * 2 回目以降の列挙 (要素数の取得後の列挙なども含む) では {@link IllegalStateException} を送出します。
      * @param items 要素
      * @param <T>   要素の型
      * @return      シーケンス
      */
     public static <T> Sequence<T> of(Enumeration<T> items) {
-        return items == null ? empty : of(Collections.list(items));
+        return items == null ? empty : of(new EnumerationIterator<T>(items));
+    }
+
+    /**
+     * 一度だけ列挙できるシーケンスを作成します。要素は列挙されるまで取り出されません。
+     * 2 回目以降の列挙 (要素数の取得後の列挙なども含む) では {@link IllegalStateException} を送出します。
+     * @param items 要素
+     * @param <T>   要素の型
+     * @return      シーケンス
+     */
+    public static <T> Sequence<T> of(Iterator<T> items) {
+        return items == null ? empty : of(new OneShotIterable<T>(items));
+    }
+
+    /**
+     * カーソルを前進させながら値を読み取る、一度だけ列挙できるシーケンスを作成します。カーソルは列挙されるまで前進させません。
+     * カーソルが送出した検査例外は {@link SequenceException} に包んで送出します。
+     * 2 回目以降の列挙では {@link IllegalStateException} を送出します。
+     * @param cursor カーソル
+     * @param <T>    要素の型
+     * @return       シーケンス
+     */
+    public static <T> Sequence<T> of(Cursor<? extends T> cursor) {
+        return cursor == null ? empty : of(new CursorIterator<T>(cursor));
+    }
+
+    /**
+     * 文字ストリームの各行を要素とする、一度だけ列挙できるシーケンスを作成します。行は列挙されるまで読み取りません。
+     * 読み取り中の {@link java.io.IOException} は {@link SequenceException} に包んで送出します。ストリームは閉じません。
+     * 2 回目以降の列挙では {@link IllegalStateException} を送出します。
+     * @param reader 文字ストリーム
+     * @return       行のシーケンス
+     */
+    public static Sequence<String> lines(Reader reader) {
+        return reader == null ? Sequence.<String>of() : of(new LineIterator(reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader)));
+    }
+
+    /**
+     * 文字列を区切り文字で分割した、各部分のビューのシーケンスを作成します。部分は文字をコピーせずに元の文字列を参照します ({@link CharSlice})。
+     * 正規表現は用いず、区切り文字が連続する場合や先頭, 末尾にある場合は空の部分を返します (区切り文字が n 個の場合は n + 1 個の部分になります)。
+     * {@link CharBuffer} は現在の位置から上限までを分割します。
+     * @param text      文字列
+     * @param delimiter 区切り文字
+     * @return          部分のシーケンス
+     */
+    public static Sequence<CharSlice> split(CharSequence text, char delimiter) {
+        return split(text, String.valueOf(delimiter));
+    }
+
+    /**
+     * 文字列を区切り文字列で分割した、各部分のビューのシーケンスを作成します。部分は文字をコピーせずに元の文字列を参照します ({@link CharSlice})。
+     * 区切り文字列は正規表現ではなくそのまま探索し、区切り文字列が連続する場合や先頭, 末尾にある場合は空の部分を返します。
+     * {@link CharBuffer} は現在の位置から上限までを分割します。
+     * @param text      文字列
+     * @param delimiter 区切り文字列
+     * @return          部分のシーケンス
+     */
+    public static Sequence<CharSlice> split(CharSequence text, final CharSequence delimiter) {
+        if (delimiter == null || delimiter.length() == 0) {
+            throw new IllegalArgumentException("delimiter must not be empty");
+        }
+        if (text == null) {
+            return of();
+        }
+        final CharSequence view = stableViewOf(text);
+        return of(new Iterable<CharSlice>() {
+            @Override
+            public Iterator<CharSlice> iterator() {
+                return new SplittingIterator(view, delimiter);
+            }
+        });
+    }
+
+    /**
+     * 文字列を空白文字の連続で区切った、空でない各部分 (トークン) のビューのシーケンスを作成します。
+     * トークンは文字をコピーせずに元の文字列を参照します ({@link CharSlice})。{@link CharBuffer} は現在の位置から上限までを区切ります。
+     * @param text 文字列
+     * @return     トークンのシーケンス
+     */
+    public static Sequence<CharSlice> tokens(CharSequence text) {
+        return tokens(text, null);
+    }
+
+    /**
+     * 文字列を区切り文字の連続で区切った、空でない各部分 (トークン) のビューのシーケンスを作成します。
+     * トークンは文字をコピーせずに元の文字列を参照します ({@link CharSlice})。{@link CharBuffer} は現在の位置から上限までを区切ります。
+     * @param text       文字列
+     * @param delimiters 区切り文字の集合 (null の場合は空白文字で区切ります)
+     * @return           トークンのシーケンス
+     */
+    public static Sequence<CharSlice> tokens(CharSequence text, final String delimiters) {
+        if (delimiters != null && delimiters.isEmpty()) {
+            throw new IllegalArgumentException("delimiters must not be empty");
+        }
+        if (text == null) {
+            return of();
+        }
+        final CharSequence view = stableViewOf(text);
+        return of(new Iterable<CharSlice>() {
+            @Override
+            public Iterator<CharSlice> iterator() {
+                return new TokenizingIterator(view, delimiters);
+            }
+        });
+    }
+
+    /**
+     * 文字列のビューを返します。{@link CharBuffer} は位置を変更されても添字がずれないよう、現在の位置から上限までを共有するバッファーを返します。
+     * @param text 文字列
+     * @return     ビュー
+     */
+    private static CharSequence stableViewOf(CharSequence text) {
+        return text instanceof CharBuffer ? ((CharBuffer) text).slice() : text;
+    }
+
+    /**
+     * キューから要素を取り出しながら列挙する、一度だけ列挙できるシーケンスを作成します。キューが空になった時点で終了します。
+     * 2 回目以降の列挙では {@link IllegalStateException} を送出します。
+     * @param queue キュー
+     * @param <T>   要素の型
+     * @return      シーケンス
+     */
+    public static <T> Sequence<T> drain(Queue<T> queue) {
+        return queue == null ? Sequence.<T>of() : of(new DrainingIterator<T>(queue, -1));
+    }
+
+    /**
+     * キューから要素を取り出しながら列挙する、一度だけ列挙できるシーケンスを作成します。キューが空の場合は指定時間だけ要素の追加を待ち、それでも空の場合に終了します。
+     * 待っている間にスレッドが割り込まれた場合は、割り込み状態を保ったまま {@link SequenceException} を送出します。
+     * 2 回目以降の列挙では {@link IllegalStateException} を送出します。
+     * @param queue   キュー
+     * @param timeout 要素の追加を待つ時間
+     * @param unit    待ち時間の単位
+     * @param <T>     要素の型
+     * @return        シーケンス
+     */
+    public static <T> Sequence<T> drain(BlockingQueue<T> queue, long timeout, TimeUnit unit) {
+        return queue == null ? Sequence.<T>of() : of(new DrainingIterator<T>(queue, Math.max(unit.toNanos(timeout), 0)));
+    }
+
+    /**
+     * 開始値から終了値の直前まで 1 ずつ増加する整数のシーケンスを作成します。
+     * @param start 開始値
+     * @param end   終了値 (この値自体は含まない)
+     * @return      整数のシーケンス
+     */
+    public static Sequence<Integer> range(int start, int end) {
+        return range(start, end, 1);
+    }
+
+    /**
+     * 開始値から終了値の直前まで指定された増分ずつ変化する整数のシーケンスを作成します。
+     * 要素数の取得, {@link #take}, {@link #skip}, {@link #contains} は要素を列挙せずに O(1) で処理されます。
+     * @param start 開始値
+     * @param end   終了値 (この値自体は含まない)
+     * @param step  増分 (負の値も可)
+     * @return      整数のシーケンス
+     * @throws IllegalArgumentException 増分が 0 の場合
+     */
+    public static Sequence<Integer> range(int start, int end, int step) {
+        return of(IntRange.of(start, end, step));
+    }
+
+    /**
+     * 初期値に関数を繰り返し適用した値を要素とする無限シーケンスを作成します。
+     * 要素は列挙されるまで計算されません。{@link #take} や {@link #takeWhile} で有限にして利用してください。
+     * @param seed     初期値 (最初の要素)
+     * @param function 前の要素から次の要素を算出する関数
+     * @param <T>      要素の型
+     * @return         無限シーケンス
+     */
+    public static <T> Sequence<T> iterate(final T seed, final Function<? super T, ? extends T> function) {
+        return new Sequence<T>(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new IteratedIterator<T>(seed, function);
+            }
+        }, null, true);
+    }
+
+    /**
+     * サプライヤーが生成する値を要素とする無限シーケンスを作成します。
+     * 要素は列挙されるまで生成されません。{@link #take} や {@link #takeWhile} で有限にして利用してください。
+     * @param supplier サプライヤー
+     * @param <T>      要素の型
+     * @return         無限シーケンス
+     */
+    public static <T> Sequence<T> generate(final Supplier<? extends T> supplier) {
+        return new Sequence<T>(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new GeneratedIterator<T>(supplier);
+            }
+        }, null, true);
+    }
+
+    /**
+     * 同じ値を指定された回数だけ繰り返すシーケンスを作成します。
+     * @param value 値
+     * @param count 繰り返し回数
+     * @param <T>   要素の型
+     * @return      シーケンス
+     */
+    public static <T> Sequence<T> repeat(T value, int count) {
+        return count <= 0 ? Sequence.<T>of() : of(Collections.nCopies(count, value));
+    }
+
+    /**
+     * 同じ値を際限なく繰り返す無限シーケンスを作成します。
+     * @param value 値
+     * @param <T>   要素の型
+     * @return      無限シーケンス
+     */
+    public static <T> Sequence<T> repeat(final T value) {
+        return generate(new Supplier<T>() {
+            @Override
+            public T get() {
+                return value;
+            }
+        });
+    }
+
+    /**
+     * 複数のシーケンスを連結したシーケンスを作成します。連結元のシーケンスはイテレーターが入れ子にならない連結シーケンスの木として保持されます。
+     * @param sequences 連結するシーケンス (null は無視します)
+     * @param <T>       要素の型
+     * @return          連結したシーケンス
+     */
+    @SafeVarargs
+    public static <T> Sequence<T> concat(Iterable<? extends T>... sequences) {
+        Sequence<T> result = of();
+        if (sequences != null) {
+            for (Iterable<? extends T> sequence : sequences) {
+                result = result.append(sequence);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 比較値の昇順に並んだ複数のシーケンスを、比較値の昇順の 1 つのシーケンスへマージします。
+     * マージは列挙しながら行うため、要素数 n, シーケンス数 k に対して O(n log k) の時間と O(k) のメモリーを使用します。
+     * 比較値が等しい要素は前のシーケンスの要素を先に返します。
+     * 昇順に並んでいないシーケンスを検出した場合は {@link IllegalStateException} をスローします。
+     * @param comparableSelector 比較値への射影関数
+     * @param sequences          比較値の昇順に並んだシーケンス (null は無視します)
+     * @param <T>                要素の型
+     * @param <C>                比較値の型
+     * @return                   マージしたシーケンス
+     */
+    @SafeVarargs
+    public static <T, C extends Comparable<C>> Sequence<T> mergeSorted(Function<? super T, ? extends C> comparableSelector, Iterable<? extends T>... sequences) {
+        return mergeSorted(comparableSelector, sequences == null ? null : Arrays.asList(sequences), false);
+    }
+
+    /**
+     * 比較値の昇順に並んだ複数のシーケンスを、比較値の昇順の 1 つのシーケンスへマージします。
+     * @param comparableSelector 比較値への射影関数
+     * @param sequences          比較値の昇順に並んだシーケンスのシーケンス (null は無視します)
+     * @param <T>                要素の型
+     * @param <C>                比較値の型
+     * @return                   マージしたシーケンス
+     * @see #mergeSorted(Function, Iterable[])
+     */
+    public static <T, C extends Comparable<C>> Sequence<T> mergeSorted(Function<? super T, ? extends C> comparableSelector, Iterable<? extends Iterable<? extends T>> sequences) {
+        return mergeSorted(comparableSelector, sequences, false);
+    }
+
+    /**
+     * 比較値の昇順に並んだ複数のシーケンスを、比較値の昇順の 1 つのシーケンスへマージします。
+     * 比較値が等しい要素は最初の 1 つ (前のシーケンスの要素) にまとめます。
+     * @param comparableSelector 比較値への射影関数
+     * @param sequences          比較値の昇順に並んだシーケンス (null は無視します)
+     * @param <T>                要素の型
+     * @param <C>                比較値の型
+     * @return                   マージしたシーケンス
+     * @see #mergeSorted(Function, Iterable[])
+     */
+    @SafeVarargs
+    public static <T, C extends Comparable<C>> Sequence<T> mergeSortedDistinct(Function<? super T, ? extends C> comparableSelector, Iterable<? extends T>... sequences) {
+        return mergeSorted(comparableSelector, sequences == null ? null : Arrays.asList(sequences), true);
+    }
+
+    private static <T, C extends Comparable<C>> Sequence<T> mergeSorted(final Function<? super T, ? extends C> comparableSelector, final Iterable<? extends Iterable<? extends T>> sequences, final boolean distinct) {
+        return sequences == null ? Sequence.<T>of() : of(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                List<Iterator<? extends T>> iterators = new ArrayList<Iterator<? extends T>>();
+                for (Iterable<? extends T> sequence : sequences) {
+                    if (sequence != null) {
+                        iterators.add(upstreamIteratorOf(sequence));
+                    }
+                }
+                return new MergingIterator<T, C>(iterators, comparableSelector, distinct);
+            }
+        });
+    }
+
+    /**
+     * 2 つのシーケンスを連結します。連結済みのシーケンスは区間をコピーせずに連結シーケンスの木の節として共有するため、連結は O(1) です。
+     * 要素数が変わりえない区間に限り、空の区間を省き、要素数を合計してキャッシュします。
+     * @param before 前半のシーケンス
+     * @param after  後半のシーケンス
+     * @param <T>    要素の型
+     * @return       連結したシーケンス
+     */
+    private static <T> Sequence<T> concatenate(Iterable<? extends T> before, Iterable<? extends T> after) {
+        Integer beforeSize = fixedSizeOf(before), afterSize = fixedSizeOf(after);
+        if (beforeSize != null && beforeSize == 0 && after instanceof Sequence) {
+            return Sequence.<T>widen((Sequence<? extends T>) after);
+        }
+        if (afterSize != null && afterSize == 0 && before instanceof Sequence) {
+            return Sequence.<T>widen((Sequence<? extends T>) before);
+        }
+        boolean infinite = before instanceof Sequence && ((Sequence<?>) before).infinite || after instanceof Sequence && ((Sequence<?>) after).infinite;
+        Integer size = beforeSize == null || afterSize == null || infinite ? null : beforeSize + afterSize;
+        return new Sequence<T>(new ConcatenatedIterable<T>(segmentOf(before), segmentOf(after), size), size, infinite);
+    }
+
+    /**
+     * 連結の区間として扱うシーケンスを取得します。連結済みのシーケンスは入れ子にしないよう、その連結シーケンスの木を返します。
+     * @param iterable シーケンス
+     * @return         区間
+     */
+    private static Iterable<?> segmentOf(Iterable<?> iterable) {
+        return iterable instanceof Sequence && ((Sequence<?>) iterable).items instanceof ConcatenatedIterable ? ((Sequence<?>) iterable).items : iterable;
+    }
+
+    /**
+     * 要素数が変わりえないシーケンスの要素数を取得します。
+     * 不変のコレクションや固定長のリスト、範囲のほか、そうした区間のみを連結したシーケンスが該当します。
+     * @param iterable シーケンス
+     * @return         要素数 (要素数が変わりうる場合や列挙しなければ分からない場合は null)
+     */
+    private static Integer fixedSizeOf(Iterable<?> iterable) {
+        Iterable<?> items = iterable instanceof Sequence ? ((Sequence<?>) iterable).items : iterable;
+        if (items instanceof ConcatenatedIterable) {
+            return ((ConcatenatedIterable<?>) items).fixedSize();
+        }
+        if (items instanceof ImmutableArrayList || items instanceof ImmutableArraySet || items instanceof IntRange || FIXED_SIZE_LISTS.contains(items.getClass())) {
+            return ((Collection<?>) items).size();
+        }
+        return null;
+    }
+
+    /**
+     * シーケンスの要素の型を上位の型として扱います。
+     * シーケンスは要素を追加する操作を持たないため、読み出す要素の型を上位の型に読み替えても型安全性は損なわれません。
+     * @param sequence シーケンス
+     * @param <T>      上位の要素の型
+     * @return         同じシーケンス
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Sequence<T> widen(Sequence<? extends T> sequence) {
+        return (Sequence<T>) sequence;
+    }
+
+    /**
+     * 要素を列挙せずに分かる範囲で現在の要素数を取得します。
+     * コレクションのシーケンスはコレクションの現在の要素数を、それ以外は要素数が変わりえないシーケンスに限り要素数を返します。
+     * 遅延評価のシーケンスのキャッシュした要素数は元のコレクションの変更で古くなりうるため用いません。
+     * @param iterable シーケンス
+     * @return         要素数 (列挙しなければ分からない場合は null)
+     */
+    private static Integer sizeOf(Iterable<?> iterable) {
+        Iterable<?> items = iterable instanceof Sequence ? ((Sequence<?>) iterable).items : iterable;
+        return items instanceof Collection ? Integer.valueOf(((Collection<?>) items).size()) : fixedSizeOf(items);
     }
 
     /**
@@ -140,11 +553,28 @@ public final class Sequence<T> implements Iterable<T> {
      * @param y シーケンス 2
      * @return  2 つのシーケンスの要素が順序も含めて一致する場合は true, 一致しない場合は false
      */
-    public static boolean equals(Iterable x, Iterable y) {
+    public static boolean equals(Iterable<?> x, Iterable<?> y) {
         if (x == y) {
             return true;
         }
-        Iterator xi = x.iterator(), yi = y.iterator();
+        Integer xSize = sizeOf(x), ySize = sizeOf(y);
+        if (xSize != null && ySize != null && !xSize.equals(ySize)) {
+            return false;
+        }
+        List<?> xList = randomAccessListOf(x), yList = randomAccessListOf(y);
+        if (xList != null && yList != null) {
+            int size = xList.size();
+            if (size != yList.size()) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!Objects.equals(xList.get(i), yList.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Iterator<?> xi = x.iterator(), yi = y.iterator();
         while (xi.hasNext() && yi.hasNext()) {
             if (!Objects.equals(xi.next(), yi.next())) {
                 return false;
@@ -159,9 +589,60 @@ public final class Sequence<T> implements Iterable<T> {
      */
     @Override
     public Iterator<T> iterator() {
+        return traverse(true);
+    }
+
+    /**
+     * 要素を列挙するイテレーターを生成します。すべての列挙はこのメソッドを経由します。
+     * 列挙の診断 ({@link TraversalDiagnostics}) が有効な場合は列挙回数を数えて、遅延評価のシーケンスの再評価を記録します。
+     * @param direct このシーケンスが直接列挙される場合は true, 下流のシーケンスの列挙に伴って列挙される場合は false
+     * @return       イテレーター
+     */
+    Iterator<T> traverse(boolean direct) {
+        Iterable<T> memoized = this.memoized;
+        if (memoized != null) {
+            return memoized.iterator();
+        }
+        TraversalDiagnostics.Policy policy = TraversalDiagnostics.policy;
+        if (policy != TraversalDiagnostics.Policy.OFF) {
+            int count;
+            synchronized (this) {
+                count = ++traversals;
+            }
+            if (count > 1 && !(items instanceof Collection)) {
+                TraversalDiagnostics.repeated();
+                // 上流と下流の両方に記憶を挟み込まないよう、直接列挙されたシーケンスにのみ挟み込む
+                if (policy == TraversalDiagnostics.Policy.CACHE && direct) {
+                    synchronized (this) {
+                        if (this.memoized == null) {
+                            this.memoized = new MemoizedIterable<T>(items);
+                        }
+                    }
+                    return this.memoized.iterator();
+                }
+            }
+        }
         return items.iterator();
     }
 
+    /**
+     * 列挙の診断が有効になってからの列挙回数を取得します。
+     * @return 列挙回数
+     */
+    synchronized int traversals() {
+        return traversals;
+    }
+
+    /**
+     * 上流のシーケンスとしてイテレーターを生成します。
+     * @param iterable 上流のシーケンス
+     * @param <E>      要素の型
+     * @return         イテレーター
+     */
+    private static <E> Iterator<E> upstreamIteratorOf(Iterable<E> iterable) {
+        return iterable instanceof Sequence ? ((Sequence<E>) iterable).traverse(false) : iterable.iterator();
+    }
+
     /**
      * 他のオブジェクトがこのオブジェクトと等しいかどうか調べます。
      * @param o 他のオブジェクト
@@ -169,7 +650,7 @@ public final class Sequence<T> implements Iterable<T> {
      */
     @Override
     public boolean equals(Object o) {
-        return o instanceof Sequence && equals(this, (Sequence) o);
+        return o instanceof Sequence && equals(this, (Sequence<?>) o);
     }
 
     /**
@@ -178,8 +659,19 @@ public final class Sequence<T> implements Iterable<T> {
      */
     @Override
     public int hashCode() {
+        if (items instanceof ImmutableArrayList) {
+            // 変更不可能なリストは同じ方法で求めたハッシュ値を記憶している
+            return items.hashCode();
+        }
         int hash = 1;
-        for (T item : items) {
+        List<T> list = randomAccessList();
+        if (list != null) {
+            for (int i = 0, size = list.size(); i < size; i++) {
+                hash = hash * 31 + Objects.hashCode(list.get(i));
+            }
+            return hash;
+        }
+        for (T item : this) {
             hash = hash * 31 + Objects.hashCode(item);
         }
         return hash;
@@ -190,17 +682,19 @@ public final class Sequence<T> implements Iterable<T> {
      * @return シーケンスが空の場合は true, そうでない場合は false
      */
     public boolean isEmpty() {
-        return !items.iterator().hasNext();
+        return !iterator().hasNext();
     }
 
     /**
      * 要素数を取得します。
      * @return 要素数
+     * @throws UnsupportedOperationException 無限シーケンスの場合
      */
     public int size() {
+        requireFinite();
         if (size == null) {
             int i = 0;
-            for (T ignored : items) {
+            for (T ignored : this) {
                 i++;
             }
             size = i;
@@ -214,7 +708,7 @@ public final class Sequence<T> implements Iterable<T> {
      * @return       このインスタンス
      */
     public Sequence<T> each(Consumer<? super T> action) {
-        for (T item : items) {
+        for (T item : this) {
             action.accept(item);
         }
         return this;
@@ -222,16 +716,41 @@ public final class Sequence<T> implements Iterable<T> {
 
     /**
      * 各要素に射影関数を適用します。
+     * 射影したシーケンスをさらに射影する場合は、2 つの射影関数を合成した 1 段の射影に書き換えます。
      * @param mapper 射影関数
      * @param <R>    射影結果の型
      * @return       射影結果のシーケンス
      */
-    public <R> Sequence<R> map(final Function<? super T, ? extends R> mapper) {
-        return new Sequence<R>(new Iterable<R>() {
+    public <R> Sequence<R> map(Function<? super T, ? extends R> mapper) {
+        if (plannedAs(Plan.Operator.MAP)) {
+            // map(f).map(g) => map(g . f)
+            return this.plannedUpstream().map(composite(this.<Function<Object, T>>plannedArgument(), mapper));
+        }
+        String stage = Probe.stage(probe, "map");
+        final Function<? super T, ? extends R> _mapper = Probe.function(probe, stage, mapper);
+        return derive(stage, new Iterable<R>() {
             public Iterator<R> iterator() {
-                return new MappedIterator<T, R>(items.iterator(), mapper);
+                return new MappedIterator<T, R>(traverse(false), _mapper);
+            }
+        }, size, infinite, new Plan(Plan.Operator.MAP, this, mapper));
+    }
+
+    /**
+     * 2 つの射影関数を合成します。
+     * @param first  先に適用する射影関数
+     * @param second 後に適用する射影関数
+     * @param <T>    射影元の型
+     * @param <U>    中間の型
+     * @param <R>    射影結果の型
+     * @return       合成した射影関数
+     */
+    private static <T, U, R> Function<T, R> composite(final Function<? super T, ? extends U> first, final Function<? super U, ? extends R> second) {
+        return new Function<T, R>() {
+            @Override
+            public R apply(T t) {
+                return second.apply(first.apply(t));
             }
-        }, size);
+        };
     }
 
     /**
@@ -242,7 +761,7 @@ public final class Sequence<T> implements Iterable<T> {
      * @return        射影結果
      */
     public <R> R match(Supplier<? extends R> ifEmpty, BiFunction<? super T, ? super Sequence<T>, ? extends R> ifAny) {
-        Iterator<T> iterator = items.iterator();
+        Iterator<T> iterator = iterator();
         return iterator.hasNext() ? ifAny.apply(iterator.next(), rest()) : ifEmpty.get();
     }
 
@@ -252,26 +771,41 @@ public final class Sequence<T> implements Iterable<T> {
      * @param <R>    射影結果となるシーケンスの要素の型
      * @return       射影結果の要素を連結したシーケンス
      */
-    public <R> Sequence<R> flatMap(final Function<? super T, ? extends Iterable<R>> mapper) {
-        return of(new Iterable<R>() {
+    public <R> Sequence<R> flatMap(Function<? super T, ? extends Iterable<R>> mapper) {
+        String stage = Probe.stage(probe, "flatMap");
+        final Function<? super T, ? extends Iterable<R>> _mapper = Probe.flatFunction(probe, stage, mapper);
+        return derive(stage, new Iterable<R>() {
             @Override
             public Iterator<R> iterator() {
-                return new FlatMappedIterator<T, R>(items.iterator(), mapper);
+                return new FlatMappedIterator<T, R>(traverse(false), _mapper);
             }
-        });
+        }, null, infinite);
     }
 
     /**
      * 条件を満たす要素のみ抽出します。
+     * 抽出したシーケンスからさらに抽出する場合は、2 つの条件の論理積を条件とする 1 段の抽出に書き換えます。
      * @param predicate 条件
      * @return          条件を満たす要素のシーケンス
      */
     public Sequence<T> filter(final Predicate<? super T> predicate) {
-        return of(new Iterable<T>() {
+        if (plannedAs(Plan.Operator.FILTER)) {
+            // filter(p).filter(q) => filter(p && q)
+            final Predicate<? super T> previous = plannedArgument();
+            return this.<T>plannedUpstream().filter(new Predicate<T>() {
+                @Override
+                public boolean test(T t) {
+                    return previous.test(t) && predicate.test(t);
+                }
+            });
+        }
+        String stage = Probe.stage(probe, "filter");
+        final Predicate<? super T> _predicate = Probe.predicate(probe, stage, predicate);
+        return derive(stage, new Iterable<T>() {
             public Iterator<T> iterator() {
-                return new FilteredIterator<T>(items.iterator(), predicate);
+                return new FilteredIterator<T>(traverse(false), _predicate);
             }
-        });
+        }, null, infinite, new Plan(Plan.Operator.FILTER, this, predicate));
     }
 
     /**
@@ -281,124 +815,873 @@ public final class Sequence<T> implements Iterable<T> {
      * @return    指定された型の要素を持つシーケンス
      */
     public <U> Sequence<U> ofClass(final Class<U> cls) {
-        return filter(new Predicate<T>() {
+        String stage = Probe.stage(probe, "ofClass");
+        final Predicate<? super T> _predicate = Probe.predicate(probe, stage, new Predicate<T>() {
             @Override
             public boolean test(T t) {
                 return cls.isInstance(t);
             }
-        }).map(new Function<T, U>() {
+        });
+        return derive(stage, new Iterable<U>() {
             @Override
-            public U apply(T t) {
-                return cls.cast(t);
+            @SuppressWarnings("unchecked")
+            public Iterator<U> iterator() {
+                // 抽出した要素はすべて U のインスタンスであるため、型変換の段を設けずに 1 段で抽出する
+                return (Iterator<U>) (Iterator<?>) new FilteredIterator<T>(traverse(false), _predicate);
             }
-        });
+        }, null, infinite);
     }
 
     /**
-     * 他のシーケンスとマージしたペアシーケンスを返します。
-     * @param sequence マージ対象シーケンス
-     * @param <U>      マージ対象シーケンスの要素の型
-     * @return         ペアシーケンス
+     * 重複する要素を除外します。最初に現れた要素を最初に現れた順に抽出します。
+     * 既出の要素を保持するため、異なる要素の数に比例するメモリーを使用します。
+     * @return 重複を除いたシーケンス
      */
-    public <U> Sequence<Pair<T, U>> zip(final Iterable<? extends U> sequence) {
-        return sequence == null ? empty : of(new Iterable<Pair<T, U>>() {
+    public Sequence<T> distinct() {
+        return derive(Probe.stage(probe, "distinct"), new Iterable<T>() {
             @Override
-            public Iterator<Pair<T, U>> iterator() {
-                return new ZippedIterator<T, U>(items.iterator(), sequence.iterator());
+            public Iterator<T> iterator() {
+                final HashSet<T> seen = new HashSet<T>();
+                return new FilteredIterator<T>(traverse(false), new Predicate<T>() {
+                    @Override
+                    public boolean test(T t) {
+                        return seen.add(t);
+                    }
+                });
             }
-        });
+        }, null, infinite);
     }
 
     /**
-     * 他のシーケンスとマージしたペアシーケンスを返します。
-     * @param sequence マージ対象シーケンス
-     * @param <U>      マージ対象シーケンスの要素の型
-     * @return         ペアシーケンス
+     * 隣接する要素のうち直前の要素とキーが等しい要素を除外します。{@link #distinct()} と異なり、直前の要素のキーのみを保持します。
+     * @param keySelector キーへの射影関数
+     * @param <K>         キーの型
+     * @return            直前の要素とキーが異なる要素のシーケンス
      */
-    @SafeVarargs
-    public final <U> Sequence<Pair<T, U>> zip(final U... sequence) {
-        return zip(sequence == null ? null : Arrays.asList(sequence));
+    public <K> Sequence<T> distinctUntilChanged(Function<? super T, ? extends K> keySelector) {
+        String stage = Probe.stage(probe, "distinctUntilChanged");
+        final Function<? super T, ? extends K> _keySelector = Probe.function(probe, stage, keySelector);
+        return derive(stage, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new FilteredIterator<T>(traverse(false), new Predicate<T>() {
+                    private boolean started;
+                    private K previous;
+
+                    @Override
+                    public boolean test(T t) {
+                        K key = _keySelector.apply(t);
+                        boolean changed = !started || !Objects.equals(key, previous);
+                        started = true;
+                        previous = key;
+                        return changed;
+                    }
+                });
+            }
+        }, null, infinite);
     }
 
     /**
-     * 先頭から条件を満たす限り要素を抽出します。条件を満たさない最初の要素以降の要素を除外します。
-     * @param predicate 条件
-     * @return          先頭から条件を満たしている間の要素のシーケンス
+     * 隣接する要素のうちキーが等しい連続した要素 (連) をまとめます。{@link #groupBy(Function)} と異なり、離れた位置にある同じキーの要素はまとめず、現在の連の要素のみを保持します。
+     * @param keySelector キーへの射影関数
+     * @param <K>         キーの型
+     * @return            連のキーと要素のリストのペアのシーケンス
      */
-    public Sequence<T> takeWhile(final Predicate<? super T> predicate) {
-        return of(new Iterable<T>() {
-            @Override
-            public Iterator<T> iterator() {
-                return new ConditionedTakingIterator<T>(items.iterator(), predicate);
-            }
-        });
+    public <K> Sequence<Pair<K, List<T>>> chunkBy(Function<? super T, ? extends K> keySelector) {
+        return chunkBy(keySelector, false);
     }
 
     /**
-     * 先頭から条件を満たす限り要素を除外します。条件を満たさない最初の要素以降の要素を抽出します。
-     * @param predicate 条件
-     * @return          先頭から条件を満たしている間の要素を除いたシーケンス
+     * 隣接する要素のうちキーが等しい連続した要素 (連) をまとめます。{@link #groupBy(Function)} と異なり、離れた位置にある同じキーの要素はまとめず、現在の連の要素のみを保持します。
+     * バッファーを再利用する場合は、すべての連で同じ変更不可能なリストを返し、その内容は次の連を取り出すと置き換わります。
+     * 連ごとにリストを割り当てないため、連を取り出すたびに処理を終える場合に使用します。
+     * @param keySelector キーへの射影関数
+     * @param reuseBuffer 連の要素のリストを再利用する場合は true
+     * @param <K>         キーの型
+     * @return            連のキーと要素のリストのペアのシーケンス
      */
-    public Sequence<T> skipWhile(final Predicate<? super T> predicate) {
-        return of(new Iterable<T>() {
+    public <K> Sequence<Pair<K, List<T>>> chunkBy(Function<? super T, ? extends K> keySelector, final boolean reuseBuffer) {
+        String stage = Probe.stage(probe, "chunkBy");
+        final Function<? super T, ? extends K> _keySelector = Probe.function(probe, stage, keySelector);
+        return derive(stage, new Iterable<Pair<K, List<T>>>() {
             @Override
-            public Iterator<T> iterator() {
-                return new ConditionedSkippingIterator<T>(items.iterator(), predicate);
+            public Iterator<Pair<K, List<T>>> iterator() {
+                return new ChunkingIterator<T, K>(traverse(false), _keySelector, reuseBuffer);
             }
-        });
+        }, null, infinite);
     }
 
     /**
-     * 先頭から指定数だけ要素を抽出します。
-     * @param count 抽出要素数
-     * @return      指定数要素のシーケンス
+     * 隣接する等しい要素の連を、要素と連の長さのペアへ置き換えます (連長圧縮)。連の長さによらず O(1) のメモリーで動作します。
+     * @return 要素と連の長さのペアのシーケンス
      */
-    public Sequence<T> take(int count) {
-        final int[] _count = new int[]{count};
-        return takeWhile(new Predicate<T>() {
+    public Sequence<Pair<T, Integer>> runLengthEncode() {
+        return derive(Probe.stage(probe, "runLengthEncode"), new Iterable<Pair<T, Integer>>() {
             @Override
-            public boolean test(T t) {
-                return --_count[0] >= 0;
+            public Iterator<Pair<T, Integer>> iterator() {
+                return new RunLengthIterator<T>(traverse(false));
             }
-        });
+        }, null, infinite);
     }
 
     /**
-     * 先頭から指定数だけ要素を除外します。
-     * @param count 抽出要素数
-     * @return      指定数要素のシーケンス
+     * 隣接する 2 つの要素のペアを要素とするシーケンスを返します。要素数が n の場合、ペアの数は n - 1 です。
+     * @return 隣接する要素のペアのシーケンス
      */
-    public Sequence<T> skip(int count) {
-        final int[] _count = new int[]{count};
-        return skipWhile(new Predicate<T>() {
+    public Sequence<Pair<T, T>> pairwise() {
+        return derive(Probe.stage(probe, "pairwise"), new Iterable<Pair<T, T>>() {
             @Override
-            public boolean test(T t) {
-                return --_count[0] >= 0;
+            public Iterator<Pair<T, T>> iterator() {
+                return new PairwiseIterator<T>(traverse(false));
             }
-        });
+        }, size == null ? null : Math.max(size - 1, 0), infinite);
     }
 
     /**
-     * 末尾へ要素を追加します。
-     * @param after 追加要素
-     * @return      シーケンス
+     * メモリー予算の範囲で重複する要素を除外します。
+     * 既出の要素がメモリー予算に収まる間は最初に現れた要素を最初に現れた順に抽出します。収まらなくなった場合は、
+     * ハッシュ値で要素を区画へ振り分けて一時ファイルへ退避し、区画を 1 つずつ読み戻して重複を除くため、以降の要素の順序は不定です。
+     * 一時ファイルは {@link #sortBy(Function, SpillOptions)} と同様に削除されます。
+     * @param options 退避の設定
+     * @return        重複を除いたシーケンス
      */
-    public Sequence<T> append(final Iterable<? extends T> after) {
-        return after == null ? this : of(new Iterable<T>() {
+    public Sequence<T> distinct(final SpillOptions<T> options) {
+        return derive(Probe.stage(probe, "distinct"), new Iterable<T>() {
+            @Override
             public Iterator<T> iterator() {
-                return new ConcatenatedIterator<T>(items.iterator(), after.iterator());
+                return new SpillingDistinctIterator<T>(traverse(false), options);
             }
-        });
+        }, null, infinite);
     }
 
     /**
-     * 末尾へ要素を追加します。
-     * @param after 追加要素
-     * @return      シーケンス
+     * 指定数の要素を無作為に抽出します (非復元抽出)。抽出した要素は元の順序で返します。要素数が指定数以下の場合はすべての要素を返します。
+     * 1 回の列挙で抽出し (リザーバー・サンプリング), 指定数に比例するメモリーのみを使用します。
+     * 添字アクセス可能なリスト ({@link RandomAccess}) のシーケンスでは、要素を列挙せずに添字を抽出します。
+     * @param count  抽出要素数
+     * @param random 乱数生成器
+     * @return       抽出した要素のシーケンス
+     * @throws UnsupportedOperationException 無限シーケンスの場合
      */
-    @SafeVarargs
-    public final Sequence<T> append(T... after) {
-        return append(after == null ? null : Arrays.asList(after));
+    public Sequence<T> sample(int count, Random random) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        if (count == 0) {
+            return of();
+        }
+        List<T> list = randomAccessList();
+        if (list != null) {
+            int size = list.size();
+            if (count >= size) {
+                return of(new ArrayList<T>(list));
+            }
+            // Floyd のアルゴリズムで重複しない添字を count 個抽出する
+            HashSet<Integer> chosen = new HashSet<Integer>();
+            for (int j = size - count; j < size; j++) {
+                int t = random.nextInt(j + 1);
+                chosen.add(chosen.contains(t) ? j : t);
+            }
+            Integer[] indices = chosen.toArray(new Integer[count]);
+            Arrays.sort(indices);
+            ArrayList<T> sampled = new ArrayList<T>(count);
+            for (int index : indices) {
+                sampled.add(list.get(index));
+            }
+            return of(sampled);
+        }
+        requireFinite();
+        // 次に置き換える要素までの間隔を生成して読み飛ばす (Li のアルゴリズム L)
+        final Object[] reservoir = new Object[count];
+        final long[] positions = new long[count];
+        Iterator<T> iterator = iterator();
+        int filled = 0;
+        long position = 0;
+        while (filled < count && iterator.hasNext()) {
+            reservoir[filled] = iterator.next();
+            positions[filled++] = position++;
+        }
+        if (filled == count) {
+            double w = Math.exp(Math.log(1 - random.nextDouble()) / count);
+            while (true) {
+                double gap = Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - w));
+                for (long skipping = gap >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) gap; skipping > 0 && iterator.hasNext(); skipping--) {
+                    iterator.next();
+                    position++;
+                }
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                int slot = random.nextInt(count);
+                reservoir[slot] = iterator.next();
+                positions[slot] = position++;
+                w *= Math.exp(Math.log(1 - random.nextDouble()) / count);
+            }
+        }
+        Integer[] slots = new Integer[filled];
+        for (int i = 0; i < filled; i++) {
+            slots[i] = i;
+        }
+        Arrays.sort(slots, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                return Long.compare(positions[x], positions[y]);
+            }
+        });
+        ArrayList<T> sampled = new ArrayList<T>(filled);
+        for (int slot : slots) {
+            @SuppressWarnings("unchecked")
+            T item = (T) reservoir[slot];
+            sampled.add(item);
+        }
+        return of(sampled);
+    }
+
+    /**
+     * 各要素を指定された確率で独立に抽出します (ベルヌーイ抽出)。抽出は列挙されるまで行われず、列挙ごとに異なる要素を抽出します。
+     * 次に抽出する要素までの間隔を生成して読み飛ばすため、乱数の生成回数は抽出する要素数に比例します。
+     * @param probability 抽出する確率 (0 以上 1 以下)
+     * @return            抽出した要素のシーケンス
+     */
+    public Sequence<T> sampleFraction(double probability) {
+        return sampleFraction(probability, null);
+    }
+
+    /**
+     * 各要素を指定された確率で独立に抽出します (ベルヌーイ抽出)。抽出は列挙されるまで行われません。
+     * @param probability 抽出する確率 (0 以上 1 以下)
+     * @param random      乱数生成器 (null の場合は列挙ごとに作成します)
+     * @return            抽出した要素のシーケンス
+     * @see #sampleFraction(double)
+     */
+    public Sequence<T> sampleFraction(final double probability, final Random random) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("probability must be between 0 and 1: " + probability);
+        }
+        if (probability == 0) {
+            return of();
+        }
+        if (probability == 1) {
+            return this;
+        }
+        return derive(Probe.stage(probe, "sampleFraction"), new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new BernoulliSamplingIterator<T>(traverse(false), probability, random == null ? new Random() : random);
+            }
+        }, null, infinite);
+    }
+
+    /**
+     * 先頭から指定された間隔の要素 (添字が間隔の倍数の要素) を抽出します。
+     * 添字アクセス可能なリスト ({@link RandomAccess}) のシーケンスでは、読み飛ばす要素を列挙しないビューを返します。
+     * @param step 間隔
+     * @return     抽出した要素のシーケンス
+     */
+    public Sequence<T> everyNth(final int step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive: " + step);
+        }
+        if (step == 1) {
+            return this;
+        }
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return of(new StridedList<T>(list, step));
+        }
+        return derive(Probe.stage(probe, "everyNth"), new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new SteppingIterator<T>(traverse(false), step);
+            }
+        }, size == null ? null : size / step + (size % step == 0 ? 0 : 1), infinite);
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓で比較値が最小の (同値の場合は先に現れた) 要素を要素とするシーケンスを返します。
+     * 窓が要素で満たされてから要素ごとに 1 つずつ出力するため、要素数が窓の幅より少ない場合は空のシーケンスになります。
+     * 比較値が単調に並ぶ両端キューで更新するため、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+     * @param window             窓の幅
+     * @param comparableSelector 比較値への射影関数
+     * @param <C>                比較値の型
+     * @return                   各窓の最小の要素のシーケンス
+     */
+    public <C extends Comparable<C>> Sequence<T> windowedMin(int window, Function<? super T, ? extends C> comparableSelector) {
+        return windowedMinOrMax(window, comparableSelector, true);
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓で比較値が最大の (同値の場合は先に現れた) 要素を要素とするシーケンスを返します。
+     * 窓が要素で満たされてから要素ごとに 1 つずつ出力するため、要素数が窓の幅より少ない場合は空のシーケンスになります。
+     * 比較値が単調に並ぶ両端キューで更新するため、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+     * @param window             窓の幅
+     * @param comparableSelector 比較値への射影関数
+     * @param <C>                比較値の型
+     * @return                   各窓の最大の要素のシーケンス
+     */
+    public <C extends Comparable<C>> Sequence<T> windowedMax(int window, Function<? super T, ? extends C> comparableSelector) {
+        return windowedMinOrMax(window, comparableSelector, false);
+    }
+
+    private <C extends Comparable<C>> Sequence<T> windowedMinOrMax(final int window, Function<? super T, ? extends C> comparableSelector, final boolean min) {
+        requireWindow(window);
+        String stage = Probe.stage(probe, min ? "windowedMin" : "windowedMax");
+        final Function<? super T, ? extends C> _comparableSelector = Probe.function(probe, stage, comparableSelector);
+        return derive(stage, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new WindowedExtremumIterator<T, C>(traverse(false), window, _comparableSelector, min);
+            }
+        }, windowedSize(window), infinite);
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の合計を要素とするシーケンスを返します。
+     * 窓が要素で満たされてから要素ごとに 1 つずつ出力するため、要素数が窓の幅より少ない場合は空のシーケンスになります。
+     * 合計は窓へ入る値と窓から外れる値の差分で (丸め誤差を補償しながら) 更新するため、窓の幅によらず 1 要素あたり O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @return         各窓の合計のシーケンス
+     * @see #windowedSumDouble(int, ToDoubleFunction, DoubleConsumer)
+     */
+    public Sequence<Double> windowedSum(int window, ToDoubleFunction<? super T> selector) {
+        return windowedSumOrAverage(window, selector, false);
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の平均を要素とするシーケンスを返します。
+     * 窓が要素で満たされてから要素ごとに 1 つずつ出力するため、要素数が窓の幅より少ない場合は空のシーケンスになります。
+     * 合計は窓へ入る値と窓から外れる値の差分で (丸め誤差を補償しながら) 更新するため、窓の幅によらず 1 要素あたり O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @return         各窓の平均のシーケンス
+     * @see #windowedAverageDouble(int, ToDoubleFunction, DoubleConsumer)
+     */
+    public Sequence<Double> windowedAverage(int window, ToDoubleFunction<? super T> selector) {
+        return windowedSumOrAverage(window, selector, true);
+    }
+
+    private Sequence<Double> windowedSumOrAverage(final int window, final ToDoubleFunction<? super T> selector, final boolean average) {
+        requireWindow(window);
+        return derive(Probe.stage(probe, average ? "windowedAverage" : "windowedSum"), new Iterable<Double>() {
+            @Override
+            public Iterator<Double> iterator() {
+                return new WindowedSumIterator<T>(traverse(false), window, selector, average);
+            }
+        }, windowedSize(window), infinite);
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の long 値の最小値を通知します。値はボックス化されません。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector long 値への射影関数
+     * @param consumer 各窓の最小値の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedMinLong(int window, ToLongFunction<? super T> selector, LongConsumer consumer) {
+        SlidingWindows.extremumLong(iterator(), requireWindow(window), selector, true, consumer);
+        return this;
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の long 値の最大値を通知します。値はボックス化されません。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector long 値への射影関数
+     * @param consumer 各窓の最大値の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedMaxLong(int window, ToLongFunction<? super T> selector, LongConsumer consumer) {
+        SlidingWindows.extremumLong(iterator(), requireWindow(window), selector, false, consumer);
+        return this;
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の最小値を通知します。値はボックス化されません。
+     * 値は {@link Double#compare(double, double)} の順序で比較します (NaN は最大の値として扱います)。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @param consumer 各窓の最小値の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedMinDouble(int window, ToDoubleFunction<? super T> selector, DoubleConsumer consumer) {
+        SlidingWindows.extremumDouble(iterator(), requireWindow(window), selector, true, consumer);
+        return this;
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の最大値を通知します。値はボックス化されません。
+     * 値は {@link Double#compare(double, double)} の順序で比較します (NaN は最大の値として扱います)。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @param consumer 各窓の最大値の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedMaxDouble(int window, ToDoubleFunction<? super T> selector, DoubleConsumer consumer) {
+        SlidingWindows.extremumDouble(iterator(), requireWindow(window), selector, false, consumer);
+        return this;
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の long 値の合計を通知します。値はボックス化されません。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector long 値への射影関数
+     * @param consumer 各窓の合計の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedSumLong(int window, ToLongFunction<? super T> selector, LongConsumer consumer) {
+        SlidingWindows.sumLong(iterator(), requireWindow(window), selector, consumer);
+        return this;
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の合計を通知します。値はボックス化されません。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @param consumer 各窓の合計の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedSumDouble(int window, ToDoubleFunction<? super T> selector, DoubleConsumer consumer) {
+        SlidingWindows.sumDouble(iterator(), requireWindow(window), selector, false, consumer);
+        return this;
+    }
+
+    /**
+     * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の平均を通知します。値はボックス化されません。
+     * 窓が要素で満たされてから要素ごとに 1 回ずつ通知し、窓の幅によらず 1 要素あたり O(1) で計算します。
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @param consumer 各窓の平均の通知先
+     * @return         このインスタンス
+     */
+    public Sequence<T> windowedAverageDouble(int window, ToDoubleFunction<? super T> selector, DoubleConsumer consumer) {
+        SlidingWindows.sumDouble(iterator(), requireWindow(window), selector, true, consumer);
+        return this;
+    }
+
+    private static int requireWindow(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        return window;
+    }
+
+    private Integer windowedSize(int window) {
+        return size == null ? null : Math.max(size - window + 1, 0);
+    }
+
+    /**
+     * 1 回の列挙で、条件を満たす要素と満たさない要素に分けます。
+     * @param predicate 条件
+     * @return          条件を満たす要素のシーケンスと満たさない要素のシーケンスのペア
+     * @throws UnsupportedOperationException 無限シーケンスの場合
+     */
+    public Pair<Sequence<T>, Sequence<T>> partition(Predicate<? super T> predicate) {
+        requireFinite();
+        ArrayList<T> matched = new ArrayList<T>();
+        ArrayList<T> unmatched = new ArrayList<T>();
+        for (T item : this) {
+            (predicate.test(item) ? matched : unmatched).add(item);
+        }
+        return Pair.of(of(matched), of(unmatched));
+    }
+
+    /**
+     * 1 回の列挙で、先頭から条件を満たしている間の要素と残りの要素に分けます。{@code Pair.of(takeWhile(predicate), skipWhile(predicate))} と同じ結果になります。
+     * どちらの要素も列挙されるまで取り出さず、上流を 1 回だけ列挙して取り出した要素を記憶します。条件は各要素に高々 1 回だけ適用します。
+     * 先頭の要素は列挙しながら取り出すため、無限シーケンスでも先頭の要素を列挙できます。残りの要素を列挙すると、先頭の要素を取り出し終えてから続きを取り出します
+     * (無限シーケンスで条件を満たし続ける場合、残りの要素の列挙は終わりません)。
+     * @param predicate 条件
+     * @return          先頭から条件を満たしている間の要素のシーケンスと残りの要素のシーケンスのペア
+     */
+    public Pair<Sequence<T>, Sequence<T>> span(Predicate<? super T> predicate) {
+        SpanningIterable<T> spanning = new SpanningIterable<T>(this, predicate);
+        return Pair.of(new Sequence<T>(spanning.prefix(), null, false), new Sequence<T>(spanning.rest(), null, infinite));
+    }
+
+    /**
+     * 1 回の上流の列挙を共有する、指定数の枝のシーケンスを返します。各枝は 1 回だけ列挙できます。
+     * 共有バッファーは最も先行している枝と最も遅れている枝の差の要素のみを保持します (列挙を開始していない枝は先頭にあるものとして扱います)。
+     * 共有バッファーの容量は {@link #DEFAULT_TEE_CAPACITY} であり、差が容量を超える場合は {@link IllegalStateException} をスローします。
+     * @param count 枝の数
+     * @return      枝のシーケンスのリスト
+     * @see #tee(int, int)
+     */
+    public List<Sequence<T>> tee(int count) {
+        return tee(count, DEFAULT_TEE_CAPACITY);
+    }
+
+    /**
+     * 1 回の上流の列挙を共有する、指定数の枝のシーケンスを返します。各枝は 1 回だけ列挙できます。
+     * 共有バッファーは最も先行している枝と最も遅れている枝の差の要素のみを保持し、差が容量を超える場合は {@link IllegalStateException} をスローします。
+     * 列挙を中断する枝はイテレーターを {@link java.io.Closeable#close()} すると、以降は遅れている枝として扱われません。
+     * @param count    枝の数
+     * @param capacity 共有バッファーの容量
+     * @return         枝のシーケンスのリスト
+     */
+    public List<Sequence<T>> tee(int count, int capacity) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        TeeBuffer<T> buffer = new TeeBuffer<T>(this, count, capacity);
+        List<Sequence<T>> branches = new ArrayList<Sequence<T>>(count);
+        for (int i = 0; i < count; i++) {
+            branches.add(new Sequence<T>(buffer.branch(i), size, infinite));
+        }
+        return branches;
+    }
+
+    /**
+     * 他のシーケンスとマージしたペアシーケンスを返します。
+     * @param sequence マージ対象シーケンス
+     * @param <U>      マージ対象シーケンスの要素の型
+     * @return         ペアシーケンス
+     */
+    public <U> Sequence<Pair<T, U>> zip(final Iterable<? extends U> sequence) {
+        if (sequence == null) {
+            return empty;
+        }
+        // 短い方に揃えるため、無限シーケンスになるのは両方が無限シーケンスの場合のみ
+        boolean otherInfinite = sequence instanceof Sequence && ((Sequence<?>) sequence).infinite;
+        Integer otherSize = sequence instanceof Sequence ? ((Sequence<?>) sequence).size : fixedSizeOf(sequence);
+        Integer zippedSize;
+        if (infinite || otherInfinite) {
+            zippedSize = infinite ? (otherInfinite ? null : otherSize) : size;
+        } else {
+            zippedSize = size == null || otherSize == null ? null : Integer.valueOf(Math.min(size, otherSize));
+        }
+        return derive(Probe.stage(probe, "zip"), new Iterable<Pair<T, U>>() {
+            @Override
+            public Iterator<Pair<T, U>> iterator() {
+                return new ZippedIterator<T, U>(traverse(false), upstreamIteratorOf(sequence));
+            }
+        }, zippedSize, infinite && otherInfinite);
+    }
+
+    /**
+     * 他のシーケンスとマージしたペアシーケンスを返します。
+     * @param sequence マージ対象シーケンス
+     * @param <U>      マージ対象シーケンスの要素の型
+     * @return         ペアシーケンス
+     */
+    @SafeVarargs
+    public final <U> Sequence<Pair<T, U>> zip(final U... sequence) {
+        return zip(sequence == null ? null : Arrays.asList(sequence));
+    }
+
+    /**
+     * 先頭から条件を満たす限り要素を抽出します。条件を満たさない最初の要素以降の要素を除外します。
+     * @param predicate 条件
+     * @return          先頭から条件を満たしている間の要素のシーケンス
+     */
+    public Sequence<T> takeWhile(Predicate<? super T> predicate) {
+        String stage = Probe.stage(probe, "takeWhile");
+        final Predicate<? super T> _predicate = Probe.predicate(probe, stage, predicate);
+        return derive(stage, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new ConditionedTakingIterator<T>(traverse(false), _predicate);
+            }
+        }, null, false);
+    }
+
+    /**
+     * 先頭から条件を満たす限り要素を除外します。条件を満たさない最初の要素以降の要素を抽出します。
+     * @param predicate 条件
+     * @return          先頭から条件を満たしている間の要素を除いたシーケンス
+     */
+    public Sequence<T> skipWhile(Predicate<? super T> predicate) {
+        String stage = Probe.stage(probe, "skipWhile");
+        final Predicate<? super T> _predicate = Probe.predicate(probe, stage, predicate);
+        return derive(stage, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new ConditionedSkippingIterator<T>(traverse(false), _predicate);
+            }
+        }, null, infinite);
+    }
+
+    /**
+     * 先頭から指定数だけ要素を抽出します。
+     * 添字アクセス可能なリスト ({@link RandomAccess}) のシーケンスでは元のリストを添字で参照する O(1) のビューを返します。ビューは元のリストへの変更も反映します。
+     * 抽出したシーケンスからの抽出は少ない方の要素数による 1 段の抽出に、射影したシーケンスからの抽出は抽出してからの射影に書き換えます。
+     * 並べ替えたシーケンスからの抽出は、すべての要素を並べ替えずに上位の要素のみを保持するヒープによる選択 (O(n log k)) に書き換えます。
+     * @param count 抽出要素数
+     * @return      指定数要素のシーケンス
+     */
+    public Sequence<T> take(final int count) {
+        if (count <= 0) {
+            return of();
+        }
+        if (plannedAs(Plan.Operator.TAKE)) {
+            // take(a).take(b) => take(min(a, b))
+            return this.<Integer>plannedArgument() <= count ? this : this.<T>plannedUpstream().take(count);
+        }
+        if (plannedAs(Plan.Operator.MAP)) {
+            // map(f).take(n) => take(n).map(f)
+            return this.plannedUpstream().take(count).map(this.<Function<Object, T>>plannedArgument());
+        }
+        if (plannedAs(Plan.Operator.SORT)) {
+            // sortBy(f).take(k) => 上位 k 要素の選択
+            SortedIterable<T, ?> sorted = plannedArgument();
+            return derive(null, sorted.limit(count), size == null ? null : Math.min(size, count), false, new Plan(Plan.Operator.TAKE, this, count));
+        }
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return of(sliceOf(list, 0, count));
+        }
+        return derive(Probe.stage(probe, "take"), new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new CountedTakingIterator<T>(traverse(false), count);
+            }
+        }, size == null ? null : Math.min(size, count), false, new Plan(Plan.Operator.TAKE, this, count));
+    }
+
+    /**
+     * 先頭から指定数だけ要素を除外します。
+     * 添字アクセス可能なリスト ({@link RandomAccess}) のシーケンスでは元のリストを添字で参照する O(1) のビューを返します。ビューは元のリストへの変更も反映します。
+     * 除外したシーケンスからの除外は要素数の和による 1 段の除外に、射影したシーケンスからの除外は除外してからの射影に書き換えます
+     * (除外する要素には射影関数を適用しません)。
+     * @param count 抽出要素数
+     * @return      指定数要素のシーケンス
+     */
+    public Sequence<T> skip(final int count) {
+        if (count <= 0) {
+            return this;
+        }
+        if (plannedAs(Plan.Operator.SKIP)) {
+            // skip(a).skip(b) => skip(a + b)
+            int previous = this.<Integer>plannedArgument();
+            return this.<T>plannedUpstream().skip(previous + count < 0 ? Integer.MAX_VALUE : previous + count);
+        }
+        if (plannedAs(Plan.Operator.TAKE)) {
+            // take(a).skip(b) => skip(b).take(a - b)
+            int previous = this.<Integer>plannedArgument();
+            return previous <= count ? Sequence.<T>of() : this.<T>plannedUpstream().skip(count).take(previous - count);
+        }
+        if (plannedAs(Plan.Operator.MAP)) {
+            // map(f).skip(n) => skip(n).map(f)
+            return this.plannedUpstream().skip(count).map(this.<Function<Object, T>>plannedArgument());
+        }
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return of(sliceOf(list, count, Integer.MAX_VALUE));
+        }
+        return derive(Probe.stage(probe, "skip"), new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new CountedSkippingIterator<T>(traverse(false), count);
+            }
+        }, size == null ? null : Math.max(size - count, 0), infinite, new Plan(Plan.Operator.SKIP, this, count));
+    }
+
+    /**
+     * 初期値と各要素を先頭から順に累積関数へ適用して、途中経過の累積値を要素とするシーケンスを返します。
+     * 最初の要素は初期値であり、累積値は列挙されるまで計算されません。
+     * @param seed        初期値
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @param <R>         累積値の型
+     * @return            累積値のシーケンス
+     */
+    public <R> Sequence<R> scan(final R seed, BiFunction<? super R, ? super T, ? extends R> accumulator) {
+        String stage = Probe.stage(probe, "scan");
+        final BiFunction<? super R, ? super T, ? extends R> _accumulator = Probe.biFunction(probe, stage, accumulator);
+        return derive(stage, new Iterable<R>() {
+            @Override
+            public Iterator<R> iterator() {
+                return new ScannedIterator<T, R>(traverse(false), seed, _accumulator);
+            }
+        }, size == null ? null : size + 1, infinite);
+    }
+
+    /**
+     * 上流のシーケンスを別スレッドで先読みするシーケンスを返します。
+     * 列挙を開始すると実行器で上流の要素を取り出してリングバッファーへ蓄え、列挙するスレッドはバッファーから要素を受け取ります。
+     * 上流の I/O や重い射影と下流の処理が並行して進むため、両者が 1 つのスレッドで交互に待つことがなくなります。
+     * 上流で発生した例外は、それまでに先読みした要素を受け取った後に列挙するスレッドで再スローします。
+     * 列挙を中断する場合はイテレーターを {@link java.io.Closeable#close()} すると先読みを直ちに停止します (上流のスレッドへ割り込みます)。
+     * バッファーが満杯の間は先読みのタスクを終えて実行器のスレッドを手放すため、{@link #take} などで close しないまま列挙を打ち切っても、
+     * 打ち切った列挙が実行器のスレッドを占有し続けることはありません。
+     * @param capacity バッファーの容量 (2 の累乗に切り上げます)
+     * @param executor 先読みを実行する実行器 (バッファーが満杯になるたびにタスクを終え、要素が取り出されると新たなタスクで再開します)
+     * @return         先読みするシーケンス
+     */
+    public Sequence<T> buffered(final int capacity, final Executor executor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        return prefetched(capacity, executor);
+    }
+
+    /**
+     * 上流のシーケンスを列挙ごとに作成するデーモンスレッドで先読みするシーケンスを返します。
+     * 1 回の列挙では、先読みを再開するたびに同じスレッドを使い回します。スレッドは列挙を終えるか close した時点で終了し、
+     * close しないまま列挙を打ち切った場合も、一定時間 (10 秒) 先読みを再開しなければ終了します。
+     * @param capacity バッファーの容量 (2 の累乗に切り上げます)
+     * @return         先読みするシーケンス
+     * @see #buffered(int, Executor)
+     */
+    public Sequence<T> buffered(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        return prefetched(capacity, null);
+    }
+
+    /**
+     * 先読みするシーケンスを返します。
+     * @param capacity バッファーの容量
+     * @param executor 先読みを実行する実行器 (null の場合は列挙ごとに専用の実行器を作成します)
+     * @return         先読みするシーケンス
+     */
+    private Sequence<T> prefetched(final int capacity, final Executor executor) {
+        return derive(Probe.stage(probe, "buffered"), new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                if (executor == null) {
+                    return new PrefetchingIterator<T>(traverse(false), capacity, PrefetchingIterator.newDedicatedExecutor(), true);
+                }
+                return new PrefetchingIterator<T>(traverse(false), capacity, executor, false);
+            }
+        }, size, infinite);
+    }
+
+    /**
+     * 計測を有効にしたシーケンスを返します。
+     * 返されたシーケンスとそこから map, flatMap, filter, takeWhile, skipWhile, take, skip, scan で派生したシーケンスの各段について、
+     * イテレーターの生成回数 (評価回数), 入出力した要素数, 利用者の関数の実行に要した時間をリスナーへ通知します。
+     * 段の名前は計測の起点が指定された名前, 以降の段が "名前/段の番号:操作" (例: "orders/1:map") となります。
+     * 計測を有効にしたシーケンスでは、添字アクセスなど要素を列挙しない最適化は行われません。
+     * @param name     シーケンスの名前
+     * @param listener リスナー
+     * @return         計測を有効にしたシーケンス
+     */
+    public Sequence<T> instrument(String name, StageListener listener) {
+        Probe probe = new Probe(name, listener, 0);
+        return new Sequence<T>(probe.source(name, items), size, infinite, probe);
+    }
+
+    /**
+     * {@link #setMetricsRegistry} で登録されたレジストリーのリスナーを用いて計測を有効にしたシーケンスを返します。
+     * レジストリーが登録されていない場合はこのインスタンスをそのまま返すため、計測のための負荷はかかりません。
+     * @param name シーケンスの名前
+     * @return     計測を有効にしたシーケンス
+     * @see #instrument(String, StageListener)
+     */
+    public Sequence<T> instrument(String name) {
+        MetricsRegistry registry = metricsRegistry;
+        return registry == null ? this : instrument(name, registry.listener(name));
+    }
+
+    /**
+     * {@link #instrument(String)} で利用するレジストリーを登録します。
+     * @param registry レジストリー (null の場合は計測を無効にします)
+     */
+    public static void setMetricsRegistry(MetricsRegistry registry) {
+        metricsRegistry = registry;
+    }
+
+    /**
+     * {@link #sortBy(Function)} が並列に並べ替える要素数の下限を設定します。既定値は 65536 です。
+     * 並列化が有利になる要素数は環境に依存するため、必要に応じて計測して設定します。
+     * 要素数が下限以上の場合は、比較値への射影と並べ替えを {@link java.util.concurrent.ForkJoinPool} で並列に行います
+     * (射影関数は複数のスレッドから呼び出されます)。並べ替えの結果は逐次に並べ替えた場合と同じです。
+     * 利用できるプロセッサーが 1 つの環境や、計測を有効にしたシーケンスでは並列に並べ替えません。
+     * @param threshold 要素数の下限 ({@link Integer#MAX_VALUE} の場合は並列に並べ替えません)
+     */
+    public static void setParallelSortThreshold(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        ParallelSort.setThreshold(threshold);
+    }
+
+    /**
+     * このシーケンスから派生したシーケンスを作成します。計測を有効にしている場合は派生したシーケンスにも計測を引き継ぎます。
+     * @param stage        派生したシーケンスの段の名前 (計測しない場合は null)
+     * @param derivedItems 派生したシーケンスの要素
+     * @param size         派生したシーケンスの要素数 (不明な場合は null)
+     * @param infinite     派生したシーケンスが無限シーケンスの場合は true
+     * @param <R>          派生したシーケンスの要素の型
+     * @return             派生したシーケンス
+     */
+    private <R> Sequence<R> derive(String stage, Iterable<R> derivedItems, Integer size, boolean infinite) {
+        return derive(stage, derivedItems, size, infinite, null);
+    }
+
+    /**
+     * このシーケンスから派生したシーケンスを作成します。計測を有効にしている場合は派生したシーケンスにも計測を引き継ぎます。
+     * @param stage        派生したシーケンスの段の名前 (計測しない場合は null)
+     * @param derivedItems 派生したシーケンスの要素
+     * @param size         派生したシーケンスの要素数 (不明な場合は null)
+     * @param infinite     派生したシーケンスが無限シーケンスの場合は true
+     * @param plan         派生させた操作 (書き換えの対象でない場合は null)
+     * @param <R>          派生したシーケンスの要素の型
+     * @return             派生したシーケンス
+     */
+    private <R> Sequence<R> derive(String stage, Iterable<R> derivedItems, Integer size, boolean infinite, Plan plan) {
+        return probe == null ? new Sequence<R>(derivedItems, size, infinite, null, plan) : new Sequence<R>(probe.iterable(stage, derivedItems), size, infinite, probe.next(), plan);
+    }
+
+    /**
+     * このシーケンスを派生させた操作が指定された操作であり、後続の操作と組み合わせて書き換えられるかどうかを調べます。
+     * 計測を有効にしている場合 (宣言した段ごとに計測するため) と、診断機能が記憶を挟み込んでいる場合 (記憶を迂回しないため) は書き換えません。
+     * @param operator 操作
+     * @return         書き換えられる場合は true, そうでない場合は false
+     */
+    private boolean plannedAs(Plan.Operator operator) {
+        return plan != null && plan.operator == operator && probe == null && memoized == null;
+    }
+
+    /**
+     * このシーケンスを派生させた操作の上流のシーケンスを取得します。
+     * @param <U> 上流のシーケンスの要素の型
+     * @return    上流のシーケンス
+     */
+    @SuppressWarnings("unchecked")
+    private <U> Sequence<U> plannedUpstream() {
+        return (Sequence<U>) plan.upstream;
+    }
+
+    /**
+     * このシーケンスを派生させた操作の引数を取得します。
+     * @param <A> 引数の型
+     * @return    引数
+     */
+    @SuppressWarnings("unchecked")
+    private <A> A plannedArgument() {
+        return (A) plan.argument;
+    }
+
+    /**
+     * 末尾へ要素を追加します。
+     * @param after 追加要素
+     * @return      シーケンス
+     */
+    public Sequence<T> append(final Iterable<? extends T> after) {
+        return after == null ? this : Sequence.<T>concatenate(this, after);
+    }
+
+    /**
+     * 末尾へ要素を追加します。
+     * @param after 追加要素
+     * @return      シーケンス
+     */
+    @SafeVarargs
+    public final Sequence<T> append(T... after) {
+        return append(after == null ? null : Arrays.asList(after));
     }
 
     /**
@@ -407,11 +1690,7 @@ public final class Sequence<T> implements Iterable<T> {
      * @return       シーケンス
      */
     public Sequence<T> prepend(final Iterable<? extends T> before) {
-        return before == null ? this : of(new Iterable<T>() {
-            public Iterator<T> iterator() {
-                return new ConcatenatedIterator<T>(before.iterator(), items.iterator());
-            }
-        });
+        return before == null ? this : Sequence.<T>concatenate(before, this);
     }
 
     /**
@@ -424,38 +1703,91 @@ public final class Sequence<T> implements Iterable<T> {
         return prepend(before == null ? null : Arrays.asList(before));
     }
 
+    /**
+     * 要素を記憶するシーケンスを返します。要素は最初に列挙されるまで取り出されず、
+     * 以降の列挙 (要素数の取得や {@link #toArrayList()} なども含む) では上流の処理を評価し直さずに記憶した要素を返します。
+     * 一度だけ列挙できるシーケンスを繰り返し列挙できるようにする場合にも利用できます。
+     * @return 要素を記憶するシーケンス
+     */
+    public Sequence<T> cached() {
+        if (items instanceof Collection || items instanceof MemoizedIterable) {
+            return this;
+        }
+        return new Sequence<T>(new MemoizedIterable<T>(items), size, infinite);
+    }
+
+    /**
+     * 要素を際限なく繰り返す無限シーケンスを返します。要素数が 0 と分かっている場合はこのインスタンスを返します。
+     * @return 無限シーケンス
+     */
+    public Sequence<T> cycle() {
+        if (size != null && size == 0) {
+            return this;
+        }
+        return new Sequence<T>(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new CycledIterator<T>(items);
+            }
+        }, null, true);
+    }
+
     /**
      * 最初の要素を返します。要素がない場合は nothing を返します。
+     * 並べ替えたシーケンスの最初の要素は、並べ替えずに比較値が最小の (同値の場合は先頭に近い) 要素として求めます。
      * @return 最初の要素
      */
     public Maybe<T> first() {
-        Iterator<T> iterator = items.iterator();
+        if (plannedAs(Plan.Operator.SORT)) {
+            // sortBy(f).first() => minBy(f)
+            return this.<SortedIterable<T, ?>>plannedArgument().first();
+        }
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return list.isEmpty() ? Maybe.<T>nothing() : Maybe.of(list.get(0));
+        }
+        Iterator<T> iterator = iterator();
         return Maybe.of(iterator.hasNext() ? iterator.next() : null);
     }
 
     /**
      * 最初の要素を除いた残りを返します。
+     * 添字アクセス可能なリスト ({@link RandomAccess}) のシーケンスでは元のリストを添字で参照する O(1) のビューを返します。ビューは元のリストへの変更も反映します。
      * @return 最初の要素を除いた残りの要素のシーケンス
      */
     public Sequence<T> rest() {
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return of(sliceOf(list, 1, Integer.MAX_VALUE));
+        }
         return new Sequence<T>(new Iterable<T>() {
             @Override
             public Iterator<T> iterator() {
-                Iterator<T> iterator = items.iterator();
+                Iterator<T> iterator = traverse(false);
                 if (iterator.hasNext()) {
                     iterator.next();
                 }
                 return iterator;
             }
-        }, size == null ? null : size - 1);
+        }, size == null ? null : Math.max(size - 1, 0), infinite);
     }
 
     /**
      * 単一の要素を持つ場合はその要素を返します。そうでない場合は nothing を返します。
+     * 2 つめの要素が見つかった時点で列挙を打ち切ります。
      * @return 単一の要素
      */
     public Maybe<T> single() {
-        return Maybe.of(size() == 1 ? items.iterator().next() : null);
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return list.size() == 1 ? Maybe.of(list.get(0)) : Maybe.<T>nothing();
+        }
+        Iterator<T> iterator = iterator();
+        if (!iterator.hasNext()) {
+            return Maybe.nothing();
+        }
+        T first = iterator.next();
+        return iterator.hasNext() ? Maybe.<T>nothing() : Maybe.of(first);
     }
 
     /**
@@ -464,8 +1796,17 @@ public final class Sequence<T> implements Iterable<T> {
      * @return       オブジェクトに一致する最初の要素のインデックス
      */
     public int indexOf(T object) {
+        List<T> list = randomAccessList();
+        if (list != null) {
+            for (int i = 0, size = list.size(); i < size; i++) {
+                if (Objects.equals(list.get(i), object)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         int i = 0;
-        for (T item : items) {
+        for (T item : this) {
             if (Objects.equals(item, object)) {
                 return i;
             }
@@ -480,8 +1821,17 @@ public final class Sequence<T> implements Iterable<T> {
      * @return          条件を満たす最初の要素のインデックス
      */
     public int indexOf(Predicate<? super T> predicate) {
+        List<T> list = randomAccessList();
+        if (list != null) {
+            for (int i = 0, size = list.size(); i < size; i++) {
+                if (predicate.test(list.get(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         int i = 0;
-        for (T item : items) {
+        for (T item : this) {
             if (predicate.test(item)) {
                 return i;
             }
@@ -497,10 +1847,14 @@ public final class Sequence<T> implements Iterable<T> {
 
     /**
      * 指定されたオブジェクトが含まれているかどうかを調べます。
+     * {@link HashSet}, 変更不可能なセット ({@link #toImmutableSet()}) や範囲 ({@link #range}) のシーケンスでは要素を列挙せずに元のコレクションで判定します。
      * @param object オブジェクト
      * @return       指定されたオブジェクトが含まれている場合は true, そうでない場合は false
      */
     public boolean contains(T object) {
+        if (items instanceof HashSet || items instanceof ImmutableArraySet || items instanceof IntRange) {
+            return ((Collection<T>) items).contains(object);
+        }
         return indexOf(object) != -1;
     }
 
@@ -523,7 +1877,7 @@ public final class Sequence<T> implements Iterable<T> {
      * @return          すべての要素が条件を満たしている場合は true, そうでない場合は false
      */
     public boolean all(Predicate<? super T> predicate) {
-        for (T item : items) {
+        for (T item : this) {
             if (!predicate.test(item)) {
                 return false;
             }
@@ -532,39 +1886,57 @@ public final class Sequence<T> implements Iterable<T> {
     }
 
     /**
-     * 比較値への射影関数を適用して、比較値の昇順に要素を並べ替えます。
+     * 比較値への射影関数を適用して、比較値の昇順に要素を並べ替えます。比較値が等しい要素の順序は保たれます (安定ソート)。
+     * 並べ替えは最初に列挙されるまで行われず、並べ替えた結果を記憶して 2 回目以降の列挙では並べ替え直しません。
+     * 並べ替える前に最初の要素や先頭から指定数の要素のみを求める場合は、すべての要素を並べ替えずに求めます ({@link #first()}, {@link #take(int)})。
+     * 並べ替えたシーケンスは並び順を保持し、二分探索による検索やマージによる集合演算を行えます ({@link SortedSequence})。
+     * 要素数が閾値以上の場合は並列に並べ替えるため、射影関数は複数のスレッドから呼び出されることがあります ({@link #setParallelSortThreshold(int)})。
      * @param comparableSelector 比較値への射影関数
      * @param <C>                比較値の型
      * @return                   比較値の昇順に並べ替えたシーケンス
      */
-    public <C extends Comparable<C>> Sequence<T> sortBy(Function<? super T, ? extends C> comparableSelector) {
-        // 射影関数の適用回数を各要素に 1 回だけとするため、以下のように実装する
-        //   1. 射影関数を各要素に適用してペア (要素, 比較値) のリストを構築する
-        //   2. 比較値でソートする
-        //   3. ペアの 1 番目の要素 (元々の要素) を抽出するシーケンスを返す
-        return Sequence.of(sortBySecondOfPair(zip(map(comparableSelector)).toArrayList())).map(Pair.<T, C>firstSelector());
+    public <C extends Comparable<C>> SortedSequence<T, C> sortBy(Function<? super T, ? extends C> comparableSelector) {
+        String stage = Probe.stage(probe, "sortBy");
+        // 計測する射影関数は複数のスレッドから呼び出さない
+        SortedIterable<T, C> sorted = new SortedIterable<T, C>(this, Probe.function(probe, stage, comparableSelector), Integer.MAX_VALUE, probe == null);
+        Plan plan = new Plan(Plan.Operator.SORT, this, sorted);
+        // 検索では計測を経由しない元の射影関数を用いる
+        if (probe == null) {
+            return new SortedSequence<T, C>(new SortedItems<T, C>(sorted, sorted, comparableSelector), size, infinite, null, plan);
+        }
+        return new SortedSequence<T, C>(new SortedItems<T, C>(probe.iterable(stage, sorted), sorted, comparableSelector), size, infinite, probe.next(), plan);
     }
 
     /**
-     * ペアのシーケンスを 2 番目の要素を比較値として昇順に並べ替えます。
-     * @param pairs ペアシーケンス
-     * @param <T>   1 番目の要素の型
-     * @param <C>   2 番目の要素の型
-     * @return      2 番目の要素の昇順に並べ替えたペアシーケンス
+     * このシーケンスが比較値の昇順に並んでいるものとして、並び順を利用できるシーケンスを作成します。
+     * @param comparableSelector 比較値への射影関数
+     * @param <C>                比較値の型
+     * @return                   並び順を利用できるシーケンス
      */
-    private static <T, C extends Comparable<C>> Iterable<Pair<T, C>> sortBySecondOfPair(Iterable<Pair<T, C>> pairs) {
-        Iterator<Pair<T, C>> iterator = pairs.iterator();
-        if (!iterator.hasNext()) {
-            return pairs;
-        }
-        ArrayList<Pair<T, C>> lesser = new ArrayList<Pair<T, C>>();
-        ArrayList<Pair<T, C>> greater = new ArrayList<Pair<T, C>>();
-        Pair<T, C> pivot = iterator.next();
-        while (iterator.hasNext()) {
-            Pair<T, C> current = iterator.next();
-            (current.second().compareTo(pivot.second()) < 0 ? lesser : greater).add(current);
-        }
-        return Sequence.of(pivot).prepend(sortBySecondOfPair(lesser)).append(sortBySecondOfPair(greater));
+    <C extends Comparable<C>> SortedSequence<T, C> assumeSorted(Function<? super T, ? extends C> comparableSelector) {
+        return new SortedSequence<T, C>(new SortedItems<T, C>(this, comparableSelector), size, infinite, probe, null);
+    }
+
+    /**
+     * 比較値への射影関数を適用して、比較値の昇順に要素を並べ替えます。比較値が等しい要素の順序は保たれます (安定ソート)。
+     * メモリー予算を超える要素は、予算に収まる要素ずつ並べ替えて一時ファイルへ退避し、列挙時に一時ファイルをマージしながら返します (外部マージソート)。
+     * 射影関数は退避した要素を読み戻す際にも適用されます。
+     * 一時ファイルは列挙が終わった時点, イテレーターを {@link java.io.Closeable#close()} した時点,
+     * または列挙を中断したイテレーターが回収された後に削除され、遅くとも JVM の正常な終了時に削除されます。
+     * @param comparableSelector 比較値への射影関数
+     * @param options            退避の設定
+     * @param <C>                比較値の型
+     * @return                   比較値の昇順に並べ替えたシーケンス
+     */
+    public <C extends Comparable<C>> Sequence<T> sortBy(Function<? super T, ? extends C> comparableSelector, final SpillOptions<T> options) {
+        String stage = Probe.stage(probe, "sortBy");
+        final Function<? super T, ? extends C> _comparableSelector = Probe.function(probe, stage, comparableSelector);
+        return derive(stage, new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new ExternalSortingIterator<T, C>(traverse(false), _comparableSelector, options);
+            }
+        }, size, infinite);
     }
 
     /**
@@ -587,6 +1959,178 @@ public final class Sequence<T> implements Iterable<T> {
         return minOrMaxBy(comparableSelector, false);
     }
 
+    /**
+     * 初期値と各要素を先頭から順に累積関数へ適用して、最終的な累積値を返します。
+     * @param seed        初期値
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @param <R>         累積値の型
+     * @return            累積値 (要素がない場合は初期値)
+     */
+    public <R> R fold(R seed, BiFunction<? super R, ? super T, ? extends R> accumulator) {
+        R accumulated = seed;
+        for (T item : this) {
+            accumulated = accumulator.apply(accumulated, item);
+        }
+        return accumulated;
+    }
+
+    /**
+     * 単位元と各要素を累積関数へ適用して、累積値を返します。
+     * 部分的な累積値同士を結合する関数を併せて受け取るため、要素を分割して並列に累積する実装にも同じ引数で対応できます。
+     * 現状の実装は逐次評価であり、結合関数は使用しません。
+     * @param identity    単位元 (結合関数に対して combiner(identity, x) が x と等しくなる値)
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @param combiner    2 つの累積値を結合する関数
+     * @param <R>         累積値の型
+     * @return            累積値 (要素がない場合は単位元)
+     */
+    public <R> R fold(R identity, BiFunction<? super R, ? super T, ? extends R> accumulator, BiFunction<? super R, ? super R, ? extends R> combiner) {
+        return fold(identity, accumulator);
+    }
+
+    /**
+     * 各要素を先頭から順に累積関数へ適用して、最終的な累積値を返します。最初の要素を累積値の初期値とします。
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @return            累積値 (要素がない場合は nothing)
+     */
+    public Maybe<T> reduce(BiFunction<? super T, ? super T, ? extends T> accumulator) {
+        Iterator<T> iterator = iterator();
+        if (!iterator.hasNext()) {
+            return Maybe.nothing();
+        }
+        T accumulated = iterator.next();
+        while (iterator.hasNext()) {
+            accumulated = accumulator.apply(accumulated, iterator.next());
+        }
+        return Maybe.of(accumulated);
+    }
+
+    /**
+     * int の累積値を用いて {@link #fold(Object, BiFunction)} と同様に累積します。累積値はボックス化されません。
+     * @param seed        初期値
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @return            累積値
+     */
+    public int foldInt(int seed, IntFoldFunction<? super T> accumulator) {
+        int accumulated = seed;
+        for (T item : this) {
+            accumulated = accumulator.apply(accumulated, item);
+        }
+        return accumulated;
+    }
+
+    /**
+     * long の累積値を用いて {@link #fold(Object, BiFunction)} と同様に累積します。累積値はボックス化されません。
+     * @param seed        初期値
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @return            累積値
+     */
+    public long foldLong(long seed, LongFoldFunction<? super T> accumulator) {
+        long accumulated = seed;
+        for (T item : this) {
+            accumulated = accumulator.apply(accumulated, item);
+        }
+        return accumulated;
+    }
+
+    /**
+     * double の累積値を用いて {@link #fold(Object, BiFunction)} と同様に累積します。累積値はボックス化されません。
+     * @param seed        初期値
+     * @param accumulator 累積値と要素から新しい累積値を算出する関数
+     * @return            累積値
+     */
+    public double foldDouble(double seed, DoubleFoldFunction<? super T> accumulator) {
+        double accumulated = seed;
+        for (T item : this) {
+            accumulated = accumulator.apply(accumulated, item);
+        }
+        return accumulated;
+    }
+
+    /**
+     * 各要素を集計器へ渡して、集計結果を返します。
+     * @param accumulator 集計器
+     * @param <R>         集計結果の型
+     * @return            集計結果
+     */
+    public <R> R collect(Accumulator<? super T, ? extends R> accumulator) {
+        for (T item : this) {
+            accumulator.accept(item);
+        }
+        return accumulator.result();
+    }
+
+    /**
+     * 1 回の列挙で各要素を 2 つの集計器へ渡して、集計結果をペアで返します。
+     * @param first  1 つめの集計器
+     * @param second 2 つめの集計器
+     * @param <R1>   1 つめの集計結果の型
+     * @param <R2>   2 つめの集計結果の型
+     * @return       集計結果のペア
+     */
+    public <R1, R2> Pair<R1, R2> aggregate(Accumulator<? super T, ? extends R1> first, Accumulator<? super T, ? extends R2> second) {
+        for (T item : this) {
+            first.accept(item);
+            second.accept(item);
+        }
+        return Pair.<R1, R2>of(first.result(), second.result());
+    }
+
+    /**
+     * 1 回の列挙で各要素をすべての集計器へ渡して、集計結果を集計器と同じ順序のリストで返します。
+     * @param accumulators 集計器
+     * @return             集計結果のリスト
+     */
+    @SafeVarargs
+    public final List<Object> aggregate(Accumulator<? super T, ?>... accumulators) {
+        for (T item : this) {
+            for (Accumulator<? super T, ?> accumulator : accumulators) {
+                accumulator.accept(item);
+            }
+        }
+        ArrayList<Object> results = new ArrayList<Object>(accumulators.length);
+        for (Accumulator<? super T, ?> accumulator : accumulators) {
+            results.add(accumulator.result());
+        }
+        return results;
+    }
+
+    /**
+     * 異なる要素の数を固定のメモリーで近似します ({@link HyperLogLog})。
+     * 精度 p に対して 2^p バイトのメモリーを使用し、相対標準誤差はおよそ 1.04 / sqrt(2^p) です (p = 14 の場合はおよそ 0.8%)。
+     * @param precision 精度 ({@link HyperLogLog#MIN_PRECISION} 以上 {@link HyperLogLog#MAX_PRECISION} 以下)
+     * @return          異なる要素の数の近似値
+     */
+    public long approxDistinctCount(int precision) {
+        return collect(new HyperLogLog(precision));
+    }
+
+    /**
+     * 各要素を double 値へ射影して、分位数をほぼ固定のメモリーで近似します ({@link QuantileSketch})。
+     * 並べ替えずに 1 回の列挙で求め、順位の誤差はおよそ 1% です。射影した値はボックス化しません。
+     * @param selector  double 値への射影関数
+     * @param fractions 分位 (0 以上 1 以下, 0 は最小値, 0.5 は中央値, 1 は最大値)
+     * @return          分位数の近似値 (要素がない場合は NaN)
+     */
+    public double[] approxQuantiles(ToDoubleFunction<? super T> selector, double... fractions) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (T item : this) {
+            sketch.add(selector.apply(item));
+        }
+        return sketch.quantiles(fractions);
+    }
+
+    /**
+     * 出現回数の多い要素を固定のメモリーで近似します ({@link HeavyHitters})。
+     * 指定数のカウンターのみを使用し、出現回数が要素数 / 指定数を超える要素は必ず含まれます。
+     * 推定した出現回数は実際の出現回数以上であり、過大評価は要素数 / 指定数以下です。
+     * @param count 要素数
+     * @return      出現回数の多い順の、要素と推定した出現回数のペアのリスト
+     */
+    public List<Pair<T, Long>> heavyHitters(int count) {
+        return collect(new HeavyHitters<T>(count));
+    }
+
     /**
      * 各要素を区切り文字で区切って連結した文字列を生成します。
      * @param delimiter 区切り文字
@@ -594,11 +2138,13 @@ public final class Sequence<T> implements Iterable<T> {
      */
     public String joinToString(String delimiter) {
         StringBuilder builder = new StringBuilder();
-        for (T item : first()) {
+        boolean isFirst = true;
+        for (T item : this) {
+            if (!isFirst) {
+                builder.append(delimiter);
+            }
             builder.append(item);
-        }
-        for (T item : rest()) {
-            builder.append(delimiter).append(item);
+            isFirst = false;
         }
         return builder.toString();
     }
@@ -608,9 +2154,11 @@ public final class Sequence<T> implements Iterable<T> {
      * @param collection    コレクション
      * @param <C>           コレクションの型
      * @return              コレクション
+     * @throws UnsupportedOperationException 無限シーケンスの場合
      */
     public <C extends Collection<? super T>> C addTo(C collection) {
-        for (T item : items) {
+        requireFinite();
+        for (T item : this) {
             collection.add(item);
         }
         return collection;
@@ -618,10 +2166,95 @@ public final class Sequence<T> implements Iterable<T> {
 
     /**
      * {@link ArrayList} を生成します。
+     * 添字アクセス可能なリスト ({@link RandomAccess}) のシーケンスでは一括でコピーし、要素数がわかっている場合はその容量で作成します。
      * @return {@link ArrayList}
      */
     public ArrayList<T> toArrayList() {
-        return addTo(new ArrayList<T>());
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return new ArrayList<T>(list);
+        }
+        return addTo(new ArrayList<T>(size == null ? 10 : size));
+    }
+
+    /**
+     * 全要素を格納した配列を生成します ({@link Collection#toArray(Object[])} と同様)。
+     * 指定された配列に収まる場合は指定された配列へ格納し (残りの最初の位置には null を格納します)、収まらない場合は同じ型の配列を新たに作成します。
+     * 要素数がわかっている場合は要素数ちょうどの配列へ格納し、わからない場合は配列を 1.5 倍ずつ拡張しながら格納して最後に 1 回だけ切り詰めます。
+     * @param array 格納先の配列
+     * @param <A>   配列の要素の型
+     * @return      全要素を格納した配列
+     * @throws ArrayStoreException           配列の要素の型が要素の型の上位の型でない場合
+     * @throws UnsupportedOperationException 無限シーケンスの場合
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A[] toArray(A[] array) {
+        requireFinite();
+        List<T> list = randomAccessList();
+        if (list != null) {
+            return list.toArray(array);
+        }
+        A[] result;
+        if (size != null) {
+            result = size <= array.length ? array : Arrays.copyOf(array, size);
+        } else {
+            result = array.length > 0 ? array : Arrays.copyOf(array, 16);
+        }
+        int count = 0;
+        for (T item : this) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, Math.max(count + (count >> 1), 16));
+            }
+            result[count++] = (A) item;
+        }
+        if (result == array) {
+            if (count < array.length) {
+                array[count] = null;
+            }
+            return array;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 全要素を格納した、指定された型の配列を生成します。
+     * @param componentType 配列の要素の型
+     * @param <A>           配列の要素の型
+     * @return              全要素を格納した配列
+     * @throws ArrayStoreException           配列の要素の型が要素の型の上位の型でない場合
+     * @throws UnsupportedOperationException 無限シーケンスの場合
+     * @see #toArray(Object[])
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A[] toArray(Class<A> componentType) {
+        return toArray((A[]) Array.newInstance(componentType, 0));
+    }
+
+    /**
+     * 変更不可能なリストを生成します。リストは要素数ちょうどの配列のみを保持し、ハッシュ値を記憶します。
+     * 生成したリストのシーケンス ({@link #of(Collection)}) は要素をコピーせずに添字アクセスで処理し、再び変更不可能なリストを生成する場合は同じリストを返します。
+     * @return 変更不可能なリスト
+     * @throws UnsupportedOperationException 無限シーケンスの場合
+     */
+    public List<T> toImmutableList() {
+        if (items instanceof ImmutableArrayList) {
+            return (List<T>) items;
+        }
+        return new ImmutableArrayList<T>(toArray(new Object[0]));
+    }
+
+    /**
+     * 重複を除いた変更不可能なセットを生成します。列挙の順序は要素が最初に現れた順です。
+     * セットは要素数ちょうどの配列とインデックスのハッシュ表のみを保持し、ハッシュ値を記憶します。
+     * 生成したセットのシーケンス ({@link #of(Collection)}) は要素をコピーせずに添字アクセスで処理し、再び変更不可能なセットを生成する場合は同じセットを返します。
+     * @return 変更不可能なセット
+     * @throws UnsupportedOperationException 無限シーケンスの場合
+     */
+    public Set<T> toImmutableSet() {
+        if (items instanceof ImmutableArraySet) {
+            return (Set<T>) items;
+        }
+        return ImmutableArraySet.of(toArray(new Object[0]));
     }
 
     /**
@@ -634,7 +2267,39 @@ public final class Sequence<T> implements Iterable<T> {
      */
     public <K, V> HashMap<K, V> toHashMap(Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector) {
         HashMap<K, V> result = new HashMap<K, V>();
-        for (T item : items) {
+        for (T item : this) {
+            result.put(keySelector.apply(item), valueSelector.apply(item));
+        }
+        return result;
+    }
+
+    /**
+     * int 値のキーへの射影関数と値への射影関数を適用して、キーをボックス化しないマップ ({@link IntMap}) を作成します。
+     * キーが重複する場合は後の要素の値で置き換えます。マップの列挙の順序はキーが最初に現れた順です。
+     * @param keySelector   int 値のキーへの射影関数
+     * @param valueSelector 値への射影関数
+     * @param <V>           値の型
+     * @return              マップ
+     */
+    public <V> IntMap<V> toIntMap(ToIntFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector) {
+        IntMap<V> result = new IntMap<V>();
+        for (T item : this) {
+            result.put(keySelector.apply(item), valueSelector.apply(item));
+        }
+        return result;
+    }
+
+    /**
+     * long 値のキーへの射影関数と値への射影関数を適用して、キーをボックス化しないマップ ({@link LongMap}) を作成します。
+     * キーが重複する場合は後の要素の値で置き換えます。マップの列挙の順序はキーが最初に現れた順です。
+     * @param keySelector   long 値のキーへの射影関数
+     * @param valueSelector 値への射影関数
+     * @param <V>           値の型
+     * @return              マップ
+     */
+    public <V> LongMap<V> toLongMap(ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector) {
+        LongMap<V> result = new LongMap<V>();
+        for (T item : this) {
             result.put(keySelector.apply(item), valueSelector.apply(item));
         }
         return result;
@@ -647,21 +2312,149 @@ public final class Sequence<T> implements Iterable<T> {
      * @return            キーとグループの連想配列
      */
     public <K> LinkedHashMap<K, Sequence<T>> groupBy(Function<? super T, ? extends K> keySelector) {
-        LinkedHashMap<K, Sequence<T>> result = new LinkedHashMap<K, Sequence<T>>();
-        HashMap<K, List<T>> lists = new HashMap<K, List<T>>();
-        for (T item : items) {
+        LinkedHashMap<K, List<T>> lists = new LinkedHashMap<K, List<T>>();
+        for (T item : this) {
             K key = keySelector.apply(item);
             List<T> list = lists.get(key);
             if (list == null) {
                 list = new ArrayList<T>();
                 lists.put(key, list);
-                result.put(key, Sequence.of(list));
             }
             list.add(item);
         }
+        // 要素数をキャッシュするため、グループの要素が確定してからシーケンスを作成する
+        LinkedHashMap<K, Sequence<T>> result = new LinkedHashMap<K, Sequence<T>>();
+        for (Map.Entry<K, List<T>> entry : lists.entrySet()) {
+            result.put(entry.getKey(), Sequence.of(entry.getValue()));
+        }
         return result;
     }
 
+    /**
+     * int 値のキーへの射影関数を適用して、キーが等しい要素ごとにまとめたマップ ({@link IntMap}) を作成します。キーはボックス化されません。
+     * マップの列挙の順序はキーが最初に現れた順であり、グループの要素の順序は元の順序です。
+     * @param keySelector int 値のキーへの射影関数
+     * @return            キーとグループの要素のシーケンスのマップ
+     */
+    @SuppressWarnings("unchecked")
+    public IntMap<Sequence<T>> groupByInt(ToIntFunction<? super T> keySelector) {
+        IntMap<Object> groups = new IntMap<Object>();
+        for (T item : this) {
+            int key = keySelector.apply(item);
+            ArrayList<T> list = (ArrayList<T>) groups.get(key);
+            if (list == null) {
+                list = new ArrayList<T>();
+                groups.put(key, list);
+            }
+            list.add(item);
+        }
+        // 要素数をキャッシュするため、グループの要素が確定してからシーケンスへ置き換える
+        for (int i = 0; i < groups.size(); i++) {
+            groups.setValueAt(i, Sequence.of((ArrayList<T>) groups.valueAt(i)));
+        }
+        return (IntMap<Sequence<T>>) (IntMap<?>) groups;
+    }
+
+    /**
+     * long 値のキーへの射影関数を適用して、キーが等しい要素ごとにまとめたマップ ({@link LongMap}) を作成します。キーはボックス化されません。
+     * マップの列挙の順序はキーが最初に現れた順であり、グループの要素の順序は元の順序です。
+     * @param keySelector long 値のキーへの射影関数
+     * @return            キーとグループの要素のシーケンスのマップ
+     */
+    @SuppressWarnings("unchecked")
+    public LongMap<Sequence<T>> groupByLong(ToLongFunction<? super T> keySelector) {
+        LongMap<Object> groups = new LongMap<Object>();
+        for (T item : this) {
+            long key = keySelector.apply(item);
+            ArrayList<T> list = (ArrayList<T>) groups.get(key);
+            if (list == null) {
+                list = new ArrayList<T>();
+                groups.put(key, list);
+            }
+            list.add(item);
+        }
+        // 要素数をキャッシュするため、グループの要素が確定してからシーケンスへ置き換える
+        for (int i = 0; i < groups.size(); i++) {
+            groups.setValueAt(i, Sequence.of((ArrayList<T>) groups.valueAt(i)));
+        }
+        return (LongMap<Sequence<T>>) (LongMap<?>) groups;
+    }
+
+    /**
+     * 同一のキーを持つ要素ごとにグルーピングします。グループは列挙されるまで作成されません。
+     * 要素がメモリー予算に収まる場合は最初に現れた順にグループを返します。収まらない場合は、
+     * キーのハッシュ値で要素を区画へ振り分けて一時ファイルへ退避し、区画を 1 つずつ読み戻してグループ化するため、グループの順序は不定です。
+     * メモリー上に保持するのは 1 つの区画の要素のみです (ただし 1 つのキーのグループはメモリーに収まる必要があります)。
+     * キーへの射影関数は退避した要素を読み戻す際にも適用されます。
+     * 一時ファイルは {@link #sortBy(Function, SpillOptions)} と同様に削除されます。
+     * @param keySelector 要素からグルーピングのキーを生成する射影関数
+     * @param options     退避の設定
+     * @param <K>         グルーピングのキーの型
+     * @return            キーとグループのペアのシーケンス
+     */
+    public <K> Sequence<Pair<K, Sequence<T>>> groupBy(Function<? super T, ? extends K> keySelector, final SpillOptions<T> options) {
+        String stage = Probe.stage(probe, "groupBy");
+        final Function<? super T, ? extends K> _keySelector = Probe.function(probe, stage, keySelector);
+        return derive(stage, new Iterable<Pair<K, Sequence<T>>>() {
+            @Override
+            public Iterator<Pair<K, Sequence<T>>> iterator() {
+                return new SpillingGroupingIterator<T, K>(traverse(false), _keySelector, options);
+            }
+        }, null, infinite);
+    }
+
+    /**
+     * 要素を添字アクセス可能なリスト ({@link RandomAccess}) として取得します。
+     * @return リスト (添字アクセス可能なリストでない場合は null)
+     */
+    private List<T> randomAccessList() {
+        return randomAccessListOf(items);
+    }
+
+    /**
+     * リストの一部分のビューを作成します。要素数が変わりえないリストでは {@link List#subList} を返します。
+     * それ以外のリストでは、元のリストへの変更後に列挙しても {@link ConcurrentModificationException} とならないよう、
+     * 列挙のたびに元のリストの要素数を読み直すビュー ({@link ListSlice}) を返します。
+     * @param list  添字アクセス可能なリスト
+     * @param from  開始位置
+     * @param limit 最大要素数
+     * @param <E>   要素の型
+     * @return      ビュー
+     */
+    private static <E> List<E> sliceOf(List<E> list, int from, int limit) {
+        if (fixedSizeOf(list) == null) {
+            return ListSlice.of(list, from, limit);
+        }
+        int size = list.size(), start = Math.min(from, size);
+        return list.subList(start, start + Math.min(size - start, limit));
+    }
+
+    /**
+     * シーケンスの要素を添字アクセス可能なリスト ({@link RandomAccess}) として取得します。
+     * @param iterable シーケンス
+     * @param <E>      要素の型
+     * @return         リスト (添字アクセス可能なリストでない場合は null)
+     */
+    private static <E> List<E> randomAccessListOf(Iterable<E> iterable) {
+        if (iterable instanceof Sequence) {
+            iterable = ((Sequence<E>) iterable).items;
+        }
+        if (iterable instanceof ImmutableArraySet) {
+            return ((ImmutableArraySet<E>) iterable).asList();
+        }
+        return iterable instanceof List && iterable instanceof RandomAccess ? (List<E>) iterable : null;
+    }
+
+    /**
+     * 無限シーケンスでないことを確認します。すべての要素を列挙する操作が終わらなくなることを防ぎます。
+     * @throws UnsupportedOperationException 無限シーケンスの場合
+     */
+    void requireFinite() {
+        if (infinite) {
+            throw new UnsupportedOperationException("infinite sequence");
+        }
+    }
+
     /**
      * 比較可能な値への射影関数を適用して、結果が最小または最大となる要素を返します。
      * @param comparableSelector 比較可能な値への射影関数
@@ -670,7 +2463,7 @@ public final class Sequence<T> implements Iterable<T> {
      * @return                   最小または最大の要素
      */
     private <C extends Comparable<C>> Maybe<T> minOrMaxBy(Function<? super T, ? extends C> comparableSelector, boolean min) {
-        Iterator<T> iterator = items.iterator();
+        Iterator<T> iterator = iterator();
         if (!iterator.hasNext()) {
             return Maybe.nothing();
         }
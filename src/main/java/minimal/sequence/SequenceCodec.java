@@ -0,0 +1,127 @@
+package minimal.sequence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * シーケンスをコンパクトなバイナリー形式で符号化および復号するコーデックを表します。
+ * 符号化した形式は「要素数, 要素数個の要素」のチャンクの並びであり、要素数 0 のチャンクで終わります。
+ * 要素数を事前に知る必要がないため、無限でないシーケンスであれば列挙しながら書き出すことができます。
+ * 各要素は {@link ElementCodec} で符号化します。インスタンスは不変です。
+ */
+public final class SequenceCodec<T> {
+    /**
+     * 既定のチャンクの要素数を表します。
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final ElementCodec<T> codec;
+    private final int chunkSize;
+
+    private SequenceCodec(ElementCodec<T> codec, int chunkSize) {
+        this.codec = codec;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * コーデックを作成します。
+     * @param codec 要素の符号化方式
+     * @param <T>   要素の型
+     * @return      コーデック
+     */
+    public static <T> SequenceCodec<T> of(ElementCodec<T> codec) {
+        if (codec == null) {
+            throw new NullPointerException("codec");
+        }
+        return new SequenceCodec<T>(codec, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * チャンクの要素数を指定したコーデックを返します。書き出す際にチャンクの要素をメモリー上に保持します。
+     * @param chunkSize チャンクの要素数
+     * @return          コーデック
+     */
+    public SequenceCodec<T> chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+        return new SequenceCodec<T>(codec, chunkSize);
+    }
+
+    /**
+     * 要素を列挙しながら書き出します。
+     * @param items 要素
+     * @param out   出力先
+     * @throws IOException 書き出しに失敗した場合
+     */
+    public void write(Iterable<? extends T> items, DataOutput out) throws IOException {
+        ArrayList<T> chunk = new ArrayList<T>(Math.min(chunkSize, 64));
+        Iterator<? extends T> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, out);
+            }
+        }
+        writeChunk(chunk, out);
+        out.writeInt(0);
+    }
+
+    private void writeChunk(ArrayList<T> chunk, DataOutput out) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        out.writeInt(chunk.size());
+        for (T item : chunk) {
+            codec.write(item, out);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * 要素を符号化したバイトバッファーを作成します。
+     * @param items 要素
+     * @return      符号化した要素を位置 0 から限界まで保持するバイトバッファー
+     */
+    public ByteBuffer encode(Iterable<? extends T> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(items, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new SequenceException("failed to encode sequence", e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * 入力元から要素を読み込みながら列挙するシーケンスを作成します。入力元は 1 度しか読み込めないため、シーケンスは 1 度だけ列挙できます。
+     * 読み込みに失敗した場合は列挙の際に {@link SequenceException} をスローします。
+     * @param in 入力元
+     * @return   シーケンス
+     */
+    public Sequence<T> read(DataInput in) {
+        return Sequence.of(new DecodingIterator<T>(in, codec));
+    }
+
+    /**
+     * バイトバッファーの位置から要素を読み込みながら列挙するシーケンスを作成します。
+     * 列挙ごとにバイトバッファーの複製から読み込むため、シーケンスは何度でも列挙でき、元のバイトバッファーの位置は変わりません。
+     * @param buffer 符号化した要素を保持するバイトバッファー
+     * @return       シーケンス
+     */
+    public Sequence<T> decode(final ByteBuffer buffer) {
+        return Sequence.of(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new DecodingIterator<T>(new DataInputStream(new ByteBufferInputStream(buffer.duplicate())), codec);
+            }
+        });
+    }
+}
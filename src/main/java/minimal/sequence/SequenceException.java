@@ -0,0 +1,25 @@
+package minimal.sequence;
+
+/**
+ * シーケンスの要素の読み書き中に発生した検査例外を包む非検査例外を表します。
+ */
+public class SequenceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * インスタンスを初期化します。
+     * @param cause 原因となった例外
+     */
+    public SequenceException(Throwable cause) {
+        super(cause);
+    }
+
+    /**
+     * インスタンスを初期化します。
+     * @param message メッセージ
+     * @param cause   原因となった例外
+     */
+    public SequenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,87 @@
+package minimal.sequence;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+
+/**
+ * {@link Maybe} と {@link Pair} の直列化形式 (シリアライゼーションプロキシー) を表します。
+ * 既定の直列化形式とは異なりフィールドの記述子を書き出さずに、種類を表す 1 バイトと値のみを書き出します。
+ * 読み込んだ後は元の型のインスタンスに置き換えるため、値が存在しない Maybe は唯一の {@link Maybe#nothing} に戻ります。
+ */
+final class SerializedForm implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    static final byte NOTHING = 0;
+    static final byte JUST = 1;
+    static final byte PAIR = 2;
+
+    private byte type;
+    private Object first;
+    private Object second;
+
+    /**
+     * 直列化から復元するためのインスタンスを初期化します。
+     */
+    public SerializedForm() {
+    }
+
+    SerializedForm(byte type, Object first, Object second) {
+        this.type = type;
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(type);
+        switch (type) {
+            case PAIR:
+                out.writeObject(first);
+                out.writeObject(second);
+                break;
+            case JUST:
+                out.writeObject(first);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        type = in.readByte();
+        switch (type) {
+            case PAIR:
+                first = in.readObject();
+                second = in.readObject();
+                break;
+            case JUST:
+                first = in.readObject();
+                break;
+            case NOTHING:
+                break;
+            default:
+                throw new StreamCorruptedException("unknown serialized type: " + type);
+        }
+    }
+
+    private Object readResolve() throws InvalidObjectException {
+        switch (type) {
+            case PAIR:
+                return Pair.of(first, second);
+            case JUST:
+                if (first == null) {
+                    throw new InvalidObjectException("Maybe with null value");
+                }
+                return Maybe.of(first);
+            case NOTHING:
+                return Maybe.nothing();
+            default:
+                throw new InvalidObjectException("unknown serialized type: " + type);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package minimal.sequence;
+
+import minimal.sequence.function.DoubleConsumer;
+import minimal.sequence.function.LongConsumer;
+import minimal.sequence.function.ToDoubleFunction;
+import minimal.sequence.function.ToLongFunction;
+
+import java.util.Iterator;
+
+/**
+ * 指定された幅の窓を 1 要素ずつずらしながら、各窓の集計値をボックス化せずに通知するユーティリティを表します。
+ * 最小値と最大値は単調な両端キュー、合計は累計の差分で更新するため、窓の幅によらず 1 要素あたり償却 O(1) で計算します。
+ * 通知は窓が要素で満たされてから (先頭から窓の幅の要素を取り出した時点から) 要素ごとに行います。
+ */
+final class SlidingWindows {
+    private SlidingWindows() {
+    }
+
+    /**
+     * 各窓の long 値の最小値 (または最大値) を通知します。
+     * @param source   上流のイテレーター
+     * @param window   窓の幅
+     * @param selector long 値への射影関数
+     * @param min      最小値の場合は true, 最大値の場合は false
+     * @param consumer 通知先
+     * @param <T>      要素の型
+     */
+    static <T> void extremumLong(Iterator<T> source, int window, ToLongFunction<? super T> selector, boolean min, LongConsumer consumer) {
+        long[] values = new long[window];
+        long[] indices = new long[window];
+        int head = 0;
+        int count = 0;
+        for (long index = 0; source.hasNext(); index++) {
+            long value = selector.apply(source.next());
+            while (count > 0 && (min ? values[slot(head, count - 1, window)] > value : values[slot(head, count - 1, window)] < value)) {
+                count--;
+            }
+            if (count > 0 && indices[head] <= index - window) {
+                head = slot(head, 1, window);
+                count--;
+            }
+            int tail = slot(head, count++, window);
+            values[tail] = value;
+            indices[tail] = index;
+            if (index + 1 >= window) {
+                consumer.accept(values[head]);
+            }
+        }
+    }
+
+    /**
+     * 各窓の double 値の最小値 (または最大値) を通知します。値は {@link Double#compare(double, double)} の順序で比較します。
+     * @param source   上流のイテレーター
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @param min      最小値の場合は true, 最大値の場合は false
+     * @param consumer 通知先
+     * @param <T>      要素の型
+     */
+    static <T> void extremumDouble(Iterator<T> source, int window, ToDoubleFunction<? super T> selector, boolean min, DoubleConsumer consumer) {
+        double[] values = new double[window];
+        long[] indices = new long[window];
+        int sign = min ? 1 : -1;
+        int head = 0;
+        int count = 0;
+        for (long index = 0; source.hasNext(); index++) {
+            double value = selector.apply(source.next());
+            while (count > 0 && sign * Double.compare(values[slot(head, count - 1, window)], value) > 0) {
+                count--;
+            }
+            if (count > 0 && indices[head] <= index - window) {
+                head = slot(head, 1, window);
+                count--;
+            }
+            int tail = slot(head, count++, window);
+            values[tail] = value;
+            indices[tail] = index;
+            if (index + 1 >= window) {
+                consumer.accept(values[head]);
+            }
+        }
+    }
+
+    /**
+     * 各窓の long 値の合計を通知します。合計が long の範囲を超える場合はオーバーフローします。
+     * @param source   上流のイテレーター
+     * @param window   窓の幅
+     * @param selector long 値への射影関数
+     * @param consumer 通知先
+     * @param <T>      要素の型
+     */
+    static <T> void sumLong(Iterator<T> source, int window, ToLongFunction<? super T> selector, LongConsumer consumer) {
+        long[] values = new long[window];
+        long sum = 0;
+        for (long index = 0; source.hasNext(); index++) {
+            long value = selector.apply(source.next());
+            int slot = (int) (index % window);
+            sum += value - values[slot];
+            values[slot] = value;
+            if (index + 1 >= window) {
+                consumer.accept(sum);
+            }
+        }
+    }
+
+    /**
+     * 各窓の double 値の合計 (または平均) を通知します。
+     * @param source   上流のイテレーター
+     * @param window   窓の幅
+     * @param selector double 値への射影関数
+     * @param average  平均の場合は true, 合計の場合は false
+     * @param consumer 通知先
+     * @param <T>      要素の型
+     */
+    static <T> void sumDouble(Iterator<T> source, int window, ToDoubleFunction<? super T> selector, boolean average, DoubleConsumer consumer) {
+        DoubleSum sum = new DoubleSum(window);
+        while (source.hasNext()) {
+            if (sum.push(selector.apply(source.next()))) {
+                consumer.accept(average ? sum.sum() / window : sum.sum());
+            }
+        }
+    }
+
+    private static int slot(int head, int offset, int window) {
+        int slot = head + offset;
+        return slot < window ? slot : slot - window;
+    }
+
+    /**
+     * 窓の中の double 値の合計を累計の差分で保持します。
+     * 加減算の丸め誤差が窓をずらすたびに蓄積しないよう補償付きで累計し、
+     * 無限大や NaN は累計に含めずに個数を数えることで、窓から外れた後の合計へ影響を残しません。
+     */
+    static final class DoubleSum {
+        private final double[] values;
+        private int next;
+        private long pushed;
+        private double sum;
+        private double compensation;
+        private int nans;
+        private int positiveInfinities;
+        private int negativeInfinities;
+
+        DoubleSum(int window) {
+            this.values = new double[window];
+        }
+
+        /**
+         * 値を窓へ追加し、窓の幅を超える場合は最も古い値を取り除きます。
+         * @param value 値
+         * @return      窓が値で満たされている場合は true
+         */
+        boolean push(double value) {
+            if (pushed >= values.length) {
+                accumulate(values[next], -1);
+            }
+            accumulate(value, 1);
+            values[next] = value;
+            next = next + 1 == values.length ? 0 : next + 1;
+            return ++pushed >= values.length;
+        }
+
+        /**
+         * 窓の中の値の合計を取得します。
+         * @return 合計
+         */
+        double sum() {
+            if (nans > 0 || positiveInfinities > 0 && negativeInfinities > 0) {
+                return Double.NaN;
+            }
+            if (positiveInfinities > 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (negativeInfinities > 0) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            return sum + compensation;
+        }
+
+        private void accumulate(double value, int sign) {
+            if (Double.isNaN(value)) {
+                nans += sign;
+            } else if (value == Double.POSITIVE_INFINITY) {
+                positiveInfinities += sign;
+            } else if (value == Double.NEGATIVE_INFINITY) {
+                negativeInfinities += sign;
+            } else {
+                // Neumaier の補償付き加算
+                double addend = sign * value;
+                double t = sum + addend;
+                compensation += Math.abs(sum) >= Math.abs(addend) ? (sum - t) + addend : (addend - t) + sum;
+                sum = t;
+            }
+        }
+    }
+}
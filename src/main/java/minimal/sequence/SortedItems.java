@@ -0,0 +1,152 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 比較値の昇順に並んだ要素を表します。
+ * 検索のために並べ替えた結果 (要素と比較値のリスト) を一度だけ作成して記憶し、以降の列挙でも記憶した結果を返します。
+ * {@link Sequence#sortBy(Function)} で並べ替えた要素は、並べ替えの際に求めた比較値をそのまま記憶として共有し、射影関数を適用し直しません。
+ */
+final class SortedItems<T, C extends Comparable<C>> implements Iterable<T> {
+    final Function<? super T, ? extends C> comparableSelector;
+    private final Iterable<T> source;
+    private final SortedIterable<T, C> sorted;  // 記憶を共有する並べ替え (並べ替えによらない場合は null)
+    private volatile Snapshot<T, C> snapshot;
+
+    /**
+     * インスタンスを初期化します。
+     * @param source             比較値の昇順に並んだ要素
+     * @param comparableSelector 比較値への射影関数
+     */
+    SortedItems(Iterable<T> source, Function<? super T, ? extends C> comparableSelector) {
+        this(source, null, comparableSelector);
+    }
+
+    /**
+     * 並べ替えと記憶を共有するインスタンスを初期化します。
+     * @param source             比較値の昇順に並んだ要素 (並べ替えそのもの、または並べ替えを計測するシーケンス)
+     * @param sorted             記憶を共有する並べ替え
+     * @param comparableSelector 比較値への射影関数
+     */
+    SortedItems(Iterable<T> source, SortedIterable<T, C> sorted, Function<? super T, ? extends C> comparableSelector) {
+        this.source = source;
+        this.sorted = sorted;
+        this.comparableSelector = comparableSelector;
+    }
+
+    /**
+     * 記憶済みの並べ替えた結果からインスタンスを初期化します。
+     * @param snapshot           並べ替えた結果
+     * @param comparableSelector 比較値への射影関数
+     */
+    SortedItems(Snapshot<T, C> snapshot, Function<? super T, ? extends C> comparableSelector) {
+        this.source = snapshot.items;
+        this.sorted = null;
+        this.comparableSelector = comparableSelector;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Snapshot<T, C> snapshot = peekSnapshot();
+        return snapshot == null ? source.iterator() : snapshot.items.iterator();
+    }
+
+    /**
+     * 記憶済みの並べ替えた結果を取得します。記憶していない場合は null を返します。
+     * @return 並べ替えた結果
+     */
+    Snapshot<T, C> peekSnapshot() {
+        return sorted == null ? snapshot : sorted.peekSnapshot();
+    }
+
+    /**
+     * 並べ替えた結果を取得します。初めて取得する場合は要素を列挙して記憶します。
+     * @return 並べ替えた結果
+     */
+    Snapshot<T, C> snapshot() {
+        if (sorted != null) {
+            return sorted.snapshot();
+        }
+        Snapshot<T, C> snapshot = this.snapshot;
+        if (snapshot == null) {
+            ArrayList<T> items = new ArrayList<T>();
+            ArrayList<C> keys = new ArrayList<C>();
+            for (T item : source) {
+                items.add(item);
+                keys.add(comparableSelector.apply(item));
+            }
+            this.snapshot = snapshot = new Snapshot<T, C>(Collections.unmodifiableList(items), keys);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 並べ替えた要素と、それぞれの比較値のリストを表します。
+     */
+    static final class Snapshot<T, C extends Comparable<C>> {
+        final List<T> items;
+        final List<C> keys;
+        /** 比較値が最大の要素のうち最も先頭に近い要素のインデックス (要素がない場合は -1) */
+        final int maxIndex;
+
+        Snapshot(List<T> items, List<C> keys) {
+            this.items = items;
+            this.keys = keys;
+            this.maxIndex = keys.isEmpty() ? -1 : lowerBound(keys.get(keys.size() - 1));
+        }
+
+        /**
+         * 比較値が指定された値以上である最初の要素のインデックスを二分探索します。
+         * @param key 比較値
+         * @return    インデックス (該当する要素がない場合は要素数)
+         */
+        int lowerBound(C key) {
+            int low = 0;
+            int high = keys.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys.get(middle).compareTo(key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 比較値が指定された値より大きい最初の要素のインデックスを二分探索します。
+         * @param key 比較値
+         * @return    インデックス (該当する要素がない場合は要素数)
+         */
+        int upperBound(C key) {
+            int low = 0;
+            int high = keys.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys.get(middle).compareTo(key) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 指定された範囲の要素のビューを作成します。
+         * @param from 開始インデックス (この位置を含む)
+         * @param to   終了インデックス (この位置を含まない)
+         * @return     範囲の要素
+         */
+        Snapshot<T, C> subSnapshot(int from, int to) {
+            return new Snapshot<T, C>(items.subList(from, to), keys.subList(from, to));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 比較値の昇順に並べ替えたシーケンスを表します。並べ替えは最初に列挙された時点で一度だけ行い、結果を記憶して以降の列挙で返します。
+ * 比較値が等しい要素は元の順序を保ちます (安定ソート)。
+ * 要素数の上限が指定されている場合は、すべての要素を並べ替えずに上位の要素のみを保持するヒープで選択します。
+ * ただし上限のない並べ替えの結果を記憶済みであれば、その先頭部分を返します。
+ * 要素数が閾値以上の場合は、比較値への射影と並べ替えを並列に行います ({@link ParallelSort})。
+ */
+final class SortedIterable<T, C extends Comparable<C>> implements Iterable<T> {
+    private final Sequence<T> source;
+    private final Function<? super T, ? extends C> comparableSelector;
+    private final int limit;
+    private final boolean parallel;
+    private final SortedIterable<T, C> whole;   // 上限のない並べ替え (このインスタンスが上限のない並べ替えの場合は null)
+    private volatile SortedItems.Snapshot<T, C> snapshot;   // 並べ替えた結果の記憶 (並べ替えていない場合は null)
+
+    /**
+     * インスタンスを初期化します。
+     * @param source             並べ替える要素
+     * @param comparableSelector 比較値への射影関数
+     * @param limit              要素数の上限 (上限がない場合は {@link Integer#MAX_VALUE})
+     * @param parallel           要素数が閾値以上の場合に並列に並べ替える (射影関数を並列に適用してよい) 場合は true
+     */
+    SortedIterable(Sequence<T> source, Function<? super T, ? extends C> comparableSelector, int limit, boolean parallel) {
+        this(source, comparableSelector, limit, parallel, null);
+    }
+
+    private SortedIterable(Sequence<T> source, Function<? super T, ? extends C> comparableSelector, int limit, boolean parallel, SortedIterable<T, C> whole) {
+        this.source = source;
+        this.comparableSelector = comparableSelector;
+        this.limit = limit;
+        this.parallel = parallel;
+        this.whole = whole;
+    }
+
+    /**
+     * 要素数の上限を指定した並べ替えを返します。
+     * @param count 要素数の上限
+     * @return      並べ替え
+     */
+    SortedIterable<T, C> limit(int count) {
+        return count >= limit ? this : new SortedIterable<T, C>(source, comparableSelector, count, parallel, whole == null ? this : whole);
+    }
+
+    /**
+     * 並べ替えた最初の要素 (比較値が最小の要素のうち最も先頭に近い要素) を返します。
+     * 並べ替えた結果を記憶していない場合は、並べ替えずに最小の要素を探します。
+     * @return 最初の要素
+     */
+    Maybe<T> first() {
+        SortedItems.Snapshot<T, C> snapshot = peekSnapshot();
+        if (snapshot != null) {
+            return snapshot.items.isEmpty() ? Maybe.<T>nothing() : Maybe.of(snapshot.items.get(0));
+        }
+        return source.minBy(comparableSelector);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().items.iterator();
+    }
+
+    /**
+     * 記憶済みの並べ替えた結果を取得します。上限のない並べ替えの結果を記憶済みであれば、その先頭部分を返します。
+     * @return 並べ替えた結果 (記憶していない場合は null)
+     */
+    SortedItems.Snapshot<T, C> peekSnapshot() {
+        SortedItems.Snapshot<T, C> snapshot = this.snapshot;
+        if (snapshot == null && whole != null) {
+            SortedItems.Snapshot<T, C> sorted = whole.snapshot;
+            if (sorted != null) {
+                this.snapshot = snapshot = sorted.subSnapshot(0, Math.min(limit, sorted.items.size()));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 並べ替えた結果 (要素と比較値) を取得します。初めて取得する場合は並べ替えて記憶します。
+     * @return 並べ替えた結果
+     */
+    SortedItems.Snapshot<T, C> snapshot() {
+        SortedItems.Snapshot<T, C> snapshot = peekSnapshot();
+        if (snapshot == null) {
+            this.snapshot = snapshot = sort();
+        }
+        return snapshot;
+    }
+
+    private SortedItems.Snapshot<T, C> sort() {
+        // 射影関数の適用回数を各要素に 1 回だけとするため、比較値と元の位置を添えた要素を並べ替える
+        Iterator<T> iterator = source.traverse(false);
+        List<Keyed<T, C>> keyed;
+        if (limit == Integer.MAX_VALUE) {
+            ArrayList<T> items = new ArrayList<T>();
+            while (iterator.hasNext()) {
+                items.add(iterator.next());
+            }
+            if (parallel && ParallelSort.isWorthwhile(items.size())) {
+                keyed = Arrays.asList(ParallelSort.sort(items, comparableSelector));
+                return snapshotOf(keyed);
+            }
+            keyed = new ArrayList<Keyed<T, C>>(items.size());
+            for (int index = 0; index < items.size(); index++) {
+                T item = items.get(index);
+                keyed.add(new Keyed<T, C>(item, comparableSelector.apply(item), index));
+            }
+        } else {
+            // 先頭がこれまでの上位 limit 要素のうち最も後ろになる要素であるヒープ
+            PriorityQueue<Keyed<T, C>> heap = new PriorityQueue<Keyed<T, C>>(Math.min(limit, 64) + 1, Collections.<Keyed<T, C>>reverseOrder());
+            for (int index = 0; iterator.hasNext(); index++) {
+                T item = iterator.next();
+                C key = comparableSelector.apply(item);
+                if (heap.size() < limit) {
+                    heap.add(new Keyed<T, C>(item, key, index));
+                } else if (key.compareTo(heap.peek().key) < 0) {
+                    // 比較値が等しい場合は先に現れた要素を優先するため、後から現れた要素では置き換えない
+                    heap.poll();
+                    heap.add(new Keyed<T, C>(item, key, index));
+                }
+            }
+            keyed = new ArrayList<Keyed<T, C>>(heap);
+        }
+        Collections.sort(keyed);
+        return snapshotOf(keyed);
+    }
+
+    /**
+     * 並べ替えた比較値と元の位置を添えた要素から、要素と比較値のリストを作成します。
+     * @param keyed 並べ替えた比較値と元の位置を添えた要素
+     * @return      並べ替えた結果
+     */
+    private static <T, C extends Comparable<C>> SortedItems.Snapshot<T, C> snapshotOf(List<Keyed<T, C>> keyed) {
+        ArrayList<T> items = new ArrayList<T>(keyed.size());
+        ArrayList<C> keys = new ArrayList<C>(keyed.size());
+        for (Keyed<T, C> k : keyed) {
+            items.add(k.item);
+            keys.add(k.key);
+        }
+        return new SortedItems.Snapshot<T, C>(Collections.unmodifiableList(items), keys);
+    }
+}
@@ -0,0 +1,193 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+import minimal.sequence.function.Predicate;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 比較値の昇順に並んでいることがわかっているシーケンスを表します ({@link Sequence#sortBy(Function)})。
+ * 比較値への射影関数を保持し、並び順を利用した検索と集合演算を提供します。
+ * 並べ替えた結果は最初の列挙または検索 ({@link #contains}, {@link #indexOf(Object)}, {@link #rangeBetween}, {@link #min()}, {@link #max()}) の時点で
+ * 一度だけ作成して記憶し、以降の検索と列挙は記憶した結果に対して行います。並べ替えで求めた比較値も記憶するため、検索で射影関数を適用するのは検索する値のみです。
+ * 集合演算 ({@link #distinct()}, {@link #intersect}, {@link #union}) は、昇順に並んだ要素を先頭から 1 回ずつ比較するマージで行います。
+ * 比較値は要素の等価性と矛盾しない (等しい要素の比較値は等しい) ものとします。
+ * @param <T> 要素の型
+ * @param <C> 比較値の型
+ */
+public final class SortedSequence<T, C extends Comparable<C>> extends Sequence<T> {
+    private final SortedItems<T, C> sortedItems;
+
+    SortedSequence(SortedItems<T, C> sortedItems, Integer size, boolean infinite, Probe probe, Plan plan) {
+        super(sortedItems, size, infinite, probe, plan);
+        this.sortedItems = sortedItems;
+    }
+
+    /**
+     * 比較値への射影関数を取得します。
+     * @return 比較値への射影関数
+     */
+    public Function<? super T, ? extends C> comparableSelector() {
+        return sortedItems.comparableSelector;
+    }
+
+    /**
+     * 指定されたオブジェクトに一致する最初の要素のインデックスを、比較値の二分探索で O(log n) で取得します (比較値が等しい要素の中では先頭から探します)。
+     * オブジェクトに一致する要素が含まれていない場合は -1 を返します。
+     * @param object オブジェクト
+     * @return       オブジェクトに一致する最初の要素のインデックス
+     */
+    @Override
+    public int indexOf(T object) {
+        if (object == null) {
+            // 射影関数が null を受け付けるとは限らないため、順に調べる
+            return super.indexOf(object);
+        }
+        SortedItems.Snapshot<T, C> snapshot = snapshot();
+        C key = sortedItems.comparableSelector.apply(object);
+        for (int i = snapshot.lowerBound(key), end = snapshot.upperBound(key); i < end; i++) {
+            if (Objects.equals(snapshot.items.get(i), object)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 指定されたオブジェクトが含まれているかどうかを、比較値の二分探索で O(log n) で調べます。
+     * @param object オブジェクト
+     * @return       指定されたオブジェクトが含まれている場合は true, そうでない場合は false
+     */
+    @Override
+    public boolean contains(T object) {
+        return indexOf(object) != -1;
+    }
+
+    /**
+     * 比較値が指定された範囲にある要素のシーケンスを、比較値の二分探索で O(log n) で返します。返すシーケンスは記憶した結果のビューです。
+     * @param from 比較値の下限 (この値を含む)
+     * @param to   比較値の上限 (この値を含まない)
+     * @return     比較値が範囲にある要素のシーケンス
+     * @throws IllegalArgumentException 下限が上限より大きい場合
+     */
+    public SortedSequence<T, C> rangeBetween(C from, C to) {
+        if (from.compareTo(to) > 0) {
+            throw new IllegalArgumentException("from(" + from + ") > to(" + to + ")");
+        }
+        SortedItems.Snapshot<T, C> snapshot = snapshot();
+        int start = snapshot.lowerBound(from);
+        int end = Math.max(start, snapshot.lowerBound(to));
+        return new SortedSequence<T, C>(new SortedItems<T, C>(snapshot.subSnapshot(start, end), sortedItems.comparableSelector), end - start, false, null, null);
+    }
+
+    /**
+     * 比較値が最小の (同値の場合は先頭に近い) 要素、つまり最初の要素を返します。記憶した結果から O(1) で求めます。
+     * @return 最小要素
+     */
+    public Maybe<T> min() {
+        SortedItems.Snapshot<T, C> snapshot = snapshot();
+        return snapshot.items.isEmpty() ? Maybe.<T>nothing() : Maybe.of(snapshot.items.get(0));
+    }
+
+    /**
+     * 比較値が最大の (同値の場合は先頭に近い) 要素を返します。記憶した結果から O(1) で求めます。
+     * @return 最大要素
+     */
+    public Maybe<T> max() {
+        SortedItems.Snapshot<T, C> snapshot = snapshot();
+        return snapshot.maxIndex == -1 ? Maybe.<T>nothing() : Maybe.of(snapshot.items.get(snapshot.maxIndex));
+    }
+
+    /**
+     * 比較値への射影関数を適用して、比較値が最小の要素を返します。
+     * 並べ替えた結果を記憶済み (一度でも列挙または検索した後) であり、射影関数が並べ替えに用いたものと同じインスタンスの場合は O(1) で求めます。
+     * @param comparableSelector 比較値への射影関数
+     * @param <D>                比較値の型
+     * @return                   最小要素
+     */
+    @Override
+    public <D extends Comparable<D>> Maybe<T> minBy(Function<? super T, ? extends D> comparableSelector) {
+        return comparableSelector == sortedItems.comparableSelector && sortedItems.peekSnapshot() != null ? min() : super.minBy(comparableSelector);
+    }
+
+    /**
+     * 比較値への射影関数を適用して、比較値が最大の要素を返します。
+     * 並べ替えた結果を記憶済み (一度でも列挙または検索した後) であり、射影関数が並べ替えに用いたものと同じインスタンスの場合は O(1) で求めます。
+     * @param comparableSelector 比較値への射影関数
+     * @param <D>                比較値の型
+     * @return                   最大要素
+     */
+    @Override
+    public <D extends Comparable<D>> Maybe<T> maxBy(Function<? super T, ? extends D> comparableSelector) {
+        return comparableSelector == sortedItems.comparableSelector && sortedItems.peekSnapshot() != null ? max() : super.maxBy(comparableSelector);
+    }
+
+    /**
+     * 重複する要素を除外します。等しい要素は比較値が等しく隣接する範囲に並んでいるため、比較値が等しい範囲の要素のみを保持して判定します。
+     * @return 重複を除外したシーケンス
+     */
+    @Override
+    public SortedSequence<T, C> distinct() {
+        final Function<? super T, ? extends C> comparableSelector = sortedItems.comparableSelector;
+        return of(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new FilteredIterator<T>(SortedSequence.this.iterator(), new Predicate<T>() {
+                    private final HashSet<T> seen = new HashSet<T>();
+                    private C lastKey;
+
+                    @Override
+                    public boolean test(T t) {
+                        C key = comparableSelector.apply(t);
+                        if (lastKey == null || key.compareTo(lastKey) != 0) {
+                            seen.clear();
+                            lastKey = key;
+                        }
+                        return seen.add(t);
+                    }
+                });
+            }
+        }).assumeSorted(comparableSelector);
+    }
+
+    /**
+     * 同じ比較値で昇順に並んだシーケンスとの共通部分を、先頭から 1 回ずつ比較するマージで求めます。
+     * 比較値が等しい範囲ごとに要素の等価性で比較し ({@link #distinct()} と同様)、両方のシーケンスに含まれる要素をこのシーケンスの順に重複なく返します。
+     * 昇順に並んでいない要素が見つかった場合は {@link IllegalStateException} をスローします。
+     * @param other 昇順に並んだシーケンス
+     * @return      共通部分のシーケンス
+     */
+    public SortedSequence<T, C> intersect(Iterable<? extends T> other) {
+        return setOperation(other, false);
+    }
+
+    /**
+     * 同じ比較値で昇順に並んだシーケンスとの和集合を、先頭から 1 回ずつ比較するマージで求めます。
+     * 比較値が等しい範囲ごとに要素の等価性で比較し ({@link #distinct()} と同様)、いずれかのシーケンスに含まれる要素を重複なく返します
+     * (比較値が等しい範囲ではこのシーケンスの要素を先に返します)。
+     * 昇順に並んでいない要素が見つかった場合は {@link IllegalStateException} をスローします。
+     * @param other 昇順に並んだシーケンス
+     * @return      和集合のシーケンス
+     */
+    public SortedSequence<T, C> union(Iterable<? extends T> other) {
+        return setOperation(other, true);
+    }
+
+    private SortedSequence<T, C> setOperation(final Iterable<? extends T> other, final boolean union) {
+        final Function<? super T, ? extends C> comparableSelector = sortedItems.comparableSelector;
+        return of(new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new SortedSetOperationIterator<T, C>(SortedSequence.this.iterator(), other.iterator(), comparableSelector, union);
+            }
+        }).assumeSorted(comparableSelector);
+    }
+
+    private SortedItems.Snapshot<T, C> snapshot() {
+        requireFinite();
+        return sortedItems.snapshot();
+    }
+}
@@ -0,0 +1,137 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * 比較値の昇順に並んだ 2 つのイテレーターを並行して進めて、共通部分または和集合の要素を重複なく返すイテレーターを表します。
+ * 比較値が等しい範囲ごとに要素の等価性で比較するため、比較値が等しくても異なる要素はそれぞれ返します。
+ * 要素数の和に比例する時間と、比較値が等しい範囲の要素数に比例するメモリーを使用します。
+ */
+final class SortedSetOperationIterator<T, C extends Comparable<C>> implements Iterator<T> {
+    private final Head<T, C> left;
+    private final Head<T, C> right;
+    private final Function<? super T, ? extends C> comparableSelector;
+    private final boolean union;
+    private final LinkedList<T> pending = new LinkedList<T>();   // 要素は null でもよいため ArrayDeque は使わない
+    private boolean started;
+
+    /**
+     * インスタンスを初期化します。
+     * @param left               比較値の昇順に並んだ左側のイテレーター
+     * @param right              比較値の昇順に並んだ右側のイテレーター
+     * @param comparableSelector 比較値への射影関数
+     * @param union              和集合を求める場合は true, 共通部分を求める場合は false
+     */
+    SortedSetOperationIterator(Iterator<? extends T> left, Iterator<? extends T> right, Function<? super T, ? extends C> comparableSelector, boolean union) {
+        this.left = new Head<T, C>(0, left);
+        this.right = new Head<T, C>(1, right);
+        this.comparableSelector = comparableSelector;
+        this.union = union;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            advance(left);
+            advance(right);
+        }
+        while (pending.isEmpty()) {
+            if (union) {
+                if (!left.present && !right.present) {
+                    return false;
+                }
+                C key = !left.present ? right.key : !right.present || left.key.compareTo(right.key) <= 0 ? left.key : right.key;
+                // 比較値が等しい範囲では、左側の要素を先に返す
+                HashSet<T> seen = new HashSet<T>();
+                addRun(left, key, seen, true);
+                addRun(right, key, seen, true);
+            } else {
+                if (!left.present || !right.present) {
+                    return false;
+                }
+                int comparison = left.key.compareTo(right.key);
+                if (comparison != 0) {
+                    advance(comparison < 0 ? left : right);
+                    continue;
+                }
+                C key = left.key;
+                HashSet<T> others = new HashSet<T>();
+                addRun(right, key, others, false);
+                while (left.present && left.key.compareTo(key) == 0) {
+                    if (others.remove(left.item)) {
+                        pending.add(left.item);
+                    }
+                    advance(left);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.poll();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 比較値が等しい範囲の要素を取り出して集合に追加します。
+     * @param head イテレーター
+     * @param key  比較値
+     * @param set  集合
+     * @param emit 集合に追加した (初めて現れた) 要素を返す要素にも追加する場合は true
+     */
+    private void addRun(Head<T, C> head, C key, HashSet<T> set, boolean emit) {
+        while (head.present && head.key.compareTo(key) == 0) {
+            if (set.add(head.item) && emit) {
+                pending.add(head.item);
+            }
+            advance(head);
+        }
+    }
+
+    private void advance(Head<T, C> head) {
+        if (!head.iterator.hasNext()) {
+            head.present = false;
+            head.item = null;
+            return;
+        }
+        T item = head.iterator.next();
+        C key = comparableSelector.apply(item);
+        if (head.key != null && key.compareTo(head.key) < 0) {
+            throw new IllegalStateException("sequence " + head.source + " is not sorted: " + key + " after " + head.key);
+        }
+        head.item = item;
+        head.key = key;
+        head.present = true;
+    }
+
+    /**
+     * イテレーターと、取り出した先頭の要素を表します。
+     */
+    private static final class Head<T, C> {
+        final int source;
+        final Iterator<? extends T> iterator;
+        T item;
+        C key;
+        boolean present;
+
+        Head(int source, Iterator<? extends T> iterator) {
+            this.source = source;
+            this.iterator = iterator;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Predicate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 1 回の上流の列挙を、先頭から条件を満たしている間の要素 (前半) と残りの要素 (後半) で共有する分割を表します。
+ * 要素は列挙されるまで取り出さず、取り出した要素は記憶して 2 回目以降の列挙で返します。
+ * 前半は取り出しながら返すため、条件を満たし続ける無限シーケンスでも先頭から順に列挙できます。
+ * 後半を列挙する場合は、前半の残りの要素を取り出して記憶してから続きを取り出します。条件は各要素に高々 1 回だけ適用します。
+ */
+final class SpanningIterable<T> {
+    private final Predicate<? super T> predicate;
+    private final List<T> prefix = new ArrayList<T>();
+    private final List<T> rest = new ArrayList<T>();
+    private Sequence<T> source;         // 列挙を開始したら null
+    private Iterator<T> iterator;       // 列挙し終えたら null
+    private boolean prefixCompleted;
+
+    SpanningIterable(Sequence<T> source, Predicate<? super T> predicate) {
+        this.source = source;
+        this.predicate = predicate;
+    }
+
+    /**
+     * 前半の要素を取得します。
+     * @return 前半の要素
+     */
+    Iterable<T> prefix() {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new MemoIterator(true);
+            }
+        };
+    }
+
+    /**
+     * 後半の要素を取得します。
+     * @return 後半の要素
+     */
+    Iterable<T> rest() {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new MemoIterator(false);
+            }
+        };
+    }
+
+    /**
+     * 前半の指定された位置の要素を記憶していなければ上流から取り出します。
+     * @param index 位置
+     * @return      指定された位置に前半の要素がある場合は true, そうでない場合は false
+     */
+    private synchronized boolean fillPrefix(int index) {
+        while (index >= prefix.size() && !prefixCompleted) {
+            Iterator<T> upstream = upstream();
+            if (upstream == null || !upstream.hasNext()) {
+                prefixCompleted = true;
+                iterator = null;
+                break;
+            }
+            T item = upstream.next();
+            if (predicate.test(item)) {
+                prefix.add(item);
+            } else {
+                prefixCompleted = true;
+                rest.add(item);
+            }
+        }
+        return index < prefix.size();
+    }
+
+    /**
+     * 後半の指定された位置の要素を記憶していなければ、前半の残りの要素を取り出してから上流から取り出します。
+     * @param index 位置
+     * @return      指定された位置に後半の要素がある場合は true, そうでない場合は false
+     */
+    private synchronized boolean fillRest(int index) {
+        while (!prefixCompleted) {
+            fillPrefix(prefix.size());
+        }
+        while (index >= rest.size() && iterator != null) {
+            if (iterator.hasNext()) {
+                rest.add(iterator.next());
+            } else {
+                iterator = null;
+            }
+        }
+        return index < rest.size();
+    }
+
+    private Iterator<T> upstream() {
+        if (source != null) {
+            iterator = source.iterator();
+            source = null;
+        }
+        return iterator;
+    }
+
+    private synchronized T get(boolean inPrefix, int index) {
+        return (inPrefix ? prefix : rest).get(index);
+    }
+
+    /**
+     * 記憶した前半または後半の要素を先頭から返すイテレーターを表します。
+     */
+    private final class MemoIterator implements Iterator<T> {
+        private final boolean inPrefix;
+        private int index = 0;
+
+        MemoIterator(boolean inPrefix) {
+            this.inPrefix = inPrefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return inPrefix ? fillPrefix(index) : fillRest(index);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(inPrefix, index++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
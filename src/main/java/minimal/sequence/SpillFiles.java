@@ -0,0 +1,178 @@
+package minimal.sequence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 要素を退避する一時ファイルの集まりを表します。
+ * 一時ファイルは閉じた時点で削除します。閉じられないまま所有者 (イテレーター) が回収された場合は、
+ * 回収を待ち受けるデーモンスレッドが削除します。JVM の終了時には、まだ閉じられていない一時ファイルを削除します。
+ * ({@link File#deleteOnExit()} は削除済みのファイルの名前も終了時まで保持し続けるため用いません)。
+ */
+final class SpillFiles implements Closeable {
+    private static final ReferenceQueue<Object> abandoned = new ReferenceQueue<Object>();
+    private static final Set<Abandonment> pending = Collections.synchronizedSet(new HashSet<Abandonment>());
+
+    static {
+        Thread cleaner = new Thread("sequence-spill-cleaner") {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        ((Abandonment) abandoned.remove()).files.close();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        cleaner.setDaemon(true);
+        cleaner.start();
+        Runtime.getRuntime().addShutdownHook(new Thread("sequence-spill-shutdown") {
+            @Override
+            public void run() {
+                List<Abandonment> remaining;
+                synchronized (pending) {
+                    remaining = new ArrayList<Abandonment>(pending);
+                }
+                for (Abandonment abandonment : remaining) {
+                    abandonment.files.close();
+                }
+            }
+        });
+    }
+
+    private final File directory;
+    private final List<File> files = new ArrayList<File>();
+    private final List<Closeable> streams = new ArrayList<Closeable>();
+    private final Abandonment abandonment;
+    private boolean closed;
+
+    /**
+     * インスタンスを初期化します。
+     * @param owner     所有者 (回収された場合に一時ファイルを削除します)
+     * @param directory 一時ファイルを作成するディレクトリー (null の場合はシステムの一時ディレクトリー)
+     */
+    SpillFiles(Object owner, File directory) {
+        this.directory = directory;
+        this.abandonment = new Abandonment(owner, this);
+        pending.add(abandonment);
+    }
+
+    /**
+     * 一時ファイルを作成して、書き込むストリームを開きます。
+     * @return 一時ファイルと書き込むストリーム
+     * @throws IOException 作成に失敗した場合
+     */
+    synchronized Pair<File, DataOutputStream> create() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("spill files already closed");
+        }
+        File file = File.createTempFile("sequence-", ".spill", directory);
+        files.add(file);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        streams.add(out);
+        return Pair.of(file, out);
+    }
+
+    /**
+     * 書き込み終えたストリームを閉じます。
+     * @param stream 書き込むストリーム
+     * @throws IOException 閉じる際の書き込みに失敗した場合
+     */
+    synchronized void finish(Closeable stream) throws IOException {
+        streams.remove(stream);
+        stream.close();
+    }
+
+    /**
+     * 一時ファイルを読み込むストリームを開きます。
+     * @param file 一時ファイル
+     * @return     読み込むストリーム
+     * @throws IOException 開けなかった場合
+     */
+    synchronized DataInputStream open(File file) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("spill files already closed");
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        streams.add(in);
+        return in;
+    }
+
+    /**
+     * 読み終えた一時ファイルを閉じて削除します。
+     * @param file   一時ファイル
+     * @param stream 一時ファイルのストリーム
+     */
+    synchronized void release(File file, Closeable stream) {
+        closeQuietly(stream);
+        streams.remove(stream);
+        if (file.delete() || !file.exists()) {
+            files.remove(file);
+        }
+    }
+
+    /**
+     * すべてのストリームを閉じて、すべての一時ファイルを削除します。
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.remove(abandonment);
+        abandonment.clear();
+        for (Closeable stream : streams) {
+            closeQuietly(stream);
+        }
+        streams.clear();
+        for (File file : files) {
+            file.delete();
+        }
+        files.clear();
+    }
+
+    /**
+     * 作成した一時ファイルのうち削除していないものの数を取得します。
+     * @return 一時ファイル数
+     */
+    synchronized int size() {
+        return files.size();
+    }
+
+    private static void closeQuietly(Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // 削除する一時ファイルのストリームであるため無視する
+        }
+    }
+
+    /**
+     * 所有者が回収されたことを検知するための参照を表します。
+     */
+    private static final class Abandonment extends PhantomReference<Object> {
+        final SpillFiles files;
+
+        Abandonment(Object owner, SpillFiles files) {
+            super(owner, abandoned);
+            this.files = files;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package minimal.sequence;
+
+import minimal.sequence.function.ToLongFunction;
+
+import java.io.File;
+
+/**
+ * メモリーに収まらない要素を一時ファイルへ退避 (スピル) しながら処理する操作の設定を表します。
+ * インスタンスは不変であり、設定を変更するメソッドは変更した新しいインスタンスを返します。
+ * @see Sequence#sortBy(minimal.sequence.function.Function, SpillOptions)
+ */
+public final class SpillOptions<T> {
+    /**
+     * 既定のメモリー予算 (64 MiB) を表します。
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    /**
+     * 要素の大きさの既定の見積もり (64 バイト) を表します。
+     */
+    public static final long DEFAULT_ELEMENT_SIZE = 64;
+
+    private static final ToLongFunction<Object> defaultSizeEstimator = new ToLongFunction<Object>() {
+        @Override
+        public long apply(Object o) {
+            return DEFAULT_ELEMENT_SIZE;
+        }
+    };
+
+    private final ElementCodec<T> codec;
+    private final long memoryBudget;
+    private final ToLongFunction<? super T> sizeEstimator;
+    private final File directory;
+
+    private SpillOptions(ElementCodec<T> codec, long memoryBudget, ToLongFunction<? super T> sizeEstimator, File directory) {
+        this.codec = codec;
+        this.memoryBudget = memoryBudget;
+        this.sizeEstimator = sizeEstimator;
+        this.directory = directory;
+    }
+
+    /**
+     * 既定の設定を作成します。
+     * メモリー予算は {@link #DEFAULT_MEMORY_BUDGET}, 要素の大きさは一律に {@link #DEFAULT_ELEMENT_SIZE}, 一時ファイルはシステムの一時ディレクトリーに作成します。
+     * @param codec 要素の符号化方式
+     * @param <T>   要素の型
+     * @return      設定
+     */
+    public static <T> SpillOptions<T> of(ElementCodec<T> codec) {
+        if (codec == null) {
+            throw new NullPointerException("codec");
+        }
+        return new SpillOptions<T>(codec, DEFAULT_MEMORY_BUDGET, defaultSizeEstimator, null);
+    }
+
+    /**
+     * メモリーに保持する要素の大きさの合計の上限を指定します。上限に達するたびに保持している要素を一時ファイルへ退避します。
+     * @param bytes 上限 (バイト数)
+     * @return      設定
+     */
+    public SpillOptions<T> memoryBudget(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("memory budget must be positive: " + bytes);
+        }
+        return new SpillOptions<T>(codec, bytes, sizeEstimator, directory);
+    }
+
+    /**
+     * メモリー上の要素の大きさ (バイト数) を見積もる関数を指定します。
+     * @param estimator 要素の大きさを見積もる関数
+     * @return          設定
+     */
+    public SpillOptions<T> sizeEstimator(ToLongFunction<? super T> estimator) {
+        if (estimator == null) {
+            throw new NullPointerException("estimator");
+        }
+        return new SpillOptions<T>(codec, memoryBudget, estimator, directory);
+    }
+
+    /**
+     * 一時ファイルを作成するディレクトリーを指定します。
+     * @param directory ディレクトリー (null の場合はシステムの一時ディレクトリー)
+     * @return          設定
+     */
+    public SpillOptions<T> directory(File directory) {
+        return new SpillOptions<T>(codec, memoryBudget, sizeEstimator, directory);
+    }
+
+    ElementCodec<T> codec() {
+        return codec;
+    }
+
+    long memoryBudget() {
+        return memoryBudget;
+    }
+
+    long estimateSize(T item) {
+        return sizeEstimator.apply(item);
+    }
+
+    File directory() {
+        return directory;
+    }
+}
@@ -0,0 +1,54 @@
+package minimal.sequence;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 一時ファイルへ退避した要素を読み戻すイテレーターを表します。読み終えた一時ファイルはその時点で削除します。
+ */
+final class SpilledRunIterator<T> implements Iterator<T> {
+    private final SpillFiles files;
+    private final File file;
+    private final ElementCodec<T> codec;
+    private long remaining;
+    private DataInputStream in;
+
+    SpilledRunIterator(SpillFiles files, File file, ElementCodec<T> codec, long count) {
+        this.files = files;
+        this.file = file;
+        this.codec = codec;
+        this.remaining = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    @Override
+    public T next() {
+        if (remaining <= 0) {
+            throw new NoSuchElementException();
+        }
+        try {
+            if (in == null) {
+                in = files.open(file);
+            }
+            T item = codec.read(in);
+            if (--remaining == 0) {
+                files.release(file, in);
+            }
+            return item;
+        } catch (IOException e) {
+            throw new SequenceException("failed to read spilled elements: " + file, e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
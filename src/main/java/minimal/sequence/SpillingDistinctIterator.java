@@ -0,0 +1,146 @@
+package minimal.sequence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * メモリー予算を超える要素をハッシュ値で振り分けて一時ファイルへ退避しながら重複を除くイテレーターを表します。
+ * 既出の要素の集合がメモリー予算に収まる間は最初に現れた順に要素を返します。
+ * 収まらなくなった時点で既出の要素に「返却済み」の印を添えて区画へ振り分け、以降の要素も区画へ振り分けた後、
+ * 区画を 1 つずつ読み戻して返却済みでない要素を返します。区画へ振り分けた後の要素の順序は不定です。
+ */
+final class SpillingDistinctIterator<T> implements Iterator<T>, Closeable {
+    private final Iterator<T> source;
+    private final SpillOptions<T> options;
+    private final Deque<HashPartitions.Reader<T>> pending = new ArrayDeque<HashPartitions.Reader<T>>();
+    private SpillFiles files;
+    private boolean started;
+    private boolean closed;
+
+    // 読み込み中の上流のシーケンスのイテレーターまたは区画と、その既出の要素
+    private Iterator<T> iterator;
+    private HashPartitions.Reader<T> partition;
+    private HashSet<T> seen;
+    private long bytes;
+    private HashPartitions<T> partitions;
+
+    private T next;
+    private boolean ready;
+
+    SpillingDistinctIterator(Iterator<T> source, SpillOptions<T> options) {
+        this.source = source;
+        this.options = options;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (!ready) {
+                if (closed) {
+                    return false;
+                }
+                if (!started) {
+                    started = true;
+                    begin(source, null);
+                }
+                T item;
+                boolean mark;
+                if (iterator != null ? iterator.hasNext() : partition.next()) {
+                    item = iterator != null ? iterator.next() : partition.item();
+                    mark = iterator == null && partition.mark();
+                } else {
+                    if (partitions != null) {
+                        pending.addAll(partitions.finish());
+                    }
+                    HashPartitions.Reader<T> reader = pending.poll();
+                    if (reader == null) {
+                        close();
+                        return false;
+                    }
+                    begin(null, reader);
+                    continue;
+                }
+                if (partitions != null) {
+                    partitions.add(item, item, mark);
+                    continue;
+                }
+                if (seen.add(item)) {
+                    bytes += options.estimateSize(item);
+                    if (!mark) {
+                        next = item;
+                        ready = true;
+                    }
+                    int depth = partition == null ? 0 : partition.depth() + 1;
+                    if (bytes >= options.memoryBudget() && depth <= HashPartitions.MAX_DEPTH) {
+                        spill(depth);
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            close();
+            throw new SequenceException("failed to spill elements", e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        } catch (Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        T item = next;
+        next = null;
+        return item;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 一時ファイルを削除します。以降は要素を取り出せません。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ready = false;
+        next = null;
+        seen = null;
+        pending.clear();
+        if (files != null) {
+            files.close();
+        }
+    }
+
+    private void begin(Iterator<T> iterator, HashPartitions.Reader<T> partition) {
+        this.iterator = iterator;
+        this.partition = partition;
+        this.seen = new HashSet<T>();
+        this.bytes = 0;
+        this.partitions = null;
+    }
+
+    private void spill(int depth) throws IOException {
+        if (files == null) {
+            files = new SpillFiles(this, options.directory());
+        }
+        partitions = new HashPartitions<T>(files, options.codec(), depth);
+        for (T item : seen) {
+            partitions.add(item, item, true);
+        }
+        seen = null;
+    }
+}
@@ -0,0 +1,142 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * メモリー予算を超える要素をキーのハッシュ値で振り分けて一時ファイルへ退避しながらグループ化するイテレーターを表します。
+ * 要素がメモリー予算に収まる場合は最初に現れた順にグループを返します。
+ * 収まらない場合はすべての要素を区画へ振り分けてから区画を 1 つずつ読み戻してグループ化するため、グループの順序は不定です。
+ * 読み戻した区画がメモリー予算に収まらない場合は、さらに振り分け直します。
+ */
+final class SpillingGroupingIterator<T, K> implements Iterator<Pair<K, Sequence<T>>>, Closeable {
+    private final Iterator<T> source;
+    private final Function<? super T, ? extends K> keySelector;
+    private final SpillOptions<T> options;
+    private final Deque<HashPartitions.Reader<T>> pending = new ArrayDeque<HashPartitions.Reader<T>>();
+    private boolean started;
+    private boolean closed;
+    private SpillFiles files;
+    private Iterator<Map.Entry<K, List<T>>> groups;
+
+    SpillingGroupingIterator(Iterator<T> source, Function<? super T, ? extends K> keySelector, SpillOptions<T> options) {
+        this.source = source;
+        this.keySelector = keySelector;
+        this.options = options;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (groups == null || !groups.hasNext()) {
+                if (closed) {
+                    return false;
+                }
+                if (!started) {
+                    started = true;
+                    groups = group(source, null);
+                    continue;
+                }
+                HashPartitions.Reader<T> partition = pending.poll();
+                if (partition == null) {
+                    close();
+                    return false;
+                }
+                groups = group(null, partition);
+            }
+            return true;
+        } catch (IOException e) {
+            close();
+            throw new SequenceException("failed to spill elements", e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        } catch (Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Pair<K, Sequence<T>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map.Entry<K, List<T>> group = groups.next();
+        return Pair.of(group.getKey(), Sequence.of(group.getValue()));
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 一時ファイルを削除します。以降は要素を取り出せません。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        groups = null;
+        pending.clear();
+        if (files != null) {
+            files.close();
+        }
+    }
+
+    /**
+     * 上流のシーケンスまたは区画の要素をグループ化します。メモリー予算を超えた場合は区画へ振り分けます。
+     * @param iterator  上流のシーケンスのイテレーター (区画を読み戻す場合は null)
+     * @param partition 区画 (上流のシーケンスをグループ化する場合は null)
+     * @return          メモリー上でグループ化できた場合はグループ, 区画へ振り分けた場合は null
+     * @throws IOException 退避に失敗した場合
+     */
+    private Iterator<Map.Entry<K, List<T>>> group(Iterator<T> iterator, HashPartitions.Reader<T> partition) throws IOException {
+        int depth = partition == null ? 0 : partition.depth() + 1;
+        LinkedHashMap<K, List<T>> map = new LinkedHashMap<K, List<T>>();
+        HashPartitions<T> partitions = null;
+        long bytes = 0;
+        while (iterator != null ? iterator.hasNext() : partition.next()) {
+            T item = iterator != null ? iterator.next() : partition.item();
+            K key = keySelector.apply(item);
+            if (partitions != null) {
+                partitions.add(key, item, false);
+                continue;
+            }
+            List<T> list = map.get(key);
+            if (list == null) {
+                map.put(key, list = new ArrayList<T>());
+            }
+            list.add(item);
+            bytes += options.estimateSize(item);
+            if (bytes >= options.memoryBudget() && depth <= HashPartitions.MAX_DEPTH) {
+                if (files == null) {
+                    files = new SpillFiles(this, options.directory());
+                }
+                partitions = new HashPartitions<T>(files, options.codec(), depth);
+                for (Map.Entry<K, List<T>> entry : map.entrySet()) {
+                    for (T t : entry.getValue()) {
+                        partitions.add(entry.getKey(), t, false);
+                    }
+                }
+                map = null;
+            }
+        }
+        if (partitions == null) {
+            return map.entrySet().iterator();
+        }
+        pending.addAll(partitions.finish());
+        return Collections.<Map.Entry<K, List<T>>>emptyIterator();
+    }
+}
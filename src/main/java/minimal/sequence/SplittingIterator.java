@@ -0,0 +1,70 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 文字列を区切り文字列で分割した、各部分のビュー ({@link CharSlice}) を要素とするイテレーターを表します。
+ * 区切り文字列が連続する場合や先頭, 末尾にある場合は空の部分を返すため、区切り文字列が n 個の場合は n + 1 個の部分になります。
+ * 区切り文字列が 1 文字の場合は文字を比較するだけで探索し、文字列が {@link String} の場合は {@link String#indexOf} で探索します。
+ */
+final class SplittingIterator implements Iterator<CharSlice> {
+    private final CharSequence text;
+    private final CharSequence delimiter;
+    private final char delimiterChar;
+    private int start;
+    private boolean finished;
+
+    SplittingIterator(CharSequence text, CharSequence delimiter) {
+        this.text = text;
+        this.delimiter = delimiter;
+        this.delimiterChar = delimiter.charAt(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !finished;
+    }
+
+    @Override
+    public CharSlice next() {
+        if (finished) {
+            throw new NoSuchElementException();
+        }
+        int end = indexOfDelimiter(start);
+        if (end < 0) {
+            finished = true;
+            return new CharSlice(text, start, text.length());
+        }
+        CharSlice slice = new CharSlice(text, start, end);
+        start = end + delimiter.length();
+        return slice;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private int indexOfDelimiter(int from) {
+        if (text instanceof String) {
+            return delimiter.length() == 1 ? ((String) text).indexOf(delimiterChar, from) : ((String) text).indexOf(delimiter.toString(), from);
+        }
+        int last = text.length() - delimiter.length();
+        for (int i = from; i <= last; i++) {
+            if (text.charAt(i) == delimiterChar && matchesAt(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(int index) {
+        for (int i = 1, length = delimiter.length(); i < length; i++) {
+            if (text.charAt(index + i) != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package minimal.sequence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 1 つの生産者スレッドと 1 つの消費者スレッドの間で要素を受け渡すロックフリーのリングバッファーを表します。
+ * 追加位置は生産者のみ, 取り出し位置は消費者のみが更新するため、ロックや CAS を用いずに受け渡すことができます。
+ * null の要素も受け渡すことができます。
+ */
+final class SpscRingBuffer<T> {
+    private final Object[] elements;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // 次に取り出す位置 (消費者のみが更新する)
+    private final AtomicLong tail = new AtomicLong();   // 次に追加する位置 (生産者のみが更新する)
+
+    /**
+     * インスタンスを初期化します。
+     * @param capacity 容量 (2 の累乗に切り上げます)
+     */
+    SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.elements = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 要素を追加します (生産者スレッドからのみ呼び出します)。
+     * @param item 要素
+     * @return     追加した場合は true, バッファーが満杯の場合は false
+     */
+    boolean offer(T item) {
+        long t = tail.get();
+        if (t - head.get() == elements.length) {
+            return false;
+        }
+        elements[(int) t & mask] = item;
+        // 要素の書き込みを追加位置の更新より前に公開する
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * 要素を取り出します (消費者スレッドからのみ、空でないことを確認してから呼び出します)。
+     * @return 要素
+     */
+    @SuppressWarnings("unchecked")
+    T take() {
+        long h = head.get();
+        int index = (int) h & mask;
+        T item = (T) elements[index];
+        elements[index] = null;
+        head.lazySet(h + 1);
+        return item;
+    }
+
+    /**
+     * バッファーが空かどうかを調べます。
+     * @return 空の場合は true, そうでない場合は false
+     */
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * バッファー内の要素数を取得します。
+     * @return 要素数
+     */
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * 容量を取得します。
+     * @return 容量
+     */
+    int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * バッファーが満杯かどうかを調べます。
+     * @return 満杯の場合は true, そうでない場合は false
+     */
+    boolean isFull() {
+        return tail.get() - head.get() == elements.length;
+    }
+}
@@ -0,0 +1,47 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 先頭から一定間隔の要素を抽出するイテレーターを表します。
+ */
+final class SteppingIterator<T> implements Iterator<T> {
+    private final Iterator<T> source;
+    private final int step;
+    private int skipping;   // 次の要素までに読み飛ばす要素数
+
+    SteppingIterator(Iterator<T> source, int step) {
+        this.source = source;
+        this.step = step;
+    }
+
+    @Override
+    public boolean hasNext() {
+        skip();
+        return source.hasNext();
+    }
+
+    @Override
+    public T next() {
+        skip();
+        if (!source.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        skipping = step - 1;
+        return source.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void skip() {
+        while (skipping > 0 && source.hasNext()) {
+            source.next();
+            --skipping;
+        }
+        skipping = 0;
+    }
+}
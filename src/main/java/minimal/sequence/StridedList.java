@@ -0,0 +1,37 @@
+package minimal.sequence;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 添字アクセス可能なリストの先頭から一定間隔の要素を参照するビューを表します。要素を複製しません。
+ */
+final class StridedList<T> extends AbstractList<T> implements RandomAccess {
+    private final List<T> list;
+    private final int stride;
+
+    /**
+     * インスタンスを初期化します。
+     * @param list   添字アクセス可能なリスト
+     * @param stride 間隔
+     */
+    StridedList(List<T> list, int stride) {
+        this.list = list;
+        this.stride = stride;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        return list.get(index * stride);
+    }
+
+    @Override
+    public int size() {
+        int size = list.size();
+        return size / stride + (size % stride == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,165 @@
+package minimal.sequence;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 1 回の上流の列挙を複数の枝で共有するための共有バッファーを表します。
+ * バッファーは最も先行している枝と最も遅れている枝の差の要素のみを保持し、すべての枝が通過した要素は解放します。
+ * 差が容量を超える場合 (先行している枝が遅れている枝を待てない場合) は {@link IllegalStateException} をスローします。
+ * 列挙を中断した枝はイテレーターを {@link Closeable#close()} すると、以降は遅れている枝として扱われません。
+ */
+final class TeeBuffer<T> {
+    private final Iterable<T> source;
+    private final int capacity;
+    private Iterator<T> iterator;       // 上流のイテレーター (列挙を開始するまで null)
+    private Object[] elements;          // 容量を上限に拡張するリングバッファー
+    private long base;                  // バッファーの先頭の要素の位置
+    private int size;                   // バッファーの要素数
+    private final long[] positions;     // 各枝が次に取り出す位置
+    private final boolean[] detached;   // 各枝が列挙を終えたかどうか
+    private final boolean[] started;    // 各枝が列挙を開始したかどうか
+
+    TeeBuffer(Iterable<T> source, int branches, int capacity) {
+        this.source = source;
+        this.capacity = capacity;
+        this.elements = new Object[Math.min(16, capacity)];
+        this.positions = new long[branches];
+        this.detached = new boolean[branches];
+        this.started = new boolean[branches];
+    }
+
+    /**
+     * 枝のシーケンスの要素を作成します。枝は 1 回だけ列挙できます。
+     * @param branch 枝の番号
+     * @return       枝のシーケンスの要素
+     */
+    Iterable<T> branch(final int branch) {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                synchronized (TeeBuffer.this) {
+                    if (started[branch]) {
+                        throw new IllegalStateException("tee branch has already been iterated");
+                    }
+                    started[branch] = true;
+                }
+                return new BranchIterator(branch);
+            }
+        };
+    }
+
+    private synchronized boolean fill(int branch) {
+        long position = positions[branch];
+        if (position < base + size) {
+            return true;
+        }
+        if (iterator == null) {
+            iterator = source.iterator();
+        }
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        if (size == capacity) {
+            throw new IllegalStateException("tee buffer overflow: branch " + branch + " is " + capacity + " elements ahead of the slowest branch");
+        }
+        if (size == elements.length) {
+            grow();
+        }
+        elements[index(base + size)] = iterator.next();
+        size++;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized T take(int branch) {
+        long position = positions[branch]++;
+        T item = (T) elements[index(position)];
+        release();
+        return item;
+    }
+
+    private synchronized void detach(int branch) {
+        detached[branch] = true;
+        release();
+    }
+
+    /**
+     * すべての枝が通過した要素を解放します。
+     */
+    private void release() {
+        long slowest = Long.MAX_VALUE;
+        for (int i = 0; i < positions.length; i++) {
+            if (!detached[i]) {
+                slowest = Math.min(slowest, positions[i]);
+            }
+        }
+        while (size > 0 && base < slowest) {
+            elements[index(base)] = null;
+            base++;
+            size--;
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % elements.length);
+    }
+
+    /**
+     * バッファーを 2 倍 (容量を超える場合は容量) に拡張します。
+     */
+    private void grow() {
+        Object[] grown = new Object[(int) Math.min((long) elements.length * 2, capacity)];
+        for (int i = 0; i < size; i++) {
+            grown[(int) ((base + i) % grown.length)] = elements[index(base + i)];
+        }
+        elements = grown;
+    }
+
+    /**
+     * 枝のイテレーターを表します。
+     */
+    private final class BranchIterator implements Iterator<T>, Closeable {
+        private final int branch;
+        private boolean closed;
+
+        BranchIterator(int branch) {
+            this.branch = branch;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (fill(branch)) {
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return take(branch);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                detach(branch);
+            }
+        }
+    }
+}
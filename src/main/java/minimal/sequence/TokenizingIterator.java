@@ -0,0 +1,63 @@
+package minimal.sequence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 文字列を区切り文字の連続で分割した、空でない各部分のビュー ({@link CharSlice}) を要素とするイテレーターを表します。
+ * 区切り文字の集合が指定されていない場合は空白文字 ({@link Character#isWhitespace(char)}) で区切ります。
+ */
+final class TokenizingIterator implements Iterator<CharSlice> {
+    private final CharSequence text;
+    private final String delimiters;
+    private int position;
+    private boolean ready;
+
+    /**
+     * インスタンスを初期化します。
+     * @param text       文字列
+     * @param delimiters 区切り文字の集合 (空白文字で区切る場合は null)
+     */
+    TokenizingIterator(CharSequence text, String delimiters) {
+        this.text = text;
+        this.delimiters = delimiters;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            ready = true;
+            int length = text.length();
+            while (position < length && isDelimiter(text.charAt(position))) {
+                position++;
+            }
+        }
+        return position < text.length();
+    }
+
+    @Override
+    public CharSlice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int start = position;
+        int length = text.length();
+        while (position < length && !isDelimiter(text.charAt(position))) {
+            position++;
+        }
+        ready = false;
+        return new CharSlice(text, start, position);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private boolean isDelimiter(char c) {
+        if (delimiters == null) {
+            return Character.isWhitespace(c);
+        }
+        return delimiters.length() == 1 ? c == delimiters.charAt(0) : delimiters.indexOf(c) >= 0;
+    }
+}
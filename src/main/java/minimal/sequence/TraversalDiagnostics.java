@@ -0,0 +1,151 @@
+package minimal.sequence;
+
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 遅延評価のシーケンスが繰り返し列挙されて、同じ処理が何度も評価し直されていることを検出する診断機能を表します。
+ * 診断を有効にすると、シーケンスごとに列挙回数を数えて、遅延評価のシーケンス (コレクションをそのまま包んだものを除くシーケンス) を
+ * 2 回以上列挙した呼び出し元を記録します。診断が無効 (既定) の場合、列挙ごとの負荷は診断方針の読み取り 1 回のみです。
+ */
+public final class TraversalDiagnostics {
+    /**
+     * 診断方針を表します。
+     */
+    public enum Policy {
+        /** 診断しません。 */
+        OFF,
+        /** 列挙回数を数えて、2 回以上列挙した呼び出し元を記録します。 */
+        REPORT,
+        /** {@link #REPORT} に加えて、2 回目に直接列挙された時点でそのシーケンスに {@link Sequence#cached()} 相当の記憶を挟み込み、以降は評価し直しません。 */
+        CACHE
+    }
+
+    static volatile Policy policy = Policy.OFF;
+    private static final ConcurrentMap<String, AtomicInteger> repeatedTraversals = new ConcurrentHashMap<String, AtomicInteger>();
+    private static final String PACKAGE_PREFIX = "minimal.sequence.";
+    private static final ConcurrentMap<String, Boolean> libraryClasses = new ConcurrentHashMap<String, Boolean>();  // クラス名ごとの判定結果
+
+    private TraversalDiagnostics() {
+    }
+
+    /**
+     * 診断方針を設定します。設定は以降に行われる列挙から適用されます。
+     * @param policy 診断方針
+     */
+    public static void setPolicy(Policy policy) {
+        TraversalDiagnostics.policy = policy == null ? Policy.OFF : policy;
+    }
+
+    /**
+     * 診断方針を取得します。
+     * @return 診断方針
+     */
+    public static Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 診断を有効にしてからシーケンスが列挙された回数を取得します。
+     * 下流のシーケンス (map や filter で派生したシーケンス) の列挙に伴う列挙も含みます。
+     * @param sequence シーケンス
+     * @return         列挙回数
+     */
+    public static int traversals(Sequence<?> sequence) {
+        return sequence.traversals();
+    }
+
+    /**
+     * 遅延評価のシーケンスを 2 回以上列挙した呼び出し元と、その呼び出し元での 2 回目以降の列挙の回数を、回数の多い順に取得します。
+     * @return 呼び出し元 ({@link StackTraceElement#toString()} の形式) と回数の連想配列
+     */
+    public static Map<String, Integer> repeatedTraversals() {
+        List<Map.Entry<String, AtomicInteger>> entries = new ArrayList<Map.Entry<String, AtomicInteger>>(repeatedTraversals.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, AtomicInteger>>() {
+            @Override
+            public int compare(Map.Entry<String, AtomicInteger> x, Map.Entry<String, AtomicInteger> y) {
+                return y.getValue().get() - x.getValue().get();
+            }
+        });
+        Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+        for (Map.Entry<String, AtomicInteger> entry : entries) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    /**
+     * 記録した呼び出し元を破棄します。
+     */
+    public static void clear() {
+        repeatedTraversals.clear();
+    }
+
+    /**
+     * 遅延評価のシーケンスが 2 回以上列挙されたことを記録します。
+     */
+    static void repeated() {
+        String callSite = callSite();
+        AtomicInteger count = repeatedTraversals.get(callSite);
+        if (count == null) {
+            AtomicInteger created = new AtomicInteger();
+            count = repeatedTraversals.putIfAbsent(callSite, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * シーケンスを列挙した呼び出し元 (このライブラリーのクラスを除いた最初のフレーム) を取得します。
+     * @return 呼び出し元
+     */
+    private static String callSite() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (!isLibraryClass(element.getClassName())) {
+                return element.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * このライブラリーのクラスかどうか調べます。
+     * 同じパッケージに置かれた利用者のクラス (テストなど) を呼び出し元として扱えるよう、パッケージ名に加えてクラスの読み込み元を比較します。
+     * @param className クラス名
+     * @return          このライブラリーのクラスの場合は true, そうでない場合は false
+     */
+    private static boolean isLibraryClass(String className) {
+        if (!className.startsWith(PACKAGE_PREFIX)) {
+            return false;
+        }
+        Boolean library = libraryClasses.get(className);
+        if (library == null) {
+            library = isLoadedFromLibrary(className);
+            libraryClasses.putIfAbsent(className, library);
+        }
+        return library;
+    }
+
+    private static boolean isLoadedFromLibrary(String className) {
+        try {
+            Class<?> cls = Class.forName(className, false, TraversalDiagnostics.class.getClassLoader());
+            CodeSource library = TraversalDiagnostics.class.getProtectionDomain().getCodeSource(), source = cls.getProtectionDomain().getCodeSource();
+            // 読み込み元が分からない場合はパッケージ名のみで判断する
+            return library == null || source == null || library.getLocation() == null || library.getLocation().equals(source.getLocation());
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (SecurityException e) {
+            return true;
+        }
+    }
+}
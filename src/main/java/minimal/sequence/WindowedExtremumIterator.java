@@ -0,0 +1,92 @@
+package minimal.sequence;
+
+import minimal.sequence.function.Function;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 指定された幅の窓を 1 要素ずつずらしながら、各窓で比較値が最小 (または最大) の要素を要素とするイテレーターを表します。
+ * 窓の中で後から現れた要素より劣る要素は二度と選ばれないため取り除き、比較値が単調に並ぶ両端キューのみを保持します。
+ * 各要素は両端キューへ 1 回だけ追加され 1 回だけ取り除かれるため、窓の幅によらず 1 要素あたり償却 O(1) で更新します。
+ * 比較値が等しい場合は先に現れた要素を選びます。
+ */
+final class WindowedExtremumIterator<T, C extends Comparable<C>> implements Iterator<T> {
+    private final Iterator<T> source;
+    private final int window;
+    private final Function<? super T, ? extends C> comparableSelector;
+    private final int sign;
+    // 両端キュー (窓の幅を容量とするリングバッファー)
+    private final Object[] items;
+    private final Object[] keys;
+    private final long[] indices;
+    private int head;
+    private int count;
+    private long index;
+    private boolean hasNext;
+    private boolean ready;
+
+    WindowedExtremumIterator(Iterator<T> source, int window, Function<? super T, ? extends C> comparableSelector, boolean min) {
+        this.source = source;
+        this.window = window;
+        this.comparableSelector = comparableSelector;
+        this.sign = min ? 1 : -1;
+        this.items = new Object[window];
+        this.keys = new Object[window];
+        this.indices = new long[window];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        if (ready) {
+            return hasNext;
+        }
+        ready = true;
+        while (source.hasNext()) {
+            T item = source.next();
+            C key = comparableSelector.apply(item);
+            // 新しい要素以上に劣る要素を末尾から取り除く
+            while (count > 0 && sign * ((C) keys[slot(count - 1)]).compareTo(key) > 0) {
+                count--;
+                items[slot(count)] = null;
+                keys[slot(count)] = null;
+            }
+            // 窓から外れた要素を先頭から取り除く
+            if (count > 0 && indices[head] <= index - window) {
+                items[head] = null;
+                keys[head] = null;
+                head = slot(1);
+                count--;
+            }
+            int tail = slot(count++);
+            items[tail] = item;
+            keys[tail] = key;
+            indices[tail] = index;
+            if (++index >= window) {
+                return hasNext = true;
+            }
+        }
+        return hasNext = false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return (T) items[head];
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private int slot(int offset) {
+        int slot = head + offset;
+        return slot < window ? slot : slot - window;
+    }
+}
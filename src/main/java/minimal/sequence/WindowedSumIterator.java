@@ -0,0 +1,56 @@
+package minimal.sequence;
+
+import minimal.sequence.function.ToDoubleFunction;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 指定された幅の窓を 1 要素ずつずらしながら、各窓の double 値の合計 (または平均) を要素とするイテレーターを表します。
+ * 合計は窓へ入る値と窓から外れる値の差分で更新するため、窓の幅によらず 1 要素あたり O(1) で計算します。
+ */
+final class WindowedSumIterator<T> implements Iterator<Double> {
+    private final Iterator<T> source;
+    private final ToDoubleFunction<? super T> selector;
+    private final boolean average;
+    private final int window;
+    private final SlidingWindows.DoubleSum sum;
+    private boolean hasNext;
+    private boolean ready;
+
+    WindowedSumIterator(Iterator<T> source, int window, ToDoubleFunction<? super T> selector, boolean average) {
+        this.source = source;
+        this.selector = selector;
+        this.average = average;
+        this.window = window;
+        this.sum = new SlidingWindows.DoubleSum(window);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (ready) {
+            return hasNext;
+        }
+        ready = true;
+        while (source.hasNext()) {
+            if (sum.push(selector.apply(source.next()))) {
+                return hasNext = true;
+            }
+        }
+        return hasNext = false;
+    }
+
+    @Override
+    public Double next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return average ? sum.sum() / window : sum.sum();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * 1 つの double の引数を受け取って結果を返さない操作を表します。
+ */
+public interface DoubleConsumer {
+    void accept(double value);
+}
@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * double の累積値と 1 つの引数を受け取って、新しい double の累積値を生成する関数を表します。
+ */
+public interface DoubleFoldFunction<T> {
+    double apply(double accumulated, T t);
+}
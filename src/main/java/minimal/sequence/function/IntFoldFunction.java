@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * int の累積値と 1 つの引数を受け取って、新しい int の累積値を生成する関数を表します。
+ */
+public interface IntFoldFunction<T> {
+    int apply(int accumulated, T t);
+}
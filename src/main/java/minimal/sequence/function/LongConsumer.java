@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * 1 つの long の引数を受け取って結果を返さない操作を表します。
+ */
+public interface LongConsumer {
+    void accept(long value);
+}
@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * long の累積値と 1 つの引数を受け取って、新しい long の累積値を生成する関数を表します。
+ */
+public interface LongFoldFunction<T> {
+    long apply(long accumulated, T t);
+}
@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * 1 つの引数を受け取って int の結果を生成する関数を表します。
+ */
+public interface ToIntFunction<T> {
+    int apply(T t);
+}
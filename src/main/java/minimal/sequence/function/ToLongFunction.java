@@ -0,0 +1,8 @@
+package minimal.sequence.function;
+
+/**
+ * 1 つの引数を受け取って long の結果を生成する関数を表します。
+ */
+public interface ToLongFunction<T> {
+    long apply(T t);
+}
@@ -0,0 +1,89 @@
+package minimal.sequence.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 段ごとの計測値をメモリー上に集計するレポーターを表します。
+ */
+public class InMemoryMetricsReporter implements MetricsRegistry, StageListener {
+    private final ConcurrentMap<String, StageMetrics> metrics = new ConcurrentHashMap<String, StageMetrics>();
+
+    @Override
+    public StageListener listener(String name) {
+        return this;
+    }
+
+    @Override
+    public void iteratorCreated(String stage) {
+        metrics(stage).iteratorCreated();
+    }
+
+    @Override
+    public void processed(String stage, int elementsIn, int elementsOut, long nanos) {
+        metrics(stage).processed(elementsIn, elementsOut, nanos);
+    }
+
+    /**
+     * 指定された段の計測値を取得します。まだ計測値がない場合は作成します。
+     * @param stage 段の名前
+     * @return      計測値
+     */
+    public StageMetrics metrics(String stage) {
+        StageMetrics current = metrics.get(stage);
+        if (current == null) {
+            StageMetrics created = new StageMetrics(stage);
+            current = metrics.putIfAbsent(stage, created);
+            if (current == null) {
+                current = created;
+                stageCreated(created);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * すべての段の計測値を段の名前順に取得します。
+     * @return 計測値のリスト
+     */
+    public List<StageMetrics> snapshot() {
+        List<StageMetrics> result = new ArrayList<StageMetrics>(metrics.values());
+        Collections.sort(result, new Comparator<StageMetrics>() {
+            @Override
+            public int compare(StageMetrics x, StageMetrics y) {
+                return x.getStage().compareTo(y.getStage());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * すべての計測値を破棄します。
+     */
+    public void clear() {
+        metrics.clear();
+    }
+
+    /**
+     * すべての段の計測値を 1 行ずつ文字列にします。
+     * @return 計測値の文字列
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        for (StageMetrics stageMetrics : snapshot()) {
+            builder.append(stageMetrics).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 段の計測値が新たに作成されたときに呼ばれます。
+     * @param stageMetrics 作成された計測値
+     */
+    protected void stageCreated(StageMetrics stageMetrics) {
+    }
+}
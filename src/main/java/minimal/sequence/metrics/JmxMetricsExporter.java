@@ -0,0 +1,70 @@
+package minimal.sequence.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 段ごとの計測値をメモリー上に集計して、段ごとの MBean として JMX で公開するレポーターを表します。
+ * MBean は {@code minimal.sequence:type=SequenceStage,name="段の名前"} という名前で登録されます。
+ */
+public class JmxMetricsExporter extends InMemoryMetricsReporter {
+    private final MBeanServer server;
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<ObjectName>();
+
+    /**
+     * プラットフォーム MBean サーバーへ公開するインスタンスを初期化します。
+     */
+    public JmxMetricsExporter() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * インスタンスを初期化します。
+     * @param server 公開先の MBean サーバー
+     */
+    public JmxMetricsExporter(MBeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * 段の MBean の名前を取得します。
+     * @param stage 段の名前
+     * @return      MBean の名前
+     */
+    public static ObjectName objectName(String stage) {
+        try {
+            return new ObjectName("minimal.sequence:type=SequenceStage,name=" + ObjectName.quote(stage));
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * 登録したすべての MBean の登録を解除します。
+     */
+    public void unregisterAll() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+                // 既に登録解除されている
+            }
+        }
+        registered.clear();
+    }
+
+    @Override
+    protected void stageCreated(StageMetrics stageMetrics) {
+        ObjectName name = objectName(stageMetrics.getStage());
+        try {
+            server.registerMBean(stageMetrics, name);
+            registered.add(name);
+        } catch (JMException ignored) {
+            // 同名の MBean が既に登録されている場合は公開を諦めて、メモリー上の集計のみ行う
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package minimal.sequence.metrics;
+
+/**
+ * 計測対象のシーケンスごとにリスナーを払い出すレジストリーを表します。
+ * {@link minimal.sequence.Sequence#setMetricsRegistry} で登録すると {@link minimal.sequence.Sequence#instrument(String)} で利用されます。
+ */
+public interface MetricsRegistry {
+    /**
+     * 指定された名前のシーケンスを計測するリスナーを取得します。
+     * @param name シーケンスの名前
+     * @return     リスナー
+     */
+    StageListener listener(String name);
+}
@@ -0,0 +1,22 @@
+package minimal.sequence.metrics;
+
+/**
+ * 計測対象のシーケンスの各段 (map, filter など) で発生した事象の通知を受け取るリスナーを表します。
+ * 通知は要素ごとに行われるため、実装は軽量かつスレッドセーフにしてください。
+ */
+public interface StageListener {
+    /**
+     * 段のイテレーターが生成された (シーケンスが評価し直された) ことを通知します。
+     * @param stage 段の名前
+     */
+    void iteratorCreated(String stage);
+
+    /**
+     * 段が要素を処理したことを通知します。
+     * @param stage       段の名前
+     * @param elementsIn  段へ入力された要素数
+     * @param elementsOut 段から出力された要素数
+     * @param nanos       処理 (利用者の関数の実行など) に要した時間 (ナノ秒)
+     */
+    void processed(String stage, int elementsIn, int elementsOut, long nanos);
+}
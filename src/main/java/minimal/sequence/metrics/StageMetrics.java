@@ -0,0 +1,77 @@
+package minimal.sequence.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * シーケンスの段ごとの計測値を表します。
+ */
+public final class StageMetrics implements StageMetricsMBean {
+    private final String stage;
+    private final AtomicLong iterators = new AtomicLong();
+    private final AtomicLong elementsIn = new AtomicLong();
+    private final AtomicLong elementsOut = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * インスタンスを初期化します。
+     * @param stage 段の名前
+     */
+    public StageMetrics(String stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * 段の名前を取得します。
+     * @return 段の名前
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    @Override
+    public long getIterators() {
+        return iterators.get();
+    }
+
+    @Override
+    public long getElementsIn() {
+        return elementsIn.get();
+    }
+
+    @Override
+    public long getElementsOut() {
+        return elementsOut.get();
+    }
+
+    @Override
+    public double getSelectivity() {
+        long in = elementsIn.get();
+        return in == 0 ? Double.NaN : (double) elementsOut.get() / in;
+    }
+
+    @Override
+    public long getNanos() {
+        return nanos.get();
+    }
+
+    void iteratorCreated() {
+        iterators.incrementAndGet();
+    }
+
+    void processed(int in, int out, long nanos) {
+        if (in != 0) {
+            elementsIn.addAndGet(in);
+        }
+        if (out != 0) {
+            elementsOut.addAndGet(out);
+        }
+        if (nanos != 0) {
+            this.nanos.addAndGet(nanos);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return stage + "{iterators=" + getIterators() + ", in=" + getElementsIn() + ", out=" + getElementsOut() + ", selectivity=" + getSelectivity() + ", nanos=" + getNanos() + '}';
+    }
+}
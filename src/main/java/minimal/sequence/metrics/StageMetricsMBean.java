@@ -0,0 +1,31 @@
+package minimal.sequence.metrics;
+
+/**
+ * シーケンスの段ごとの計測値を JMX で公開するためのインターフェースを表します。
+ */
+public interface StageMetricsMBean {
+    /**
+     * @return イテレーターの生成回数 (評価回数)
+     */
+    long getIterators();
+
+    /**
+     * @return 入力された要素数
+     */
+    long getElementsIn();
+
+    /**
+     * @return 出力された要素数
+     */
+    long getElementsOut();
+
+    /**
+     * @return 選択率 (出力された要素数 / 入力された要素数)
+     */
+    double getSelectivity();
+
+    /**
+     * @return 処理に要した時間 (ナノ秒)
+     */
+    long getNanos();
+}
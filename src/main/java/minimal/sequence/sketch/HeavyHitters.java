@@ -0,0 +1,224 @@
+package minimal.sequence.sketch;
+
+import minimal.sequence.Accumulator;
+import minimal.sequence.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 出現回数の多い要素を固定のメモリーで近似する Space-Saving スケッチを表します。
+ * 容量 k 個のカウンターのみを保持し、カウンターが満杯の場合は最小のカウンターを新しい要素に引き継ぎます。
+ * 推定した出現回数は実際の出現回数以上であり、過大評価は要素数 / k 以下です。
+ * 出現回数が要素数 / k を超える要素は必ず保持されます。
+ * スケッチは併合でき、別々に集計した結果を合わせた近似値を求めることができます。
+ */
+public final class HeavyHitters<T> implements Accumulator<T, List<Pair<T, Long>>> {
+    private final int capacity;
+    private final HashMap<T, Counter<T>> counters;
+    private final ArrayList<Counter<T>> heap;   // 出現回数の最小ヒープ
+    private long count;
+
+    /**
+     * インスタンスを初期化します。
+     * @param capacity カウンターの数
+     */
+    public HeavyHitters(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<T, Counter<T>>(capacity * 2);
+        this.heap = new ArrayList<Counter<T>>(capacity);
+    }
+
+    /**
+     * 要素を集計します。
+     * @param t 要素
+     */
+    @Override
+    public void accept(T t) {
+        add(t, 1, 0);
+        count++;
+    }
+
+    /**
+     * 出現回数の多い順に、要素と推定した出現回数のペアのリストを取得します。
+     * @return 要素と推定した出現回数のペアのリスト
+     */
+    @Override
+    public List<Pair<T, Long>> result() {
+        return top(capacity);
+    }
+
+    /**
+     * 出現回数の多い順に、指定数までの要素と推定した出現回数のペアのリストを取得します。
+     * @param limit 要素数
+     * @return      要素と推定した出現回数のペアのリスト
+     */
+    public List<Pair<T, Long>> top(int limit) {
+        ArrayList<Counter<T>> sorted = new ArrayList<Counter<T>>(heap);
+        Collections.sort(sorted, new Comparator<Counter<T>>() {
+            @Override
+            public int compare(Counter<T> x, Counter<T> y) {
+                return Long.compare(y.count, x.count);
+            }
+        });
+        ArrayList<Pair<T, Long>> result = new ArrayList<Pair<T, Long>>(Math.min(limit, sorted.size()));
+        for (Counter<T> counter : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            result.add(Pair.of(counter.item, counter.count));
+        }
+        return result;
+    }
+
+    /**
+     * 要素の推定した出現回数を取得します。
+     * @param item 要素
+     * @return     推定した出現回数 (保持していない要素の場合は出現回数の上限)
+     */
+    public long estimate(T item) {
+        Counter<T> counter = counters.get(item);
+        return counter != null ? counter.count : heap.size() < capacity ? 0 : heap.get(0).count;
+    }
+
+    /**
+     * 要素の推定した出現回数に含まれうる過大評価の上限を取得します。
+     * @param item 要素
+     * @return     過大評価の上限 (保持していない要素の場合は出現回数の上限)
+     */
+    public long error(T item) {
+        Counter<T> counter = counters.get(item);
+        return counter != null ? counter.error : estimate(item);
+    }
+
+    /**
+     * 集計した要素数を取得します。
+     * @return 要素数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 他のスケッチを併合します。
+     * 一方にしか保持されていない要素は、他方の最小のカウンターの値を出現回数の上限として加算します。
+     * @param other 他のスケッチ
+     * @return      このインスタンス
+     */
+    public HeavyHitters<T> merge(HeavyHitters<T> other) {
+        long minimum = heap.size() < capacity ? 0 : heap.get(0).count;
+        long otherMinimum = other.heap.size() < other.capacity ? 0 : other.heap.get(0).count;
+        HashMap<T, Counter<T>> merged = new HashMap<T, Counter<T>>();
+        for (Counter<T> counter : heap) {
+            Counter<T> o = other.counters.get(counter.item);
+            merged.put(counter.item, o != null
+                    ? new Counter<T>(counter.item, counter.count + o.count, counter.error + o.error)
+                    : new Counter<T>(counter.item, counter.count + otherMinimum, counter.error + otherMinimum));
+        }
+        for (Counter<T> o : other.heap) {
+            if (!merged.containsKey(o.item)) {
+                merged.put(o.item, new Counter<T>(o.item, o.count + minimum, o.error + minimum));
+            }
+        }
+        ArrayList<Counter<T>> sorted = new ArrayList<Counter<T>>(merged.values());
+        Collections.sort(sorted, new Comparator<Counter<T>>() {
+            @Override
+            public int compare(Counter<T> x, Counter<T> y) {
+                return Long.compare(y.count, x.count);
+            }
+        });
+        counters.clear();
+        heap.clear();
+        for (Counter<T> counter : sorted.subList(0, Math.min(capacity, sorted.size()))) {
+            add(counter.item, counter.count, counter.error);
+        }
+        count += other.count;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "HeavyHitters{capacity=" + capacity + ", count=" + count + ", top=" + top(10) + "}";
+    }
+
+    private void add(T item, long increment, long error) {
+        Counter<T> counter = counters.get(item);
+        if (counter == null) {
+            if (heap.size() < capacity) {
+                counter = new Counter<T>(item, 0, error);
+                counter.position = heap.size();
+                heap.add(counter);
+            } else {
+                // 最小のカウンターを引き継ぐ (引き継いだ値は過大評価になりうる)
+                counter = heap.get(0);
+                counters.remove(counter.item);
+                counter.item = item;
+                counter.error = counter.count + error;
+            }
+            counters.put(item, counter);
+        }
+        counter.count += increment;
+        siftDown(counter.position);
+        siftUp(counter.position);
+    }
+
+    private void siftUp(int position) {
+        Counter<T> counter = heap.get(position);
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            Counter<T> p = heap.get(parent);
+            if (p.count <= counter.count) {
+                break;
+            }
+            place(p, position);
+            position = parent;
+        }
+        place(counter, position);
+    }
+
+    private void siftDown(int position) {
+        Counter<T> counter = heap.get(position);
+        int size = heap.size();
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap.get(child + 1).count < heap.get(child).count) {
+                child++;
+            }
+            Counter<T> c = heap.get(child);
+            if (counter.count <= c.count) {
+                break;
+            }
+            place(c, position);
+            position = child;
+        }
+        place(counter, position);
+    }
+
+    private void place(Counter<T> counter, int position) {
+        heap.set(position, counter);
+        counter.position = position;
+    }
+
+    /**
+     * 要素の出現回数のカウンターを表します。
+     */
+    private static final class Counter<T> {
+        T item;
+        long count;
+        long error;
+        int position;
+
+        Counter(T item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package minimal.sequence.sketch;
+
+import minimal.sequence.Accumulator;
+
+import java.util.Arrays;
+
+/**
+ * 異なる要素の数を固定のメモリーで近似する HyperLogLog スケッチを表します。
+ * 精度 p に対して 2^p バイトのレジスターを使用し、相対標準誤差はおよそ 1.04 / sqrt(2^p) です。
+ * 要素のハッシュ値は {@link Object#hashCode()} を攪拌した 64 ビット値であるため、ハッシュコードが衝突する要素は同じ要素として数えます。
+ * 同じ精度のスケッチは併合でき、別々に集計した結果を合わせた近似値を求めることができます。
+ */
+public final class HyperLogLog implements Accumulator<Object, Long> {
+    /**
+     * 精度の最小値を表します。
+     */
+    public static final int MIN_PRECISION = 4;
+
+    /**
+     * 精度の最大値を表します。
+     */
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * インスタンスを初期化します。
+     * @param precision 精度 ({@link #MIN_PRECISION} 以上 {@link #MAX_PRECISION} 以下)
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 精度を取得します。
+     * @return 精度
+     */
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * 要素を集計します。
+     * @param t 要素
+     */
+    @Override
+    public void accept(Object t) {
+        long hash = hash(t == null ? 0 : t.hashCode());
+        int index = (int) (hash >>> (64 - precision));
+        // 残りのビットの先頭の 0 の数 + 1 (残りのビットがすべて 0 の場合は 64 - precision + 1)
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (registers[index] < rank) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * 他のスケッチを併合します。
+     * @param other 他のスケッチ (同じ精度)
+     * @return      このインスタンス
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("precision mismatch: " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 異なる要素の数の近似値を取得します。
+     * @return 異なる要素の数の近似値
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // 少数の場合は空のレジスターの割合から推定する (線形計数)
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 異なる要素の数の近似値を取得します。
+     * @return 異なる要素の数の近似値
+     */
+    @Override
+    public Long result() {
+        return estimate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof HyperLogLog && Arrays.equals(registers, ((HyperLogLog) o).registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog{precision=" + precision + ", estimate=" + estimate() + "}";
+    }
+
+    private static long hash(long value) {
+        // MurmurHash3 の最終段 (fmix64)
+        long h = value * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
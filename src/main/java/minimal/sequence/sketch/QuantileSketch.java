@@ -0,0 +1,262 @@
+package minimal.sequence.sketch;
+
+import minimal.sequence.Accumulator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * 値の分位数をほぼ固定のメモリーで近似する KLL スケッチを表します。
+ * 値を階層ごとの圧縮器に保持し、圧縮器が満杯になると並べ替えて 1 つおきの値を 1 つ上の階層 (重みが 2 倍) へ送ります。
+ * 上の階層ほど容量が大きく下の階層ほど容量が小さい (比 2/3) ため、保持する値の数はおよそ 3k に収まり、
+ * 順位の誤差はおよそ 1.7 / k (k = 200 の場合はおよそ 1%) です。最小値と最大値は正確に保持します。
+ * スケッチは併合でき、別々に集計した結果を合わせた分位数を求めることができます。
+ */
+public final class QuantileSketch implements Accumulator<Number, QuantileSketch> {
+    /**
+     * 既定の精度を表します。
+     */
+    public static final int DEFAULT_K = 200;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private final Random random;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * 既定の精度 ({@link #DEFAULT_K}) でインスタンスを初期化します。
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * インスタンスを初期化します。
+     * @param k 精度 (最上位の圧縮器の容量, 8 以上)
+     */
+    public QuantileSketch(int k) {
+        this(k, new Random());
+    }
+
+    /**
+     * インスタンスを初期化します。
+     * @param k      精度 (最上位の圧縮器の容量, 8 以上)
+     * @param random 圧縮の際に残す値を選ぶ乱数生成器
+     */
+    public QuantileSketch(int k, Random random) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        this.random = random;
+        this.levels[0] = new double[capacity(0)];
+    }
+
+    /**
+     * 値を集計します。
+     * @param value 値 (NaN は無視します)
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count++ == 0) {
+            min = max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * 値を集計します。
+     * @param t 値
+     */
+    @Override
+    public void accept(Number t) {
+        add(t.doubleValue());
+    }
+
+    /**
+     * このインスタンスを返します。
+     * @return このインスタンス
+     */
+    @Override
+    public QuantileSketch result() {
+        return this;
+    }
+
+    /**
+     * 他のスケッチを併合します。
+     * @param other 他のスケッチ
+     * @return      このインスタンス
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compress();
+        return this;
+    }
+
+    /**
+     * 集計した値の数を取得します。
+     * @return 値の数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 分位数の近似値を取得します。
+     * @param fraction 分位 (0 以上 1 以下, 0 は最小値, 0.5 は中央値, 1 は最大値)
+     * @return         分位数の近似値 (値がない場合は NaN)
+     */
+    public double quantile(double fraction) {
+        return quantiles(fraction)[0];
+    }
+
+    /**
+     * 分位数の近似値を取得します。
+     * @param fractions 分位 (0 以上 1 以下)
+     * @return          分位数の近似値 (値がない場合は NaN)
+     */
+    public double[] quantiles(double... fractions) {
+        for (double fraction : fractions) {
+            if (!(fraction >= 0 && fraction <= 1)) {
+                throw new IllegalArgumentException("fraction must be between 0 and 1: " + fraction);
+            }
+        }
+        double[] result = new double[fractions.length];
+        if (count == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+        // 保持している値を重み (2^階層) 付きで並べ替えて、累積の重みから分位数を求める
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        long total = 0;
+        for (int h = 0, n = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++, n++) {
+                values[n] = levels[h][i];
+                weights[n] = 1L << h;
+                order[n] = n;
+                total += 1L << h;
+            }
+        }
+        final double[] v = values;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                return Double.compare(v[x], v[y]);
+            }
+        });
+        for (int q = 0; q < fractions.length; q++) {
+            if (fractions[q] == 0) {
+                result[q] = min;
+                continue;
+            }
+            if (fractions[q] == 1) {
+                result[q] = max;
+                continue;
+            }
+            double rank = fractions[q] * total;
+            long cumulative = 0;
+            result[q] = max;
+            for (int index : order) {
+                cumulative += weights[index];
+                if (cumulative >= rank) {
+                    result[q] = values[index];
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 保持している値の数を取得します。
+     * @return 保持している値の数
+     */
+    public int retained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{k=" + k + ", count=" + count + ", min=" + min + ", max=" + max + ", retained=" + retained() + "}";
+    }
+
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3, depth)));
+    }
+
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            for (int h = 0; h < levels.length; h++) {
+                if (levels[h] == null) {
+                    levels[h] = new double[MIN_CAPACITY];
+                }
+            }
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(levels[level].length * 2, MIN_CAPACITY));
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] < capacity(h)) {
+                continue;
+            }
+            // 並べ替えて、無作為に選んだ偶数番目または奇数番目の値を 1 つ上の階層へ送る (値の数が奇数の場合は最後の値を残す)
+            double[] level = levels[h];
+            int size = sizes[h];
+            int leftover = size % 2;
+            Arrays.sort(level, 0, size - leftover);
+            int offset = random.nextBoolean() ? 1 : 0;
+            for (int i = offset; i < size - leftover; i += 2) {
+                append(h + 1, level[i]);
+            }
+            level = levels[h];
+            if (leftover == 1) {
+                level[0] = level[size - 1];
+            }
+            sizes[h] = leftover;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package minimal.sequence;
+
+import java.util.HashMap;
+
+/**
+ * {@link Sequence#toHashMap} と {@link Sequence#toIntMap}, {@link Sequence#toLongMap} で作成したマップの 1 エントリーあたりのヒープ使用量を比較するベンチマークです。
+ * 値はすべて同じインスタンスとし、キーとマップの構造のみの使用量を測ります。単体テストではないため、必要に応じて main メソッドを直接実行します。
+ */
+public class MapFootprintBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final Object VALUE = new Object();
+
+    public static void main(String[] args) {
+        // Integer のキャッシュ (-128 から 127) に収まらないキーを用いる
+        Sequence<Integer> keys = Sequence.range(1_000, 1_000 + SIZE);
+        System.out.printf("%-24s %14s%n", "map", "bytes/entry");
+
+        long before = usedMemory();
+        HashMap<Integer, Object> hashMap = keys.toHashMap(x -> x, x -> VALUE);
+        System.out.printf("%-24s %14.1f%n", "HashMap<Integer, V>", (usedMemory() - before) / (double) SIZE);
+
+        before = usedMemory();
+        IntMap<Object> intMap = keys.toIntMap(x -> x, x -> VALUE);
+        System.out.printf("%-24s %14.1f%n", "IntMap<V>", (usedMemory() - before) / (double) SIZE);
+
+        before = usedMemory();
+        HashMap<Long, Object> longHashMap = keys.toHashMap(x -> (long) x, x -> VALUE);
+        System.out.printf("%-24s %14.1f%n", "HashMap<Long, V>", (usedMemory() - before) / (double) SIZE);
+
+        before = usedMemory();
+        LongMap<Object> longMap = keys.toLongMap(x -> x, x -> VALUE);
+        System.out.printf("%-24s %14.1f%n", "LongMap<V>", (usedMemory() - before) / (double) SIZE);
+
+        // 計測が終わるまでマップを回収させない
+        if (hashMap.size() + intMap.size() + longHashMap.size() + longMap.size() == 0) {
+            System.out.println();
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
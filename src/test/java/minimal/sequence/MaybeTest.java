@@ -2,6 +2,11 @@ package minimal.sequence;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import static org.junit.Assert.*;
 
 /**
@@ -134,4 +139,26 @@ public class MaybeTest {
         assertEquals("Maybe{Nothing}", Maybe.nothing.toString());
         assertEquals("Maybe{Just 1}", Maybe.of(1).toString());
     }
+
+    @Test
+    public void testSerialization() throws Exception {
+        assertSame(Maybe.nothing, deserialize(serialize(Maybe.nothing)));
+        assertEquals(Maybe.of("abc"), deserialize(serialize(Maybe.of("abc"))));
+        assertEquals(Pair.of(1, Maybe.of("a")), deserialize(serialize(Pair.of(1, Maybe.of("a")))));
+        assertSame(Maybe.nothing, ((Pair<?, ?>) deserialize(serialize(Pair.of(null, Maybe.nothing)))).second());
+    }
+
+    static byte[] serialize(Object object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package minimal.sequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * {@link SequenceCodec} と Java の既定の直列化 ({@link ObjectOutputStream} による {@link ArrayList} の直列化) の
+ * 書き出しと読み込みの所要時間と符号化後のバイト数を要素数ごとに比較するベンチマークです。
+ * 単体テストではないため、必要に応じて main メソッドを直接実行します。
+ */
+public class SequenceCodecBenchmark {
+    public static void main(String[] args) throws Exception {
+        int[] sizes = { 1_000, 10_000, 100_000, 1_000_000 };
+        System.out.printf("%-8s %10s %14s %14s %14s %14s%n", "element", "size", "codec ms", "codec bytes", "default ms", "default bytes");
+        for (int size : sizes) {
+            ArrayList<Integer> integers = Sequence.range(0, size).toArrayList();
+            run("Integer", integers, SequenceCodec.of(ElementCodecs.integers()));
+            ArrayList<String> strings = Sequence.range(0, size).map(x -> "item-" + x).toArrayList();
+            run("String", strings, SequenceCodec.of(ElementCodecs.strings()));
+        }
+    }
+
+    private static <T> void run(String element, ArrayList<T> items, SequenceCodec<T> codec) throws Exception {
+        int repeats = Math.max(3, 3_000_000 / items.size());
+        long sink = 0;
+        // ウォームアップ
+        for (int i = 0; i < repeats; i++) {
+            sink += roundTripCodec(items, codec) + roundTripDefault(items);
+        }
+        long start = System.nanoTime();
+        int codecBytes = 0;
+        for (int i = 0; i < repeats; i++) {
+            codecBytes = roundTripCodec(items, codec);
+        }
+        double codecMillis = (System.nanoTime() - start) / 1e6 / repeats;
+        start = System.nanoTime();
+        int defaultBytes = 0;
+        for (int i = 0; i < repeats; i++) {
+            defaultBytes = roundTripDefault(items);
+        }
+        double defaultMillis = (System.nanoTime() - start) / 1e6 / repeats;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        System.out.printf("%-8s %10d %14.2f %14d %14.2f %14d%n", element, items.size(), codecMillis, codecBytes, defaultMillis, defaultBytes);
+    }
+
+    /**
+     * コーデックで書き出して読み込み、書き出したバイト数を返します。
+     */
+    private static <T> int roundTripCodec(ArrayList<T> items, SequenceCodec<T> codec) {
+        ByteBuffer buffer = codec.encode(items);
+        int bytes = buffer.remaining();
+        if (codec.decode(buffer).toArrayList().size() != items.size()) {
+            throw new AssertionError();
+        }
+        return bytes;
+    }
+
+    /**
+     * 既定の直列化で書き出して読み込み、書き出したバイト数を返します。
+     */
+    private static int roundTripDefault(ArrayList<?> items) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(items);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        if (((ArrayList<?>) in.readObject()).size() != items.size()) {
+            throw new AssertionError();
+        }
+        return bytes.size();
+    }
+}
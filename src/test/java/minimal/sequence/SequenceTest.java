@@ -1,12 +1,47 @@
 package minimal.sequence;
 
+import minimal.sequence.function.Function;
+import minimal.sequence.sketch.HeavyHitters;
+import minimal.sequence.sketch.HyperLogLog;
+import minimal.sequence.sketch.QuantileSketch;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -14,6 +49,115 @@ import static org.junit.Assert.*;
  * シーケンス {@link Sequence} をテストします。
  */
 public class SequenceTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testOfEnumeration() throws Exception {
+        int[] read = new int[]{0};
+        Enumeration<Integer> enumeration = new Enumeration<Integer>() {
+            @Override
+            public boolean hasMoreElements() {
+                return true;
+            }
+
+            @Override
+            public Integer nextElement() {
+                return ++read[0];
+            }
+        };
+        Sequence<Integer> sequence = Sequence.of(enumeration);
+        assertEquals(0, read[0]);
+        assertEquals(Maybe.of(3), sequence.filter(x -> x % 3 == 0).first());
+        assertEquals(3, read[0]);
+        try {
+            sequence.first();
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+        assertEquals(Arrays.asList(1, 2), Sequence.of(new Vector<>(Arrays.asList(1, 2)).elements()).toArrayList());
+    }
+
+    @Test
+    public void testOfIterator() throws Exception {
+        Sequence<Integer> sequence = Sequence.of(Arrays.asList(1, 2, 3).iterator());
+        assertEquals(3, sequence.size());
+        try {
+            sequence.toArrayList();
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void testOfCursor() throws Exception {
+        int[] position = new int[]{0};
+        Cursor<String> cursor = new Cursor<String>() {
+            @Override
+            public boolean next() throws Exception {
+                return ++position[0] <= 3;
+            }
+
+            @Override
+            public String get() throws Exception {
+                if (position[0] == 3) {
+                    throw new java.sql.SQLException("broken row");
+                }
+                return "row" + position[0];
+            }
+        };
+        Sequence<String> sequence = Sequence.of(cursor);
+        assertEquals(0, position[0]);
+        Iterator<String> iterator = sequence.iterator();
+        assertEquals("row1", iterator.next());
+        assertEquals("row2", iterator.next());
+        try {
+            iterator.next();
+            fail();
+        } catch (SequenceException e) {
+            assertTrue(e.getCause() instanceof java.sql.SQLException);
+        }
+    }
+
+    @Test
+    public void testLines() throws Exception {
+        assertEquals(Arrays.asList("abc", "", "def"), Sequence.lines(new StringReader("abc\n\ndef\n")).toArrayList());
+        assertEquals(Maybe.of("b"), Sequence.lines(new StringReader("a\nb\nc")).filter(x -> x.equals("b")).first());
+        assertEquals(Collections.emptyList(), Sequence.lines(new StringReader("")).toArrayList());
+    }
+
+    @Test
+    public void testDrain() throws Exception {
+        Queue<Integer> queue = new ArrayDeque<>(Arrays.asList(1, 2, 3, 4));
+        assertEquals(Arrays.asList(1, 2), Sequence.drain(queue).take(2).toArrayList());
+        assertEquals(Arrays.asList(3, 4), new ArrayList<>(queue));
+
+        LinkedBlockingQueue<Integer> blockingQueue = new LinkedBlockingQueue<>(Arrays.asList(1, 2));
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                blockingQueue.put(3);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+        assertEquals(Arrays.asList(1, 2, 3), Sequence.drain(blockingQueue, 5, TimeUnit.SECONDS).take(3).toArrayList());
+        producer.join();
+        assertEquals(Collections.emptyList(), Sequence.drain(blockingQueue, 10, TimeUnit.MILLISECONDS).toArrayList());
+
+        blockingQueue.add(1);
+        Iterator<Integer> iterator = Sequence.drain(blockingQueue, 5, TimeUnit.SECONDS).iterator();
+        assertEquals(Integer.valueOf(1), iterator.next());
+        Thread.currentThread().interrupt();
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (SequenceException expected) {
+            assertTrue(expected.getCause() instanceof InterruptedException);
+            assertTrue(Thread.interrupted());
+        }
+    }
+
     @Test
     public void testIsEmpty() throws Exception {
         assertTrue(Sequence.of().isEmpty());
@@ -115,6 +259,161 @@ public class SequenceTest {
         assertEquals(Sequence.of(), Sequence.of().skip(2));
     }
 
+    @Test
+    public void testTakeAndSkipReiteration() throws Exception {
+        Sequence<Integer> taken = Sequence.of(1, 2, 3, 4, 5).filter(x -> true).take(2);
+        assertEquals(Sequence.of(1, 2), taken);
+        assertEquals(Sequence.of(1, 2), taken);
+        Sequence<Integer> skipped = Sequence.of(1, 2, 3, 4, 5).filter(x -> true).skip(3);
+        assertEquals(Sequence.of(4, 5), skipped);
+        assertEquals(Sequence.of(4, 5), skipped);
+    }
+
+    @Test
+    public void testTakeAndSkipOverLiveList() throws Exception {
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 3));
+        Sequence<Integer> taken = Sequence.of(list).take(4);
+        Sequence<Integer> skipped = Sequence.of(list).skip(1);
+        Sequence<Integer> rest = Sequence.of(list).rest();
+        Sequence<Integer> nested = Sequence.of(list).skip(1).take(3).skip(1);
+        list.add(4);
+        list.add(5);
+        assertEquals(Arrays.asList(1, 2, 3, 4), taken.toArrayList());
+        assertEquals(Arrays.asList(2, 3, 4, 5), skipped.toArrayList());
+        assertEquals(Arrays.asList(2, 3, 4, 5), rest.toArrayList());
+        assertEquals(Arrays.asList(3, 4), nested.toArrayList());
+        list.clear();
+        assertEquals(Collections.emptyList(), taken.toArrayList());
+        assertEquals(Collections.emptyList(), nested.toArrayList());
+        assertEquals(Sequence.of(2, 3), Sequence.range(0, 5).skip(2).take(2));
+        assertEquals(Sequence.of(2, 3), Sequence.of(0, 1, 2, 3, 4).skip(2).take(2));
+    }
+
+    @Test
+    public void testEqualsWithStaleCachedSize() throws Exception {
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2));
+        Sequence<Integer> mapped = Sequence.of(list).map(x -> x * 10);
+        list.add(3);
+        assertEquals(Sequence.of(10, 20, 30), mapped);
+        assertNotEquals(Sequence.of(10, 20), mapped);
+        assertTrue(Sequence.equals(list, Sequence.of(list).map(x -> x)));
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        assertEquals(Sequence.of(0, 1, 2, 3), Sequence.range(0, 4));
+        assertEquals(Sequence.of(1, 4, 7), Sequence.range(1, 10, 3));
+        assertEquals(Sequence.of(10, 8, 6), Sequence.range(10, 4, -2));
+        assertEquals(Sequence.of(), Sequence.range(4, 0));
+        assertEquals(3, Sequence.range(1, 10, 3).size());
+        assertEquals(Sequence.of(7, 10), Sequence.range(1, 13, 3).skip(2).take(2));
+        assertEquals(10, Sequence.range(Integer.MIN_VALUE, Integer.MAX_VALUE, 4).skip(5).take(10).size());
+        assertTrue(Sequence.range(1, 1000000000, 3).contains(999999997));
+        assertFalse(Sequence.range(1, 1000000000, 3).contains(999999998));
+        assertFalse(Sequence.range(1, 10, 3).contains(10));
+        try {
+            Sequence.range(0, 1, 0);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testIterate() throws Exception {
+        assertEquals(Sequence.of(1, 2, 4, 8, 16), Sequence.iterate(1, x -> x * 2).take(5));
+        assertEquals(Sequence.of(1, 2, 4, 8), Sequence.iterate(1, x -> x * 2).takeWhile(x -> x < 10));
+        assertEquals(Sequence.of(4, 8), Sequence.iterate(1, x -> x * 2).skip(2).take(2));
+        assertEquals(3, Sequence.iterate(1, x -> x * 2).take(3).size());
+    }
+
+    @Test
+    public void testGenerate() throws Exception {
+        int[] calls = new int[]{0};
+        Sequence<Integer> generated = Sequence.generate(() -> ++calls[0]).take(3);
+        assertEquals(Sequence.of(1, 2, 3), generated);
+        assertEquals(3, calls[0]);
+        try {
+            Sequence.generate(() -> 1).size();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+        try {
+            Sequence.generate(() -> 1).map(x -> x + 1).toArrayList();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void testInfinitePropagation() throws Exception {
+        List<Function<Sequence<Integer>, Sequence<?>>> operators = Arrays.asList(
+            s -> s.filter(x -> x % 2 == 0),
+            s -> s.filter(x -> x % 2 == 0).filter(x -> x % 3 == 0),
+            s -> s.skipWhile(x -> x < 3),
+            s -> s.ofClass(Integer.class),
+            s -> s.flatMap(x -> Arrays.asList(x, x)),
+            s -> s.distinct(),
+            s -> s.distinct(SpillOptions.of(ElementCodecs.integers())),
+            s -> s.groupBy(x -> x % 3, SpillOptions.of(ElementCodecs.integers())),
+            s -> s.zip(s),
+            s -> s.zip(Sequence.range(0, Integer.MAX_VALUE).cycle())
+        );
+        for (Function<Sequence<Integer>, Sequence<?>> operator : operators) {
+            Sequence<?> derived = operator.apply(Sequence.iterate(0, x -> x + 1));
+            try {
+                derived.size();
+                fail();
+            } catch (UnsupportedOperationException expected) {
+            }
+            try {
+                derived.toArrayList();
+                fail();
+            } catch (UnsupportedOperationException expected) {
+            }
+        }
+        assertEquals(Arrays.asList(0, 2, 4), Sequence.iterate(0, x -> x + 1).filter(x -> x % 2 == 0).take(3).toArrayList());
+        assertEquals(Arrays.asList(3, 4), Sequence.iterate(0, x -> x + 1).skipWhile(x -> x < 3).take(2).toArrayList());
+        assertEquals(2, Sequence.iterate(0, x -> x + 1).takeWhile(x -> x < 2).size());
+        // zip は短い方の要素数になり、両方が無限シーケンスの場合のみ無限シーケンスになる
+        assertEquals(2, Sequence.iterate(0, x -> x + 1).zip(Sequence.of("a", "b")).size());
+        assertEquals(2, Sequence.of("a", "b").zip(Sequence.range(0, Integer.MAX_VALUE).cycle()).size());
+        assertEquals(Arrays.asList(Pair.of(0, "a"), Pair.of(1, "b")), Sequence.iterate(0, x -> x + 1).zip(Arrays.asList("a", "b")).toArrayList());
+        assertEquals(2, Sequence.of(1, 2, 3).zip(Sequence.of("a", "b")).size());
+    }
+
+    @Test
+    public void testRepeat() throws Exception {
+        assertEquals(Sequence.of("a", "a", "a"), Sequence.repeat("a", 3));
+        assertEquals(Sequence.of(), Sequence.repeat("a", 0));
+        assertEquals(Sequence.of("a", "a"), Sequence.repeat("a").take(2));
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        int[] mapped = new int[]{0};
+        Sequence<Integer> cached = Sequence.of(1, 2, 3, 4).map(x -> {
+            mapped[0]++;
+            return x * 2;
+        }).cached();
+        assertEquals(0, mapped[0]);
+        assertEquals(Maybe.of(2), cached.first());
+        assertEquals(1, mapped[0]);
+        assertEquals(4, cached.size());
+        assertEquals(Sequence.of(2, 4, 6, 8), cached);
+        assertEquals(4, mapped[0]);
+
+        Sequence<Integer> singlePass = Sequence.of(Arrays.asList(1, 2).iterator()).cached();
+        assertEquals(2, singlePass.size());
+        assertEquals(Sequence.of(1, 2), singlePass);
+    }
+
+    @Test
+    public void testCycle() throws Exception {
+        assertEquals(Sequence.of(1, 2, 3, 1, 2, 3, 1), Sequence.of(1, 2, 3).cycle().take(7));
+        assertEquals(Sequence.of(), Sequence.of().cycle());
+        assertEquals(Sequence.of(), Sequence.of(1, 2).filter(x -> x > 2).cycle().take(3));
+    }
+
     @Test
     public void testAppend() throws Exception {
         assertEquals(Sequence.<String>of("ab", "cd", "ef", "gh"), Sequence.of("ab", "cd").append("ef", "gh"));
@@ -129,6 +428,141 @@ public class SequenceTest {
         assertEquals(Sequence.<String>of("ab", "cd"), Sequence.of("ab", "cd").prepend((String[]) null));
     }
 
+    @Test
+    public void testAppendInLoop() throws Exception {
+        Sequence<Integer> sequence = Sequence.of();
+        for (int i = 0; i < 100000; i++) {
+            sequence = i % 2 == 0 ? sequence.append(i) : sequence.append(Sequence.of(i).filter(x -> true));
+        }
+        assertEquals(100000, sequence.size());
+        assertEquals(Sequence.range(0, 100000), sequence);
+        assertEquals(Sequence.range(0, 100000).prepend(-1), sequence.prepend(-1));
+    }
+
+    @Test
+    public void testPrependInLoop() throws Exception {
+        Sequence<Integer> sequence = Sequence.of();
+        for (int i = 199999; i >= 0; i--) {
+            sequence = i % 2 == 0 ? Sequence.of(i).prepend(Sequence.<Integer>of()).append(sequence) : sequence.prepend(i);
+        }
+        assertEquals(200000, sequence.size());
+        assertEquals(Sequence.range(0, 200000), sequence);
+    }
+
+    @Test
+    public void testAppendLiveCollection() throws Exception {
+        List<Integer> list = new ArrayList<>();
+        Sequence<Integer> appended = Sequence.of(1).append(list);
+        Sequence<Integer> prepended = Sequence.of(1).prepend(Sequence.of(list));
+        list.add(2);
+        assertEquals(Sequence.of(1, 2), appended);
+        assertEquals(2, appended.size());
+        assertEquals(Sequence.of(2, 1), prepended);
+        list.add(3);
+        assertEquals(Sequence.of(1, 2, 3, 4), Sequence.of(1).append(list).append(4));
+        assertEquals(Arrays.asList(1, 2, 3, 4), Sequence.of(1).append(list).append(4).toArrayList());
+        assertEquals(4, Sequence.of(1, 2).append(Sequence.range(0, 2)).size());
+    }
+
+    @Test
+    public void testAppendBranching() throws Exception {
+        Sequence<Integer> base = Sequence.of(1).append(2);
+        Sequence<Integer> x = base.append(3);
+        Sequence<Integer> y = base.append(4);
+        assertEquals(Sequence.of(1, 2, 3), x);
+        assertEquals(Sequence.of(1, 2, 4), y);
+        assertEquals(Sequence.of(1, 2), base);
+    }
+
+    @Test
+    public void testConcat() throws Exception {
+        Sequence<Integer> concatenated = Sequence.concat(Arrays.asList(1, 2), Sequence.of(3), null, Sequence.of(), Sequence.of(4, 5).append(6));
+        assertEquals(Sequence.of(1, 2, 3, 4, 5, 6), concatenated);
+        assertEquals(6, concatenated.size());
+        assertEquals(Sequence.of(), Sequence.concat());
+        assertEquals(Sequence.of(1, 2, 1, 2), Sequence.concat(Sequence.of(1, 2).cycle(), Sequence.of(3)).take(4));
+        try {
+            Sequence.concat(Sequence.of(1, 2).cycle(), Sequence.of(3)).size();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void testMergeSorted() throws Exception {
+        Sequence<Pair<Integer, String>> a = Sequence.of(Pair.of(1, "a"), Pair.of(4, "a"), Pair.of(4, "a2"), Pair.of(9, "a"));
+        Sequence<Pair<Integer, String>> b = Sequence.of(Pair.of(2, "b"), Pair.of(4, "b"), Pair.of(10, "b"));
+        Sequence<Pair<Integer, String>> c = Sequence.of();
+        assertEquals(
+                Arrays.asList(Pair.of(1, "a"), Pair.of(2, "b"), Pair.of(4, "a"), Pair.of(4, "a2"), Pair.of(4, "b"), Pair.of(9, "a"), Pair.of(10, "b")),
+                Sequence.mergeSorted(Pair::first, a, b, c).toArrayList());
+        assertEquals(
+                Arrays.asList(Pair.of(1, "a"), Pair.of(2, "b"), Pair.of(4, "a"), Pair.of(9, "a"), Pair.of(10, "b")),
+                Sequence.mergeSortedDistinct(Pair::first, a, b, c).toArrayList());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), Sequence.mergeSorted(x -> x, Arrays.asList(Arrays.asList(1, 4), Arrays.asList(2, 5, 6), Arrays.asList(3))).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.<Integer, Integer>mergeSorted(x -> x).toArrayList());
+
+        // 無限シーケンスも列挙しながらマージする
+        assertEquals(Arrays.asList(0, 0, 2, 3, 4, 6, 6, 8),
+                Sequence.mergeSorted(x -> x, Sequence.iterate(0, x -> x + 2), Sequence.iterate(0, x -> x + 3)).take(8).toArrayList());
+
+        try {
+            Sequence.mergeSorted(x -> x, Arrays.asList(1, 3, 2), Arrays.asList(5)).toArrayList();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testSampleReservoir() throws Exception {
+        Random random = new Random(5);
+        LinkedList<Integer> linked = new LinkedList<>(Sequence.range(0, 20).toArrayList());
+        int[] counts = new int[20];
+        for (int trial = 0; trial < 4000; trial++) {
+            Sequence<Integer> sequence = trial % 2 == 0 ? Sequence.of(linked) : Sequence.range(0, 20);
+            ArrayList<Integer> sampled = sequence.sample(5, random).toArrayList();
+            assertEquals(5, sampled.size());
+            for (int i = 1; i < sampled.size(); i++) {
+                assertTrue(sampled.get(i - 1) < sampled.get(i));
+            }
+            for (int x : sampled) {
+                counts[x]++;
+            }
+        }
+        // 各要素が抽出される期待値は 4000 * 5 / 20 = 1000
+        for (int count : counts) {
+            assertTrue(String.valueOf(count), 850 < count && count < 1150);
+        }
+        assertEquals(Arrays.asList(1, 2), Sequence.of(new LinkedList<>(Arrays.asList(1, 2))).sample(3, random).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.range(0, 10).sample(0, random).toArrayList());
+    }
+
+    @Test
+    public void testSampleFraction() throws Exception {
+        Sequence<Integer> sampled = Sequence.range(0, 100000).sampleFraction(0.01, new Random(6));
+        int size = sampled.toArrayList().size();
+        assertTrue(String.valueOf(size), 850 < size && size < 1150);
+        assertEquals(Sequence.range(0, 10).toArrayList(), Sequence.range(0, 10).sampleFraction(1).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.range(0, 10).sampleFraction(0).toArrayList());
+        assertEquals(3, Sequence.iterate(0, x -> x + 1).sampleFraction(0.5).take(3).toArrayList().size());
+        try {
+            Sequence.range(0, 10).sampleFraction(1.5);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testEveryNth() throws Exception {
+        assertEquals(Arrays.asList(0, 3, 6, 9), Sequence.range(0, 10).everyNth(3).toArrayList());
+        assertEquals(4, Sequence.range(0, 10).everyNth(3).size());
+        assertEquals(Arrays.asList(0, 3, 6), Sequence.range(0, 9).everyNth(3).toArrayList());
+        assertEquals(Arrays.asList(0, 3, 6, 9), Sequence.of(new LinkedList<>(Sequence.range(0, 10).toArrayList())).everyNth(3).toArrayList());
+        assertEquals(4, Sequence.of(new LinkedList<>(Sequence.range(0, 10).toArrayList())).filter(x -> true).everyNth(3).size());
+        assertEquals(Arrays.asList(0, 4, 8), Sequence.iterate(0, x -> x + 1).everyNth(4).take(3).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.of().everyNth(2).toArrayList());
+    }
+
     @Test
     public void testFirst() throws Exception {
         assertEquals(Maybe.of(1), Sequence.of(1, 2, 3).first());
@@ -149,6 +583,38 @@ public class SequenceTest {
         assertEquals(Maybe.nothing, Sequence.of(1, 2).single());
     }
 
+    @Test
+    public void testShortCircuit() throws Exception {
+        int[] pulled = new int[]{0};
+        int[] tested = new int[]{0};
+        Sequence<Integer> source = Sequence.iterate(1, x -> x + 1).map(x -> {
+            pulled[0]++;
+            return x;
+        });
+        Sequence<Integer> filtered = source
+                .flatMap(x -> Arrays.asList(x, -x))
+                .filter(x -> {
+                    tested[0]++;
+                    return x < 0;
+                });
+        filtered.iterator();
+        assertEquals(0, pulled[0]);
+        assertEquals(0, tested[0]);
+        assertEquals(Maybe.of(-1), filtered.first());
+        assertEquals(1, pulled[0]);
+        assertEquals(2, tested[0]);
+
+        pulled[0] = 0;
+        tested[0] = 0;
+        assertEquals(Maybe.nothing, filtered.single());
+        assertEquals(2, pulled[0]);
+        assertEquals(4, tested[0]);
+
+        pulled[0] = 0;
+        source.takeWhile(x -> x < 3).skipWhile(x -> x < 2).iterator();
+        assertEquals(0, pulled[0]);
+    }
+
     @Test
     public void testIndexOf() throws Exception {
         assertEquals(-1, Sequence.of("aa", "bb", "cc", "dd").indexOf("ab"));
@@ -167,6 +633,41 @@ public class SequenceTest {
         assertFalse(Sequence.of("abc", "def").contains("de"));
     }
 
+    @Test
+    public void testRandomAccessFastPath() throws Exception {
+        ArrayList<Integer> list = new ArrayList<Integer>(Arrays.asList(1, 2, 3, 4)) {
+            @Override
+            public Iterator<Integer> iterator() {
+                throw new AssertionError("iterated");
+            }
+        };
+        Sequence<Integer> sequence = Sequence.of(list);
+        assertEquals(Maybe.of(1), sequence.first());
+        assertEquals(Maybe.nothing, sequence.single());
+        assertEquals(2, sequence.indexOf(3));
+        assertEquals(3, sequence.indexOf(x -> x > 3));
+        assertEquals(Arrays.asList(1, 2, 3, 4).hashCode(), sequence.hashCode());
+        assertTrue(sequence.equals(Sequence.of(1, 2, 3, 4)));
+        assertFalse(sequence.equals(Sequence.of(1, 2, 3)));
+        assertEquals(Maybe.of(3), sequence.rest().rest().first());
+        assertEquals(Maybe.of(2), sequence.skip(1).take(2).first());
+        assertEquals(2, sequence.skip(1).take(2).size());
+        assertEquals(Maybe.of(4), sequence.skip(3).single());
+        assertEquals(Sequence.of(), Sequence.of(1).rest());
+    }
+
+    @Test
+    public void testContainsHashSet() throws Exception {
+        HashSet<String> set = new HashSet<String>(Arrays.asList("abc", "def")) {
+            @Override
+            public Iterator<String> iterator() {
+                throw new AssertionError("iterated");
+            }
+        };
+        assertTrue(Sequence.of(set).contains("abc"));
+        assertFalse(Sequence.of(set).contains("ab"));
+    }
+
     @Test
     public void testAny() throws Exception {
         assertFalse(Sequence.of().any(x -> true));
@@ -202,6 +703,246 @@ public class SequenceTest {
         assertEquals(Sequence.of(Pair.of(2, "a"), Pair.of(7, "b"), Pair.of(2, "b"), Pair.of(4, "c")), source.sortBy(Pair::second));
     }
 
+    @Test
+    public void testRewriteMapAndFilter() throws Exception {
+        LinkedList<Integer> source = new LinkedList<>(Arrays.asList(5, 3, 8, 1, 9, 2, 7));
+        assertEquals(naive(naive(Sequence.of(source).map(x -> x * 3)).map(x -> x + 1)).toArrayList(),
+                Sequence.of(source).map(x -> x * 3).map(x -> x + 1).toArrayList());
+        assertEquals(naive(naive(Sequence.of(source).filter(x -> x > 2)).filter(x -> x % 2 == 1)).toArrayList(),
+                Sequence.of(source).filter(x -> x > 2).filter(x -> x % 2 == 1).toArrayList());
+        assertEquals(Arrays.asList("a", "c"), Sequence.<Object>of("a", 1, "c", 2.0).ofClass(String.class).toArrayList());
+
+        // 除外する要素には射影関数を適用しない
+        int[] mapped = new int[]{0};
+        assertEquals(Arrays.asList(9, 2, 7), Sequence.of(source).map(x -> { mapped[0]++; return x; }).skip(4).toArrayList());
+        assertEquals(3, mapped[0]);
+    }
+
+    @Test
+    public void testRewriteTakeAndSkip() throws Exception {
+        LinkedList<Integer> source = new LinkedList<>(Arrays.asList(5, 3, 8, 1, 9, 2, 7));
+        for (int a = 0; a <= 8; a++) {
+            for (int b = 0; b <= 8; b++) {
+                Sequence<Integer> sequence = Sequence.of(source);
+                assertEquals(naive(sequence.take(a)).take(b).toArrayList(), sequence.take(a).take(b).toArrayList());
+                assertEquals(naive(sequence.skip(a)).skip(b).toArrayList(), sequence.skip(a).skip(b).toArrayList());
+                assertEquals(naive(sequence.take(a)).skip(b).toArrayList(), sequence.take(a).skip(b).toArrayList());
+                assertEquals(naive(sequence.map(x -> -x)).take(a).toArrayList(), sequence.map(x -> -x).take(a).toArrayList());
+                assertEquals(naive(sequence.take(a)).skip(b).size(), sequence.take(a).skip(b).size());
+            }
+        }
+        assertEquals(Arrays.asList(2, 3), Sequence.iterate(0, x -> x + 1).skip(1).skip(1).take(5).take(2).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.of(source).skip(Integer.MAX_VALUE).skip(Integer.MAX_VALUE).toArrayList());
+    }
+
+    @Test
+    public void testRewriteSort() throws Exception {
+        Random random = new Random(1);
+        LinkedList<Pair<Integer, Integer>> source = new LinkedList<>();
+        for (int i = 0; i < 200; i++) {
+            source.add(Pair.of(random.nextInt(20), i));
+        }
+        Sequence<Pair<Integer, Integer>> sorted = Sequence.of(source).sortBy(Pair::first);
+        ArrayList<Pair<Integer, Integer>> expected = naive(sorted).toArrayList();
+        assertEquals(naive(sorted).first(), sorted.first());
+        for (int k : new int[]{1, 2, 5, 20, 199, 200, 201}) {
+            assertEquals(naive(sorted).take(k).toArrayList(), sorted.take(k).toArrayList());
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), sorted.take(k).toArrayList());
+            assertEquals(expected.subList(0, Math.min(3, k)), sorted.take(k).take(3).toArrayList());
+        }
+        assertEquals(Maybe.nothing, Sequence.<Integer>of().sortBy(x -> x).first());
+        assertEquals(Collections.emptyList(), Sequence.<Integer>of().sortBy(x -> x).take(3).toArrayList());
+
+        // 並べ替えは列挙されるまで行われない
+        int[] selected = new int[]{0};
+        Sequence<Integer> lazy = Sequence.of(3, 1, 2).sortBy(x -> { selected[0]++; return x; });
+        assertEquals(0, selected[0]);
+        assertEquals(Arrays.asList(1, 2, 3), lazy.toArrayList());
+        assertEquals(3, selected[0]);
+
+        // 並べ替えた結果を記憶し、再列挙や先頭の要素の取得では並べ替え直さない
+        assertEquals(Arrays.asList(1, 2, 3), lazy.toArrayList());
+        assertEquals(Arrays.asList(1, 2), lazy.take(2).toArrayList());
+        assertEquals(Maybe.of(1), lazy.first());
+        assertEquals(3, selected[0]);
+    }
+
+    @Test
+    public void testSortBySpilling() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        Random random = new Random(2);
+        ArrayList<String> source = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            source.add(random.nextInt(100) + ":" + i);
+        }
+        SpillOptions<String> options = SpillOptions.of(ElementCodecs.strings()).memoryBudget(64 * 30).directory(directory);
+        Sequence<String> sorted = Sequence.of(source).sortBy(x -> Integer.valueOf(x.substring(0, x.indexOf(':'))), options);
+        assertEquals(Sequence.of(source).sortBy(x -> Integer.valueOf(x.substring(0, x.indexOf(':')))).toArrayList(), sorted.toArrayList());
+        assertEquals(0, directory.list().length);
+
+        // 列挙を中断しても close すれば一時ファイルを削除する
+        Iterator<String> iterator = sorted.iterator();
+        assertEquals(0, directory.list().length);
+        iterator.next();
+        assertEquals(33, directory.list().length);
+        ((Closeable) iterator).close();
+        assertEquals(0, directory.list().length);
+
+        // close せずに中断したイテレーターの一時ファイルは、イテレーターが回収された後に削除する
+        assertEquals(3, sorted.take(3).toArrayList().size());
+        assertEquals(33, directory.list().length);
+        for (int i = 0; i < 100 && directory.list().length > 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(0, directory.list().length);
+
+        // メモリー予算に収まる場合は退避しない
+        assertEquals(Arrays.asList(1, 2, 3), Sequence.of(3, 1, 2).sortBy(x -> x, SpillOptions.of(ElementCodecs.integers()).directory(directory)).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.<Integer>of().sortBy(x -> x, SpillOptions.of(ElementCodecs.integers())).toArrayList());
+        assertEquals(0, directory.list().length);
+    }
+
+    /**
+     * 書き換えずに評価するため、要素を実体化したシーケンスを返します。
+     */
+    private static <T> Sequence<T> naive(Sequence<T> sequence) {
+        return Sequence.of(sequence.toArrayList());
+    }
+
+    @Test
+    public void testFold() throws Exception {
+        assertEquals("abc", Sequence.of("a", "b", "c").fold("", (acc, x) -> acc + x));
+        assertEquals("", Sequence.<String>of().fold("", (acc, x) -> acc + x));
+        assertEquals(Integer.valueOf(6), Sequence.of("a", "bb", "ccc").fold(0, (acc, x) -> acc + x.length(), (x, y) -> x + y));
+    }
+
+    @Test
+    public void testReduce() throws Exception {
+        assertEquals(Maybe.of(10), Sequence.of(1, 2, 3, 4).reduce((x, y) -> x + y));
+        assertEquals(Maybe.of(1), Sequence.of(1).reduce((x, y) -> x + y));
+        assertEquals(Maybe.nothing, Sequence.<Integer>of().reduce((x, y) -> x + y));
+    }
+
+    @Test
+    public void testFoldPrimitive() throws Exception {
+        assertEquals(6, Sequence.of("a", "bb", "ccc").foldInt(0, (acc, x) -> acc + x.length()));
+        assertEquals(5000005050L, Sequence.range(1, 101).foldLong(5000000000L, (acc, x) -> acc + x));
+        assertEquals(1.75, Sequence.of(1, 2, 4).foldDouble(0, (acc, x) -> acc + 1.0 / x), 0);
+    }
+
+    @Test
+    public void testCollect() throws Exception {
+        assertEquals(3L, (long) Sequence.of("a", "b", "c").collect(Accumulators.counting()));
+        assertEquals(Arrays.asList("a", "b"), Sequence.of("a", "b").collect(Accumulators.toArrayList()));
+        assertEquals("abc", Sequence.of("a", "b", "c").collect(Accumulators.fold("", (acc, x) -> acc + x)));
+        assertEquals(Maybe.of("bb"), Sequence.of("c", "bb", "aa", "d").collect(Accumulators.maxBy(String::length)));
+        assertEquals(Maybe.nothing, Sequence.<String>of().collect(Accumulators.minBy(String::length)));
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        int[] traversals = new int[]{0};
+        Sequence<Integer> sequence = Sequence.of(new Iterable<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                traversals[0]++;
+                return Arrays.asList(4, -2, 7, 1).iterator();
+            }
+        });
+        Pair<Long, IntStatistics> pair = sequence.aggregate(Accumulators.counting(), Accumulators.intStatistics(x -> x));
+        assertEquals(1, traversals[0]);
+        assertEquals(4L, (long) pair.first());
+        IntStatistics statistics = pair.second();
+        assertEquals(4, statistics.count());
+        assertEquals(10, statistics.sum());
+        assertEquals(-2, statistics.min());
+        assertEquals(7, statistics.max());
+        assertEquals(2.5, statistics.average(), 0);
+
+        List<Object> results = sequence.aggregate(
+                Accumulators.longStatistics(x -> x * 10000000000L),
+                Accumulators.doubleStatistics(x -> x / 2.0),
+                Accumulators.minBy(x -> x));
+        assertEquals(2, traversals[0]);
+        assertEquals(100000000000L, ((LongStatistics) results.get(0)).sum());
+        assertEquals(3.5, ((DoubleStatistics) results.get(1)).max(), 0);
+        assertEquals(Maybe.of(-2), results.get(2));
+
+        DoubleStatistics empty = Sequence.<Double>of().collect(Accumulators.doubleStatistics(x -> x));
+        assertEquals(0, empty.count());
+        assertEquals(0, empty.average(), 0);
+        assertEquals(Double.POSITIVE_INFINITY, empty.min(), 0);
+        assertEquals(1.0, new DoubleStatistics().combine(Sequence.of(0.1, 0.2, 0.7).collect(Accumulators.doubleStatistics(x -> x))).sum(), 1e-15);
+    }
+
+    @Test
+    public void testApproxDistinctCount() throws Exception {
+        long estimate = Sequence.range(0, 100000).map(x -> x % 30000).approxDistinctCount(14);
+        assertTrue(String.valueOf(estimate), Math.abs(estimate - 30000) < 30000 * 0.03);
+        assertEquals(3, Sequence.of("a", "b", "a", "c").approxDistinctCount(10));
+        assertEquals(0, Sequence.of().approxDistinctCount(10));
+
+        // 別々に集計したスケッチを併合する
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        Sequence.range(0, 20000).each(left::accept);
+        Sequence.range(10000, 40000).each(right::accept);
+        long merged = left.merge(right).estimate();
+        assertTrue(String.valueOf(merged), Math.abs(merged - 40000) < 40000 * 0.06);
+    }
+
+    @Test
+    public void testApproxQuantiles() throws Exception {
+        ArrayList<Integer> source = Sequence.range(0, 100000).toArrayList();
+        Collections.shuffle(source, new Random(7));
+        double[] quantiles = Sequence.of(source).approxQuantiles(x -> x, 0, 0.5, 0.9, 0.99, 1);
+        assertEquals(0, quantiles[0], 0);
+        assertEquals(50000, quantiles[1], 100000 * 0.02);
+        assertEquals(90000, quantiles[2], 100000 * 0.02);
+        assertEquals(99000, quantiles[3], 100000 * 0.02);
+        assertEquals(99999, quantiles[4], 0);
+        assertTrue(Double.isNaN(Sequence.<Integer>of().approxQuantiles(x -> x, 0.5)[0]));
+
+        QuantileSketch left = Sequence.of(source).take(50000).collect(new QuantileSketch());
+        QuantileSketch right = Sequence.of(source).skip(50000).collect(new QuantileSketch());
+        QuantileSketch merged = left.merge(right);
+        assertEquals(100000, merged.count());
+        assertEquals(50000, merged.quantile(0.5), 100000 * 0.02);
+        assertTrue(String.valueOf(merged.retained()), merged.retained() < 1000);
+    }
+
+    @Test
+    public void testHeavyHitters() throws Exception {
+        Random random = new Random(8);
+        ArrayList<String> source = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            int r = random.nextInt(100);
+            source.add(r < 30 ? "a" : r < 50 ? "b" : r < 60 ? "c" : "x" + random.nextInt(5000));
+        }
+        List<Pair<String, Long>> top = Sequence.of(source).heavyHitters(20);
+        assertEquals(Arrays.asList("a", "b", "c"), Sequence.of(top).take(3).map(Pair::first).toArrayList());
+        long a = Sequence.of(source).filter("a"::equals).size();
+        assertTrue(top.get(0).second() >= a && top.get(0).second() <= a + 20000 / 20);
+
+        HeavyHitters<String> left = new HeavyHitters<>(20);
+        HeavyHitters<String> right = new HeavyHitters<>(20);
+        Sequence.of(source).take(10000).each(left::accept);
+        Sequence.of(source).skip(10000).each(right::accept);
+        List<Pair<String, Long>> merged = left.merge(right).top(3);
+        assertEquals(Arrays.asList("a", "b", "c"), Sequence.of(merged).map(Pair::first).toArrayList());
+        assertTrue(merged.get(0).second() >= a);
+        assertEquals(20000, left.count());
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        assertEquals(Sequence.of(0, 1, 3, 6, 10), Sequence.of(1, 2, 3, 4).scan(0, (acc, x) -> acc + x));
+        assertEquals(Sequence.of(0), Sequence.<Integer>of().scan(0, (acc, x) -> acc + x));
+        assertEquals(5, Sequence.of(1, 2, 3, 4).scan(0, (acc, x) -> acc + x).size());
+        assertEquals(Sequence.of(1, 2, 6, 24), Sequence.iterate(1, x -> x + 1).scan(1, (acc, x) -> acc * x).skip(1).take(4));
+    }
+
     @Test
     public void testJoinToString() throws Exception {
         assertEquals("1, 2, 3", Sequence.of(1, 2, 3).joinToString(", "));
@@ -237,6 +978,168 @@ public class SequenceTest {
         assertEquals(Sequence.<Integer>of(2, 5), groups.get(2));
     }
 
+    @Test
+    public void testGroupBySpilling() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        ArrayList<Integer> source = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            source.add(random.nextInt(300));
+        }
+        LinkedHashMap<Integer, Sequence<Integer>> expected = Sequence.of(source).groupBy(x -> x % 97);
+
+        // メモリー予算に収まる場合は最初に現れた順
+        Sequence<Pair<Integer, Sequence<Integer>>> inMemory = Sequence.of(source).groupBy(x -> x % 97, SpillOptions.of(ElementCodecs.integers()).directory(directory));
+        assertEquals(new ArrayList<>(expected.keySet()), inMemory.map(Pair::first).toArrayList());
+
+        Sequence<Pair<Integer, Sequence<Integer>>> spilled = Sequence.of(source).groupBy(x -> x % 97, SpillOptions.of(ElementCodecs.integers()).memoryBudget(64 * 50).directory(directory));
+        HashMap<Integer, Sequence<Integer>> actual = new HashMap<>();
+        for (Pair<Integer, Sequence<Integer>> group : spilled) {
+            assertNull(actual.put(group.first(), group.second()));
+        }
+        assertEquals(expected, actual);
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testDistinct() throws Exception {
+        assertEquals(Arrays.asList(3, 1, 2), Sequence.of(3, 1, 3, 2, 1, 2).distinct().toArrayList());
+        assertEquals(Arrays.asList(0, 1, 2), Sequence.iterate(0, x -> (x + 1) % 3).distinct().take(3).toArrayList());
+
+        File directory = temporaryFolder.newFolder();
+        ArrayList<Integer> source = new ArrayList<>();
+        Random random = new Random(4);
+        for (int i = 0; i < 3000; i++) {
+            source.add(random.nextInt(1000));
+        }
+        ArrayList<Integer> expected = Sequence.of(source).distinct().toArrayList();
+        assertEquals(expected, Sequence.of(source).distinct(SpillOptions.of(ElementCodecs.integers()).directory(directory)).toArrayList());
+
+        ArrayList<Integer> spilled = Sequence.of(source).distinct(SpillOptions.of(ElementCodecs.integers()).memoryBudget(64 * 20).directory(directory)).toArrayList();
+        assertEquals(expected.subList(0, 20), spilled.subList(0, 20));
+        assertEquals(expected.size(), spilled.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(spilled));
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testSequenceCodec() throws Exception {
+        ArrayList<Integer> source = Sequence.range(0, 5000).toArrayList();
+        SequenceCodec<Integer> codec = SequenceCodec.of(ElementCodecs.integers()).chunkSize(100);
+        ByteBuffer buffer = codec.encode(source);
+        assertEquals(4 * 5000 + 4 * 50 + 4, buffer.remaining());
+        Sequence<Integer> decoded = codec.decode(buffer);
+        assertEquals(source, decoded.toArrayList());
+        assertEquals(source, decoded.toArrayList());
+        assertEquals(0, buffer.position());
+        assertTrue(buffer.remaining() < MaybeTest.serialize(source).length / 2);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SequenceCodec<String> strings = SequenceCodec.of(ElementCodecs.strings());
+        strings.write(Sequence.of("a", "いろは", ""), new DataOutputStream(bytes));
+        strings.write(Sequence.<String>of(), new DataOutputStream(bytes));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(Arrays.asList("a", "いろは", ""), strings.read(in).toArrayList());
+        assertEquals(Collections.emptyList(), strings.read(in).toArrayList());
+
+        try {
+            codec.decode(ByteBuffer.wrap(new byte[]{0, 0, 0, 1})).toArrayList();
+            fail();
+        } catch (SequenceException expected) {
+        }
+    }
+
+    @Test
+    public void testBuffered() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Sequence<Integer> source = Sequence.range(0, 100000).map(x -> x % 7 == 0 ? null : x);
+            assertEquals(source.toArrayList(), source.buffered(16, executor).toArrayList());
+            assertEquals(Collections.emptyList(), Sequence.of().buffered(4, executor).toArrayList());
+
+            // 上流は別スレッドで実行する
+            Thread consumer = Thread.currentThread();
+            assertFalse(Sequence.range(0, 10).map(x -> Thread.currentThread() == consumer).buffered(4, executor).any(x -> x));
+
+            // 上流の例外は先読みした要素の後に再スローする
+            ArrayList<Integer> received = new ArrayList<>();
+            try {
+                Sequence.range(0, 10).map(x -> { if (x == 3) throw new IllegalStateException("boom"); return x; }).buffered(4, executor).each(received::add);
+                fail();
+            } catch (IllegalStateException expected) {
+                assertEquals("boom", expected.getMessage());
+            }
+            assertEquals(Arrays.asList(0, 1, 2), received);
+
+            // close すると先読みを停止する
+            AtomicInteger produced = new AtomicInteger();
+            Iterator<Integer> iterator = Sequence.iterate(0, x -> x + 1).map(x -> { produced.incrementAndGet(); return x; }).buffered(8).iterator();
+            assertEquals(0, (int) iterator.next());
+            ((Closeable) iterator).close();
+            assertFalse(iterator.hasNext());
+            Thread.sleep(50);
+            int stopped = produced.get();
+            Thread.sleep(50);
+            assertEquals(stopped, produced.get());
+            assertTrue(String.valueOf(stopped), stopped <= 8 + 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBufferedAbandonedWithoutClose() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // close せずに打ち切った先読みは実行器のスレッドを占有せず、同じ実行器で次の先読みを行える
+            assertEquals(Arrays.asList(0, 2, 4, 6, 8), Sequence.iterate(0, x -> x + 1).buffered(4, executor).map(x -> x * 2).take(5).toArrayList());
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), Sequence.iterate(0, x -> x + 1).buffered(4, executor).take(5).toArrayList());
+            assertEquals(Maybe.of(10), Sequence.iterate(0, x -> x + 1).buffered(2, executor).filter(x -> x >= 10).first());
+            assertEquals(Sequence.range(0, 1000).toArrayList(), Sequence.range(0, 1000).buffered(1, executor).toArrayList());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBufferedReusesPrefetchThread() throws Exception {
+        // 列挙ごとのスレッドは、バッファーが満杯になって先読みを再開するたびに作り直さない
+        Set<Thread> producers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        long sum = 0;
+        for (int x : Sequence.range(0, 100000).map(x -> { producers.add(Thread.currentThread()); return x; }).buffered(64)) {
+            for (int i = 0; i < 100; i++) {
+                sum += (x ^ i) % 7;
+            }
+        }
+        assertTrue(sum > 0);
+        assertEquals(1, producers.size());
+        Thread producer = producers.iterator().next();
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+
+        // 実行器がタスクを受け付けなくなった場合は、待ち続けずに例外を再スローする
+        AtomicInteger submitted = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Executor rejecting = command -> {
+                if (submitted.incrementAndGet() > 1) {
+                    throw new RejectedExecutionException("shut down");
+                }
+                executor.execute(command);
+            };
+            ArrayList<Integer> received = new ArrayList<>();
+            try {
+                Sequence.range(0, 1000).buffered(4, rejecting).each(received::add);
+                fail();
+            } catch (RejectedExecutionException expected) {
+            }
+            assertTrue(received.size() < 1000);
+            assertEquals(Sequence.range(0, received.size()).toArrayList(), received);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testSample() throws Exception {
         assertEquals("exists 556",
@@ -257,4 +1160,517 @@ public class SequenceTest {
                         )                               // => String("exists 556")
         );
     }
+
+    @Test
+    public void testPartition() throws Exception {
+        AtomicInteger evaluated = new AtomicInteger();
+        Pair<Sequence<Integer>, Sequence<Integer>> partitioned = Sequence.range(0, 10).map(x -> { evaluated.incrementAndGet(); return x; }).partition(x -> x % 3 == 0);
+        assertEquals(Arrays.asList(0, 3, 6, 9), partitioned.first().toArrayList());
+        assertEquals(Arrays.asList(1, 2, 4, 5, 7, 8), partitioned.second().toArrayList());
+        assertEquals(10, evaluated.get());
+        try {
+            Sequence.iterate(0, x -> x + 1).partition(x -> x % 2 == 0);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testSpan() throws Exception {
+        Sequence<Integer> source = Sequence.of(1, 2, 5, 1, 6, 2);
+        Pair<Sequence<Integer>, Sequence<Integer>> spanned = source.span(x -> x < 3);
+        assertEquals(source.takeWhile(x -> x < 3).toArrayList(), spanned.first().toArrayList());
+        assertEquals(source.skipWhile(x -> x < 3).toArrayList(), spanned.second().toArrayList());
+        assertEquals(spanned.second().toArrayList(), spanned.second().toArrayList());
+        assertEquals(Collections.emptyList(), source.span(x -> true).second().toArrayList());
+        assertEquals(Collections.emptyList(), source.span(x -> false).first().toArrayList());
+
+        // 上流は 1 回だけ列挙し、残りの要素は列挙されるまで取り出さない
+        AtomicInteger evaluated = new AtomicInteger();
+        Pair<Sequence<Integer>, Sequence<Integer>> infinite = Sequence.iterate(0, x -> x + 1).map(x -> { evaluated.incrementAndGet(); return x; }).span(x -> x < 3);
+        assertEquals(Arrays.asList(0, 1, 2), infinite.first().toArrayList());
+        assertEquals(4, evaluated.get());
+        assertEquals(Arrays.asList(3, 4, 5), infinite.second().take(3).toArrayList());
+        assertEquals(6, evaluated.get());
+        assertEquals(Arrays.asList(3, 4), infinite.second().take(2).toArrayList());
+        assertEquals(6, evaluated.get());
+
+        // 分けるだけでは取り出さず、条件を満たし続ける無限シーケンスでも先頭の要素を列挙できる
+        evaluated.set(0);
+        AtomicInteger tested = new AtomicInteger();
+        Pair<Sequence<Integer>, Sequence<Integer>> endless = Sequence.iterate(0, x -> x + 1).map(x -> { evaluated.incrementAndGet(); return x; }).span(x -> { tested.incrementAndGet(); return true; });
+        assertEquals(0, evaluated.get());
+        assertEquals(Arrays.asList(0, 1, 2), endless.first().take(3).toArrayList());
+        assertEquals(Arrays.asList(0, 1, 2, 3), endless.first().take(4).toArrayList());
+        assertEquals(4, evaluated.get());
+        assertEquals(4, tested.get());
+        try {
+            endless.second().size();
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testTee() throws Exception {
+        AtomicInteger evaluated = new AtomicInteger();
+        Sequence<Integer> source = Sequence.range(0, 1000).map(x -> { evaluated.incrementAndGet(); return x; });
+        List<Sequence<Integer>> branches = source.tee(2, 1);
+        assertEquals(2, branches.size());
+        assertEquals(source.map(x -> x * 3).toArrayList(), branches.get(0).zip(branches.get(1)).map(p -> p.first() + p.second() * 2).toArrayList());
+        assertEquals(2000, evaluated.get());
+
+        // 枝は 1 回だけ列挙できる
+        try {
+            branches.get(0).toArrayList();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // 容量を超えて先行するとエラー
+        List<Sequence<Integer>> bounded = Sequence.range(0, 100).tee(2, 10);
+        assertEquals(10, bounded.get(0).take(10).toArrayList().size());
+        try {
+            bounded.get(1).toArrayList();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // 容量を指定しない場合は既定の容量までであれば順番に列挙できる
+        List<Sequence<Integer>> defaults = Sequence.range(0, 100).tee(3);
+        assertEquals(Sequence.range(0, 100).toArrayList(), defaults.get(2).toArrayList());
+        assertEquals(Sequence.range(0, 100).toArrayList(), defaults.get(0).toArrayList());
+        assertEquals(Arrays.asList(0, 1), defaults.get(1).take(2).toArrayList());
+        List<Sequence<Integer>> exceeding = Sequence.range(0, Sequence.DEFAULT_TEE_CAPACITY + 1).tee(2);
+        try {
+            exceeding.get(0).toArrayList();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("overflow"));
+        }
+
+        // 2 の累乗でない容量でも、容量まで拡張して要素の順序を保つ
+        List<Sequence<Integer>> odd = Sequence.range(0, 1000).tee(2, 100);
+        assertEquals(Sequence.range(0, 1000).toArrayList(), odd.get(0).zip(odd.get(1)).map(p -> p.first()).toArrayList());
+        List<Sequence<Integer>> lagging = Sequence.range(0, 100).tee(2, 100);
+        assertEquals(Sequence.range(0, 100).toArrayList(), lagging.get(0).toArrayList());
+        assertEquals(Sequence.range(0, 100).toArrayList(), lagging.get(1).toArrayList());
+
+        // close した枝は待たない
+        List<Sequence<Integer>> closing = Sequence.range(0, 100).tee(2, 4);
+        Iterator<Integer> abandoned = closing.get(1).iterator();
+        assertEquals(0, (int) abandoned.next());
+        ((Closeable) abandoned).close();
+        assertEquals(100, closing.get(0).toArrayList().size());
+    }
+
+    @Test
+    public void testWindowedMinAndMax() throws Exception {
+        Random random = new Random(44);
+        List<Integer> values = Sequence.generate(() -> random.nextInt(50)).take(500).toArrayList();
+        for (int window : new int[] { 1, 2, 7, 64, 500 }) {
+            List<Integer> mins = new ArrayList<>();
+            List<Integer> maxes = new ArrayList<>();
+            for (int i = 0; i + window <= values.size(); i++) {
+                mins.add(Collections.min(values.subList(i, i + window)));
+                maxes.add(Collections.max(values.subList(i, i + window)));
+            }
+            assertEquals(mins, Sequence.of(values).windowedMin(window, x -> x).toArrayList());
+            assertEquals(maxes, Sequence.of(values).windowedMax(window, x -> x).toArrayList());
+            assertEquals(mins.size(), (int) Sequence.of(values).windowedMin(window, x -> x).size());
+
+            List<Long> longMins = new ArrayList<>();
+            List<Long> longMaxes = new ArrayList<>();
+            Sequence.of(values).windowedMinLong(window, x -> x, longMins::add).windowedMaxLong(window, x -> x, longMaxes::add);
+            assertEquals(Sequence.of(mins).map(Integer::longValue).toArrayList(), longMins);
+            assertEquals(Sequence.of(maxes).map(Integer::longValue).toArrayList(), longMaxes);
+
+            List<Double> doubleMins = new ArrayList<>();
+            List<Double> doubleMaxes = new ArrayList<>();
+            Sequence.of(values).windowedMinDouble(window, x -> x, doubleMins::add).windowedMaxDouble(window, x -> x, doubleMaxes::add);
+            assertEquals(Sequence.of(mins).map(Integer::doubleValue).toArrayList(), doubleMins);
+            assertEquals(Sequence.of(maxes).map(Integer::doubleValue).toArrayList(), doubleMaxes);
+        }
+
+        // 比較値が等しい場合は先に現れた要素を選ぶ
+        assertEquals(Arrays.asList("a1", "b1", "b2"), Sequence.of("a1", "b1", "b2", "c2").windowedMin(2, s -> s.charAt(1)).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.of(1, 2).windowedMax(3, x -> x).toArrayList());
+        assertEquals(Arrays.asList(2, 3, 4), Sequence.iterate(0, x -> x + 1).windowedMax(3, x -> x).take(3).toArrayList());
+        try {
+            Sequence.of(1).windowedMin(0, x -> x);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testWindowedSumAndAverage() throws Exception {
+        Random random = new Random(44);
+        List<Integer> values = Sequence.generate(() -> random.nextInt(1000) - 500).take(500).toArrayList();
+        for (int window : new int[] { 1, 3, 100 }) {
+            List<Long> sums = new ArrayList<>();
+            for (int i = 0; i + window <= values.size(); i++) {
+                sums.add(Sequence.of(values.subList(i, i + window)).foldLong(0, (a, x) -> a + x));
+            }
+            List<Long> longSums = new ArrayList<>();
+            Sequence.of(values).windowedSumLong(window, x -> x, longSums::add);
+            assertEquals(sums, longSums);
+            assertEquals(Sequence.of(sums).map(Long::doubleValue).toArrayList(), Sequence.of(values).windowedSum(window, x -> x).toArrayList());
+            assertEquals(Sequence.of(sums).map(x -> (double) x / window).toArrayList(), Sequence.of(values).windowedAverage(window, x -> x).toArrayList());
+
+            List<Double> doubleSums = new ArrayList<>();
+            List<Double> averages = new ArrayList<>();
+            Sequence.of(values).windowedSumDouble(window, x -> x, doubleSums::add).windowedAverageDouble(window, x -> x, averages::add);
+            assertEquals(Sequence.of(sums).map(Long::doubleValue).toArrayList(), doubleSums);
+            assertEquals(Sequence.of(sums).map(x -> (double) x / window).toArrayList(), averages);
+        }
+
+        // 丸め誤差や無限大は窓から外れた後の合計へ影響しない
+        List<Double> sums = Sequence.of(1e100, 1.0, 1.0, Double.POSITIVE_INFINITY, 1.0, 1.0, Double.NaN, 2.0, 2.0).windowedSum(2, x -> x).toArrayList();
+        assertEquals(Arrays.asList(1e100, 2.0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 2.0, Double.NaN, Double.NaN, 4.0), sums);
+    }
+
+    @Test
+    public void testChunkBy() throws Exception {
+        Sequence<String> log = Sequence.of("a1", "a2", "b1", "a3", "a4", "c1");
+        assertEquals(
+            Arrays.asList(Pair.of('a', Arrays.asList("a1", "a2")), Pair.of('b', Arrays.asList("b1")), Pair.of('a', Arrays.asList("a3", "a4")), Pair.of('c', Arrays.asList("c1"))),
+            log.chunkBy(s -> s.charAt(0)).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.<String>of().chunkBy(s -> s).toArrayList());
+        assertEquals(Arrays.asList(Pair.of(null, Arrays.asList(null, null))), Sequence.of(null, null).chunkBy(s -> s).toArrayList());
+
+        // バッファーを再利用する場合は同じリストの内容を置き換える
+        List<List<String>> buffers = new ArrayList<>();
+        List<List<String>> contents = new ArrayList<>();
+        log.chunkBy(s -> s.charAt(0), true).each(p -> { buffers.add(p.second()); contents.add(new ArrayList<>(p.second())); });
+        assertEquals(Arrays.asList(Arrays.asList("a1", "a2"), Arrays.asList("b1"), Arrays.asList("a3", "a4"), Arrays.asList("c1")), contents);
+        assertTrue(Sequence.of(buffers).all(b -> b == buffers.get(0)));
+
+        // 無限シーケンスでも連ごとに取り出せる
+        assertEquals(Arrays.asList(Pair.of(0, Arrays.asList(0, 1, 2)), Pair.of(1, Arrays.asList(3, 4, 5))), Sequence.iterate(0, x -> x + 1).chunkBy(x -> x / 3).take(2).toArrayList());
+    }
+
+    @Test
+    public void testDistinctUntilChanged() throws Exception {
+        assertEquals(Arrays.asList("a1", "b1", "a3", "c1"), Sequence.of("a1", "a2", "b1", "a3", "a4", "c1").distinctUntilChanged(s -> s.charAt(0)).toArrayList());
+        assertEquals(Arrays.asList(null, 1, null), Sequence.of(null, null, 1, 1, null).distinctUntilChanged(x -> x).toArrayList());
+        assertEquals(Arrays.asList(0, 2, 4), Sequence.iterate(0, x -> x + 1).distinctUntilChanged(x -> x / 2).take(3).toArrayList());
+    }
+
+    @Test
+    public void testRunLengthEncode() throws Exception {
+        assertEquals(Arrays.asList(Pair.of('a', 3), Pair.of('b', 1), Pair.of('a', 2)), Sequence.of('a', 'a', 'a', 'b', 'a', 'a').runLengthEncode().toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.of().runLengthEncode().toArrayList());
+        assertEquals(Arrays.asList(Pair.of(1, 1_000_000)), Sequence.repeat(1).take(1_000_000).runLengthEncode().toArrayList());
+    }
+
+    @Test
+    public void testPairwise() throws Exception {
+        assertEquals(Arrays.asList(Pair.of(1, 2), Pair.of(2, 3), Pair.of(3, 4)), Sequence.of(1, 2, 3, 4).pairwise().toArrayList());
+        assertEquals(3, (int) Sequence.of(1, 2, 3, 4).pairwise().size());
+        assertEquals(Collections.emptyList(), Sequence.of(1).pairwise().toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.of().pairwise().toArrayList());
+        assertEquals(Arrays.asList(1, 1, 1), Sequence.iterate(0, x -> x + 1).pairwise().map(p -> p.second() - p.first()).take(3).toArrayList());
+    }
+
+    @Test
+    public void testSortedSequence() throws Exception {
+        Random random = new Random(46);
+        List<Integer> values = Sequence.generate(() -> random.nextInt(200)).take(1000).toArrayList();
+        AtomicInteger traversals = new AtomicInteger();
+        Sequence<Integer> source = Sequence.of(() -> { traversals.incrementAndGet(); return values.iterator(); });
+        Function<Integer, Integer> key = x -> x / 10;
+        SortedSequence<Integer, Integer> sorted = source.sortBy(key);
+        List<Integer> expected = source.sortBy(key).toArrayList();
+        assertSame(key, sorted.comparableSelector());
+
+        // 検索は並べ替えた結果を一度だけ作成して記憶する
+        traversals.set(0);
+        for (int value = -1; value <= 200; value++) {
+            assertEquals(expected.indexOf(value), sorted.indexOf(value));
+            assertEquals(expected.contains(value), sorted.contains(value));
+        }
+        assertEquals(expected, sorted.toArrayList());
+        assertEquals(1, traversals.get());
+        assertFalse(sorted.contains(null));
+
+        assertEquals(Sequence.of(expected).filter(x -> 3 <= x / 10 && x / 10 < 7).toArrayList(), sorted.rangeBetween(3, 7).toArrayList());
+        assertEquals(Collections.emptyList(), sorted.rangeBetween(7, 7).toArrayList());
+        assertEquals(Collections.emptyList(), sorted.rangeBetween(100, 200).toArrayList());
+        try {
+            sorted.rangeBetween(7, 3);
+            fail();
+        } catch (IllegalArgumentException expected1) {
+        }
+
+        // 最小・最大は同値の場合は先に現れた要素
+        assertEquals(source.minBy(key), sorted.min());
+        assertEquals(source.maxBy(key), sorted.max());
+        assertEquals(source.minBy(key), sorted.minBy(key));
+        assertEquals(source.maxBy(key), sorted.maxBy(key));
+        assertEquals(source.maxBy(x -> -x), sorted.maxBy(x -> -x));
+        assertEquals(Maybe.nothing(), Sequence.<Integer>of().sortBy(key).max());
+
+        // 検索は並べ替えで求めた比較値を用い、射影関数を適用し直さない
+        AtomicInteger applied = new AtomicInteger();
+        Function<Integer, Integer> counting = x -> { applied.incrementAndGet(); return x; };
+        assertTrue(Sequence.of(5, 3, 1, 4, 2).sortBy(counting).contains(4));
+        assertEquals(6, applied.get());
+        // 一度列挙した後は最小・最大を記憶した結果から求める
+        applied.set(0);
+        SortedSequence<Integer, Integer> iterated = Sequence.of(5, 3, 1, 4, 2).sortBy(counting);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), iterated.toArrayList());
+        assertEquals(Maybe.of(1), iterated.minBy(counting));
+        assertEquals(Maybe.of(5), iterated.maxBy(counting));
+        assertEquals(5, applied.get());
+
+        // 集合演算
+        assertEquals(Sequence.of(expected).distinct().toArrayList(), sorted.distinct().toArrayList());
+        SortedSequence<Integer, Integer> evens = Sequence.range(0, 100).filter(x -> x % 2 == 0).sortBy(x -> x);
+        SortedSequence<Integer, Integer> triples = Sequence.range(0, 100).filter(x -> x % 3 == 0).sortBy(x -> x);
+        assertEquals(Sequence.range(0, 100).filter(x -> x % 6 == 0).toArrayList(), evens.intersect(triples).toArrayList());
+        assertEquals(Sequence.range(0, 100).filter(x -> x % 2 == 0 || x % 3 == 0).toArrayList(), evens.union(triples).toArrayList());
+        assertEquals(Arrays.asList(4, 6), evens.intersect(Arrays.asList(3, 4, 4, 5, 6)).toArrayList());
+        assertTrue(evens.union(triples).contains(99));
+        assertFalse(evens.union(triples).contains(97));
+        try {
+            evens.intersect(Arrays.asList(4, 2)).toArrayList();
+            fail();
+        } catch (IllegalStateException expected1) {
+        }
+
+        // 比較値が等しくても異なる要素は、それぞれ集合の要素として扱う
+        SortedSequence<String, Integer> byLength = Sequence.of("bb", "aa", "c", "aa").sortBy(String::length);
+        assertEquals(Arrays.asList("c", "bb", "aa"), byLength.distinct().toArrayList());
+        assertEquals(Arrays.asList("c", "bb", "aa"), byLength.union(Collections.<String>emptyList()).toArrayList());
+        assertEquals(Arrays.asList("c", "bb", "aa"), byLength.intersect(byLength).toArrayList());
+        assertEquals(Arrays.asList("c", "d", "bb", "aa", "cc", "eee"), byLength.union(Arrays.asList("d", "aa", "cc", "eee")).toArrayList());
+        assertEquals(Arrays.asList("c", "aa"), byLength.intersect(Arrays.asList("c", "d", "aa", "cc")).toArrayList());
+        assertEquals(Collections.emptyList(), byLength.intersect(Arrays.asList("d", "cc")).toArrayList());
+    }
+
+    @Test
+    public void testParallelSort() throws Exception {
+        Random random = new Random(47);
+        List<Integer> values = Sequence.generate(() -> random.nextInt(1000)).take(200_000).toArrayList();
+
+        // 並列に並べ替えた結果は安定であり、逐次に並べ替えた結果と一致する
+        AtomicInteger applied = new AtomicInteger();
+        Keyed<Integer, Integer>[] keyed = ParallelSort.sort(values, x -> { applied.incrementAndGet(); return x / 10; });
+        assertEquals(values.size(), applied.get());
+        List<Integer> sequential = new ArrayList<>(values);
+        Collections.sort(sequential, (x, y) -> Integer.compare(x / 10, y / 10));
+        assertEquals(sequential, Sequence.of(keyed).map(k -> k.item).toArrayList());
+        assertTrue(Sequence.of(keyed).pairwise().all(p -> p.first().compareTo(p.second()) < 0));
+
+        // 既定の閾値未満は逐次に並べ替える
+        assertFalse(ParallelSort.isWorthwhile(ParallelSort.DEFAULT_THRESHOLD - 1));
+        try {
+            Sequence.setParallelSortThreshold(1000);
+            assertEquals(sequential, Sequence.of(values).sortBy(x -> x / 10).toArrayList());
+            assertEquals(sequential.subList(0, 10), Sequence.of(values).sortBy(x -> x / 10).take(10).toArrayList());
+        } finally {
+            Sequence.setParallelSortThreshold(ParallelSort.DEFAULT_THRESHOLD);
+        }
+        try {
+            Sequence.setParallelSortThreshold(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        assertEquals(Arrays.asList("a", "", "bc", ""), Sequence.split("a,,bc,", ',').map(Object::toString).toArrayList());
+        assertEquals(Arrays.asList(""), Sequence.split("", ',').map(Object::toString).toArrayList());
+        assertEquals(Arrays.asList("a", "b", "", "c"), Sequence.split("a::b::::c", "::").map(Object::toString).toArrayList());
+        assertEquals(Arrays.asList("a", "b", ":c"), Sequence.split(new StringBuilder("a::b:::c"), "::").map(Object::toString).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.split(null, ',').toArrayList());
+
+        // 部分は元の文字列を参照するビュー
+        StringBuilder text = new StringBuilder("ab,cd");
+        List<CharSlice> slices = Sequence.split(text, ',').toArrayList();
+        assertEquals("cd", slices.get(1).toString());
+        text.setCharAt(3, 'x');
+        assertEquals("xd", slices.get(1).toString());
+        assertEquals('d', slices.get(1).charAt(1));
+        assertEquals("d", slices.get(1).subSequence(1, 2).toString());
+        assertEquals(Sequence.split("xd", ',').first().asNullable(), slices.get(1));
+        assertEquals("xd".hashCode(), slices.get(1).hashCode());
+        try {
+            slices.get(1).charAt(2);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        // CharBuffer は現在の位置から分割し、その後の位置の変更の影響を受けない
+        CharBuffer buffer = CharBuffer.wrap("skip|a|b".toCharArray());
+        buffer.position(5);
+        Sequence<CharSlice> fromBuffer = Sequence.split(buffer, '|');
+        buffer.position(0);
+        assertEquals(Arrays.asList("a", "b"), fromBuffer.map(Object::toString).toArrayList());
+
+        try {
+            Sequence.split("a", "");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testTokens() throws Exception {
+        assertEquals(Arrays.asList("alpha", "beta", "gamma"), Sequence.tokens("  alpha \tbeta\n\ngamma ").map(Object::toString).toArrayList());
+        assertEquals(Collections.emptyList(), Sequence.tokens(" \t ").toArrayList());
+        assertEquals(Arrays.asList("a", "b", "c"), Sequence.tokens(",a;;b,c;", ",;").map(Object::toString).toArrayList());
+        assertEquals(Arrays.asList("a", "b"), Sequence.tokens(CharBuffer.wrap("--a-b--"), "-").map(Object::toString).toArrayList());
+        assertEquals(3, (int) Sequence.tokens("x y z").size());
+    }
+
+    @Test
+    public void testToIntMap() throws Exception {
+        IntMap<String> map = Sequence.of("b2", "a1", "c3", "d2", "z0").toIntMap(s -> s.charAt(1) - '0', s -> s);
+        assertEquals(4, map.size());
+        assertEquals("d2", map.get(2));
+        assertEquals("z0", map.get(0));
+        assertNull(map.get(4));
+        assertEquals("none", map.getOrDefault(-1, "none"));
+        assertTrue(map.containsKey(3));
+        assertFalse(map.containsKey(5));
+        assertEquals(Arrays.asList(2, 1, 3, 0), map.keys().toArrayList());
+        assertEquals(Arrays.asList("d2", "a1", "c3", "z0"), map.values().toArrayList());
+        assertEquals(Pair.of(2, "d2"), map.entries().first().asNullable());
+        assertEquals(3, map.keyAt(2));
+        assertEquals("{2=d2, 1=a1, 3=c3, 0=z0}", map.toString());
+        try {
+            map.keyAt(4);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            Iterator<String> values = map.values().iterator();
+            values.next();
+            values.remove();
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        // 多数のキー (負のキーや衝突しやすいキーを含む) でも HashMap と一致する
+        Random random = new Random(49);
+        List<Integer> keys = Sequence.generate(() -> random.nextInt(100_000) * (random.nextBoolean() ? 1024 : -1)).take(50_000).toArrayList();
+        IntMap<Integer> large = Sequence.of(keys).toIntMap(x -> x, x -> -x);
+        HashMap<Integer, Integer> expected = Sequence.of(keys).toHashMap(x -> x, x -> -x);
+        assertEquals(expected.size(), large.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), large.get(entry.getKey()));
+        }
+        assertEquals(Sequence.of(keys).distinct().toArrayList(), large.keys().toArrayList());
+        assertFalse(large.containsKey(7));
+
+        LongMap<Integer> longs = Sequence.of(1, 2, 3).toLongMap(x -> x * 10_000_000_000L, x -> x);
+        assertEquals(Arrays.asList(10_000_000_000L, 20_000_000_000L, 30_000_000_000L), longs.keys().toArrayList());
+        assertEquals(2, (int) longs.get(20_000_000_000L));
+        assertNull(longs.get(2));
+    }
+
+    @Test
+    public void testGroupByInt() throws Exception {
+        Sequence<String> words = Sequence.of("one", "two", "three", "four", "five", "six");
+        IntMap<Sequence<String>> byLength = words.groupByInt(String::length);
+        LinkedHashMap<Integer, Sequence<String>> expected = words.groupBy(String::length);
+        assertEquals(new ArrayList<>(expected.keySet()), byLength.keys().toArrayList());
+        assertEquals(new ArrayList<>(expected.values()), byLength.values().toArrayList());
+        assertEquals(Arrays.asList("three"), byLength.get(5).toArrayList());
+        assertEquals(2, (int) byLength.get(4).size());
+
+        LongMap<Sequence<String>> byLongLength = words.groupByLong(s -> s.length() * 1L << 40);
+        assertEquals(Arrays.asList("one", "two", "six"), byLongLength.get(3L << 40).toArrayList());
+        assertTrue(Sequence.<String>of().groupByInt(String::length).isEmpty());
+    }
+
+    @Test
+    public void testToArray() throws Exception {
+        // 要素数がわかる場合, わからない場合, 添字アクセス可能な場合
+        for (Sequence<Integer> sequence : Arrays.asList(Sequence.range(0, 100).map(x -> x), Sequence.range(0, 200).filter(x -> x % 2 == 0).map(x -> x / 2), Sequence.of(Sequence.range(0, 100).toArrayList()))) {
+            assertArrayEquals(Sequence.range(0, 100).toArrayList().toArray(), sequence.toArray(Integer.class));
+            assertEquals(Integer[].class, sequence.toArray(Integer.class).getClass());
+            assertArrayEquals(Sequence.range(0, 100).toArrayList().toArray(), sequence.toArray(new Number[0]));
+
+            // 収まる場合は指定された配列へ格納し、残りの最初の位置へ null を格納する
+            Integer[] large = new Integer[102];
+            Arrays.fill(large, -1);
+            assertSame(large, sequence.toArray(large));
+            assertNull(large[100]);
+            assertEquals(-1, (int) large[101]);
+            assertEquals(99, (int) large[99]);
+        }
+        assertEquals(0, Sequence.<String>of().toArray(String.class).length);
+        try {
+            Sequence.of(1, 2).toArray(String.class);
+            fail();
+        } catch (ArrayStoreException expected) {
+        }
+        try {
+            Sequence.repeat(1).toArray(Integer.class);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testToImmutableList() throws Exception {
+        List<Integer> list = Sequence.range(0, 10).filter(x -> x % 3 != 0).toImmutableList();
+        assertEquals(Arrays.asList(1, 2, 4, 5, 7, 8), list);
+        assertEquals(Arrays.asList(1, 2, 4, 5, 7, 8).hashCode(), list.hashCode());
+        assertTrue(list instanceof RandomAccess);
+        try {
+            list.add(9);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            list.set(0, 0);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        // シーケンスにしても要素をコピーしない
+        Sequence<Integer> sequence = Sequence.of(list);
+        assertSame(list, sequence.toImmutableList());
+        assertEquals(list.hashCode(), sequence.hashCode());
+        assertEquals(Arrays.asList(5, 7), sequence.skip(3).take(2).toArrayList());
+        assertEquals(Arrays.asList(null, "a"), Sequence.of(null, "a").toImmutableList());
+        assertEquals(Collections.emptyList(), Sequence.of().toImmutableList());
+        assertEquals(list, MaybeTest.deserialize(MaybeTest.serialize(list)));
+    }
+
+    @Test
+    public void testToImmutableSet() throws Exception {
+        Set<String> set = Sequence.of("b", "a", "b", "c", "a", null, null).toImmutableSet();
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", null)), set);
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", null)).hashCode(), set.hashCode());
+        assertEquals(Arrays.asList("b", "a", "c", null), new ArrayList<>(set));
+        assertTrue(set.contains("c"));
+        assertTrue(set.contains(null));
+        assertFalse(set.contains("d"));
+        try {
+            set.add("d");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        // シーケンスにしても要素をコピーせず、添字アクセスで処理する
+        Sequence<String> sequence = Sequence.of(set);
+        assertSame(set, sequence.toImmutableSet());
+        assertTrue(sequence.contains("a"));
+        assertEquals(Arrays.asList("a", "c"), sequence.skip(1).take(2).toArrayList());
+        assertEquals("c", sequence.rest().rest().first().asNullable());
+
+        Set<Integer> large = Sequence.range(0, 10_000).map(x -> x % 5_000 * 7919).toImmutableSet();
+        assertEquals(5_000, large.size());
+        assertTrue(Sequence.range(0, 5_000).all(x -> large.contains(x * 7919)));
+        assertFalse(large.contains(1));
+        Set<?> deserialized = (Set<?>) MaybeTest.deserialize(MaybeTest.serialize(large));
+        assertEquals(large, deserialized);
+        assertTrue(deserialized.contains(4_999 * 7919));
+    }
 }
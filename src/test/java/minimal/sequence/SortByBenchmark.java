@@ -0,0 +1,52 @@
+package minimal.sequence;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link Sequence#sortBy} の逐次と並列の並べ替えの所要時間を要素数ごとに比較し、並列化が有利になる要素数を確認するためのベンチマークです。
+ * 並列の方が速くなった最小の要素数を最後に出力します。{@link ParallelSort#DEFAULT_THRESHOLD} を見直す際は、複数のプロセッサーを利用できる環境で実行します。
+ * 単体テストではないため、必要に応じて main メソッドを直接実行します。
+ */
+public class SortByBenchmark {
+    public static void main(String[] args) {
+        int[] sizes = { 10_000, 30_000, 100_000, 300_000, 1_000_000, 3_000_000, 10_000_000 };
+        System.out.printf("processors: %d%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%10s %14s %14s%n", "size", "sequential ms", "parallel ms");
+        int crossover = -1;
+        try {
+            for (int size : sizes) {
+                Random random = new Random(size);
+                List<Long> values = Sequence.generate(random::nextLong).take(size).toArrayList();
+                double sequential = measure(values, Integer.MAX_VALUE);
+                double parallel = measure(values, 1);
+                System.out.printf("%10d %14.2f %14.2f%n", size, sequential, parallel);
+                if (crossover == -1 && parallel < sequential) {
+                    crossover = size;
+                }
+            }
+        } finally {
+            Sequence.setParallelSortThreshold(ParallelSort.DEFAULT_THRESHOLD);
+        }
+        System.out.printf("crossover: %s (default threshold: %d)%n", crossover == -1 ? "not reached" : String.valueOf(crossover), ParallelSort.DEFAULT_THRESHOLD);
+    }
+
+    private static double measure(List<Long> values, int threshold) {
+        Sequence.setParallelSortThreshold(threshold);
+        int repeats = Math.max(3, 3_000_000 / values.size());
+        long sink = 0;
+        // ウォームアップ
+        for (int i = 0; i < repeats; i++) {
+            sink += Sequence.of(values).sortBy(x -> x).toArrayList().size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            sink += Sequence.of(values).sortBy(x -> x).toArrayList().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return elapsed / 1e6 / repeats;
+    }
+}
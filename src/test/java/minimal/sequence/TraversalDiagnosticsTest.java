@@ -0,0 +1,83 @@
+package minimal.sequence;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 列挙の診断 {@link TraversalDiagnostics} をテストします。
+ */
+public class TraversalDiagnosticsTest {
+    @After
+    public void tearDown() throws Exception {
+        TraversalDiagnostics.setPolicy(TraversalDiagnostics.Policy.OFF);
+        TraversalDiagnostics.clear();
+    }
+
+    @Test
+    public void testOff() throws Exception {
+        Sequence<Integer> mapped = Sequence.of(1, 2, 3).map(x -> x * 2);
+        mapped.size();
+        mapped.toArrayList();
+        assertEquals(0, TraversalDiagnostics.traversals(mapped));
+        assertTrue(TraversalDiagnostics.repeatedTraversals().isEmpty());
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        TraversalDiagnostics.setPolicy(TraversalDiagnostics.Policy.REPORT);
+        int[] mapped = new int[]{0};
+        Sequence<Integer> source = Sequence.of(1, 2, 3);
+        Sequence<Integer> sequence = source.map(x -> {
+            mapped[0]++;
+            return x * 2;
+        });
+        Sequence<Integer> filtered = sequence.filter(x -> x > 2);
+        filtered.size();
+        filtered.toArrayList();
+        assertEquals(2, TraversalDiagnostics.traversals(filtered));
+        assertEquals(2, TraversalDiagnostics.traversals(sequence));
+        assertEquals(2, TraversalDiagnostics.traversals(source));
+        assertEquals(6, mapped[0]);
+
+        Map<String, Integer> repeated = TraversalDiagnostics.repeatedTraversals();
+        assertEquals(1, repeated.size());
+        String callSite = repeated.keySet().iterator().next();
+        assertTrue(callSite, callSite.startsWith(TraversalDiagnosticsTest.class.getName() + ".testReport"));
+        assertEquals(2, (int) repeated.get(callSite));  // filtered と上流の sequence
+    }
+
+    @Test
+    public void testReportCallSiteOfComposedPipelines() throws Exception {
+        TraversalDiagnostics.setPolicy(TraversalDiagnostics.Policy.REPORT);
+        Sequence<Integer> appended = Sequence.of(1, 2).map(x -> x * 2).append(Sequence.of(3).filter(x -> x > 0));
+        appended.toArrayList();
+        appended.toArrayList();
+        Sequence<Integer> sorted = Sequence.of(3, 1, 2).filter(x -> x > 0).sortBy(x -> x).map(x -> x + 1);
+        sorted.toArrayList();
+        sorted.toArrayList();
+
+        Map<String, Integer> repeated = TraversalDiagnostics.repeatedTraversals();
+        assertFalse(repeated.isEmpty());
+        for (String callSite : repeated.keySet()) {
+            assertTrue(callSite, callSite.startsWith(TraversalDiagnosticsTest.class.getName() + ".testReportCallSiteOfComposedPipelines"));
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        TraversalDiagnostics.setPolicy(TraversalDiagnostics.Policy.CACHE);
+        int[] mapped = new int[]{0};
+        Sequence<Integer> sequence = Sequence.of(1, 2, 3).map(x -> {
+            mapped[0]++;
+            return x * 2;
+        }).filter(x -> x > 2);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Sequence.of(4, 6), sequence);
+        }
+        assertEquals(6, mapped[0]);
+    }
+}
@@ -0,0 +1,72 @@
+package minimal.sequence.metrics;
+
+import minimal.sequence.Sequence;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * シーケンスの計測と {@link InMemoryMetricsReporter} をテストします。
+ */
+public class InMemoryMetricsReporterTest {
+    @Test
+    public void testInstrument() throws Exception {
+        InMemoryMetricsReporter reporter = new InMemoryMetricsReporter();
+        Sequence<Integer> sequence = Sequence.of(1, 2, 3, 4, 5, 6)
+                .instrument("numbers", reporter)
+                .map(x -> x * 10)
+                .filter(x -> x % 20 == 0)
+                .flatMap(x -> Sequence.of(x, x + 1));
+        assertEquals(Sequence.of(20, 21, 40, 41, 60, 61), sequence);
+        assertEquals(6, sequence.size());
+
+        StageMetrics source = reporter.metrics("numbers");
+        assertEquals(2, source.getIterators());
+        assertEquals(12, source.getElementsOut());
+
+        StageMetrics map = reporter.metrics("numbers/1:map");
+        assertEquals(2, map.getIterators());
+        assertEquals(12, map.getElementsIn());
+        assertEquals(12, map.getElementsOut());
+
+        StageMetrics filter = reporter.metrics("numbers/2:filter");
+        assertEquals(12, filter.getElementsIn());
+        assertEquals(6, filter.getElementsOut());
+        assertEquals(0.5, filter.getSelectivity(), 0);
+        assertTrue(filter.getNanos() > 0);
+
+        StageMetrics flatMap = reporter.metrics("numbers/3:flatMap");
+        assertEquals(6, flatMap.getElementsIn());
+        assertEquals(12, flatMap.getElementsOut());
+        assertEquals(4, reporter.snapshot().size());
+    }
+
+    @Test
+    public void testGlobalRegistry() throws Exception {
+        Sequence<Integer> sequence = Sequence.of(1, 2, 3);
+        assertSame(sequence, sequence.instrument("disabled"));
+
+        InMemoryMetricsReporter reporter = new InMemoryMetricsReporter();
+        Sequence.setMetricsRegistry(reporter);
+        try {
+            assertEquals(Sequence.of(2, 3, 4), sequence.instrument("global").map(x -> x + 1));
+            assertEquals(3, reporter.metrics("global/1:map").getElementsOut());
+        } finally {
+            Sequence.setMetricsRegistry(null);
+        }
+    }
+
+    @Test
+    public void testJmxExporter() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        JmxMetricsExporter exporter = new JmxMetricsExporter(server);
+        Sequence.of(1, 2, 3, 4).instrument("jmx", exporter).filter(x -> x > 1).toArrayList();
+        assertEquals(3L, server.getAttribute(JmxMetricsExporter.objectName("jmx/1:filter"), "ElementsOut"));
+        assertEquals(4L, server.getAttribute(JmxMetricsExporter.objectName("jmx/1:filter"), "ElementsIn"));
+        exporter.unregisterAll();
+        assertFalse(server.isRegistered(JmxMetricsExporter.objectName("jmx/1:filter")));
+    }
+}